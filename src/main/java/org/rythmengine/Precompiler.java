@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine;
+
+import org.rythmengine.conf.RythmConfigurationKey;
+import org.rythmengine.resource.TemplateResourceManager.PrecompileStats;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Precompile all templates under a template root into a template class archive. This is meant
+ * to be run as a step of the application build, e.g. with the exec maven plugin:
+ * <pre><code>java org.rythmengine.Precompiler &lt;template root&gt; &lt;output dir&gt;</code></pre>
+ * <p>When the output dir is put into the classpath, an engine configured with
+ * {@link RythmConfigurationKey#ENGINE_LOAD_PRECOMPILED_ENABLED} and without
+ * {@link RythmConfigurationKey#HOME_PRECOMPILED} loads the template classes from the archive,
+ * without parsing or compiling the templates, so the eclipse compiler is not needed at runtime.
+ * The templates must be loaded from a template root holding the same files, as the template
+ * classes are named after the template paths relative to the root</p>
+ */
+public class Precompiler {
+
+    private Precompiler() {
+    }
+
+    /**
+     * Precompile all templates under the template root into the output dir
+     *
+     * @param templateRoot the template root
+     * @param outputDir    the dir to write the template class archive into
+     * @param conf         other configuration of the engine used to compile the templates, e.g. the
+     *                     code generation options. Might be <code>null</code>
+     * @return the time taken by each phase
+     */
+    public static PrecompileStats precompile(File templateRoot, File outputDir, Map<String, ?> conf) {
+        Map<String, Object> m = new HashMap<String, Object>();
+        if (null != conf) {
+            m.putAll(conf);
+        }
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IllegalArgumentException("Cannot create output dir: " + outputDir);
+        }
+        m.put(RythmConfigurationKey.HOME_TEMPLATE.getKey(), templateRoot.getAbsolutePath());
+        m.put(RythmConfigurationKey.HOME_PRECOMPILED.getKey(), outputDir.getAbsoluteFile());
+        m.put(RythmConfigurationKey.ENGINE_PRECOMPILE_MODE.getKey(), true);
+        m.put(RythmConfigurationKey.ENGINE_MODE.getKey(), Rythm.Mode.prod);
+        RythmEngine engine = new RythmEngine(m);
+        try {
+            return engine.resourceManager().precompile();
+        } finally {
+            // writes the archive
+            engine.shutdown();
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: java org.rythmengine.Precompiler <template root> <output dir>");
+            System.exit(1);
+        }
+        PrecompileStats stats = precompile(new File(args[0]), new File(args[1]), null);
+        System.out.println(stats);
+    }
+}
@@ -14,6 +14,7 @@ import org.rythmengine.utils.Escape;
 import java.io.File;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 /**
  * Rythm is a service wrapper of the {@link RythmEngine}.
@@ -64,7 +65,7 @@ public class Rythm {
     }
 
     // the default engine instance
-    static RythmEngine engine = null;
+    static volatile RythmEngine engine = null;
 
     /**
      * Initialize default engine instance with specified configuration
@@ -80,7 +81,7 @@ public class Rythm {
      *
      * @param conf the configurations
      */
-    public static void init(Map<String, ?> conf) {
+    public static synchronized void init(Map<String, ?> conf) {
         if (null != engine) throw new IllegalStateException("Rythm is already initialized");
         engine = new RythmEngine(conf);
         // See #296
@@ -133,7 +134,7 @@ public class Rythm {
      *
      * @param file the configuration file
      */
-    public static void init(File file) {
+    public static synchronized void init(File file) {
         if (null != engine) throw new IllegalStateException("Rythm is already initialized");
         engine = new RythmEngine(file);
         engine.setShutdownListener(new RythmEngine.IShutdownListener() {
@@ -169,7 +170,7 @@ public class Rythm {
      *
      * @param engine
      */
-    public static void init(RythmEngine engine) {
+    public static synchronized void init(RythmEngine engine) {
         if (null != Rythm.engine) throw new IllegalStateException("Rythm is already initialized");
         Rythm.engine = engine;
         engine.setShutdownListener(new RythmEngine.IShutdownListener() {
@@ -181,7 +182,12 @@ public class Rythm {
     }
 
     private static void checkInit() {
-        if (null == engine) init();
+        // concurrent first calls must not initialize an engine each
+        if (null == engine) {
+            synchronized (Rythm.class) {
+                if (null == engine) init();
+            }
+        }
     }
 
     /**
@@ -305,6 +311,16 @@ public class Rythm {
         return engine().render(file, args);
     }
 
+    /**
+     * @param template
+     * @param args
+     * @return the future of the render result
+     * @see RythmEngine#renderAsync(String, Object...)
+     */
+    public static Future<String> renderAsync(String template, Object... args) {
+        return engine().renderAsync(template, args);
+    }
+
     /**
      * @param template
      * @param args
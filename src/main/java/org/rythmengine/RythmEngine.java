@@ -9,6 +9,7 @@ import org.mvel2.MVEL;
 import org.mvel2.integration.PropertyHandler;
 import org.mvel2.integration.PropertyHandlerFactory;
 import org.mvel2.integration.VariableResolverFactory;
+import org.rythmengine.cache.FragmentCache;
 import org.rythmengine.conf.RythmConfiguration;
 import org.rythmengine.conf.RythmConfigurationKey;
 import org.rythmengine.exception.RythmException;
@@ -43,12 +44,12 @@ import osgl.version.Versioned;
 import java.io.*;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <p>Not Thread Safe</p>
@@ -308,6 +309,17 @@ public class RythmEngine implements IEventDispatcher {
 
     private ICacheService _cacheService = null;
 
+    private FragmentCache _fragmentCache = null;
+
+    /**
+     * Not an API
+     *
+     * @return the {@link FragmentCache} caching <code>@cache</code> blocks
+     */
+    public FragmentCache fragmentCache() {
+        return _fragmentCache;
+    }
+
     private IDateFormatFactory _dateFormatFactory = IDateFormatFactory.DefaultDateFormatFactory.INSTANCE;
 
     public void setDateFormatFactory(IDateFormatFactory factory) {
@@ -634,6 +646,7 @@ public class RythmEngine implements IEventDispatcher {
         _cacheService = _conf.get(RythmConfigurationKey.CACHE_SERVICE_IMPL);
         _cacheService.setDefaultTTL(ttl);
         _cacheService.startup();
+        _fragmentCache = new FragmentCache(_cacheService, _conf, ttl);
 
 
         // register built-in transformers if enabled
@@ -884,6 +897,13 @@ public class RythmEngine implements IEventDispatcher {
             return EmptyTemplate.INSTANCE;
         }
 
+        TemplateClass tc = getTemplateClass(dialect, template, args);
+        ITemplate t = tc.asTemplate(this);
+        setRenderArgs(t, args);
+        return t;
+    }
+
+    private TemplateClass getTemplateClass(IDialect dialect, String template, Object... args) {
         boolean typeInferenceEnabled = conf().typeInferenceEnabled();
         if (typeInferenceEnabled) {
             ParamTypeInferencer.registerParams(this, args);
@@ -895,12 +915,36 @@ public class RythmEngine implements IEventDispatcher {
         }
 
         TemplateClass tc = classes().getByTemplate(key);
-        if (null == tc) {
-            tc = new TemplateClass(template, this, dialect);
+        if (null == tc || !tc.isLoaded()) {
+            tc = loadTemplateClass(key, resourceManager().get(template), dialect, true);
         }
-        ITemplate t = tc.asTemplate(this);
-        setRenderArgs(t, args);
-        return t;
+        return tc;
+    }
+
+    /*
+     * Create a template class not found by the key, and load it unless told not to. Concurrent
+     * calls with the same key share the result, so that the template is parsed and compiled once
+     */
+    private TemplateClass loadTemplateClass(final Object key, final ITemplateResource resource, final IDialect dialect, final boolean load) {
+        return classes().getOrLoad(key, new Callable<TemplateClass>() {
+            @Override
+            public TemplateClass call() {
+                TemplateClass tc = classes().tmplIdx.get(key);
+                if (null == tc) {
+                    tc = new TemplateClass(resource, RythmEngine.this, dialect);
+                }
+                if (load && !tc.isLoaded()) {
+                    try {
+                        tc.load(RythmEngine.this);
+                    } catch (RuntimeException e) {
+                        // let the next call load it again instead of reusing the broken one
+                        classes().remove(tc);
+                        throw e;
+                    }
+                }
+                return tc;
+            }
+        });
     }
 
     /**
@@ -933,7 +977,7 @@ public class RythmEngine implements IEventDispatcher {
         String key = S.str(resource.getKey());
         TemplateClass tc = classes().getByTemplate(key);
         if (null == tc) {
-            tc = new TemplateClass(resource, this);
+            tc = loadTemplateClass(key, resource, null, false);
         }
         return tc;
     }
@@ -964,11 +1008,11 @@ public class RythmEngine implements IEventDispatcher {
         }
         TemplateClass tc = classes().getByTemplate(key);
         ITemplate t;
-        if (null == tc) {
-            tc = new TemplateClass(file, this);
+        if (null == tc || !tc.isLoaded()) {
+            tc = loadTemplateClass(key, resourceManager().get(file), null, true);
             t = tc.asTemplate(this);
             if (null == t) return null;
-            _templates.put(tc.getKey(), t);
+            registerTemplate(tc.getKey(), t);
             //classes().add(key, tc);
         } else {
             t = tc.asTemplate(this);
@@ -1048,6 +1092,55 @@ public class RythmEngine implements IEventDispatcher {
         }
     }
 
+    /**
+     * Render template by string parameter and an array of
+     * template args. The string parameter could be either
+     * a path point to the template source file, or the inline
+     * template source content. The render result is written
+     * to the specified binary channel
+     * <p/>
+     * <p>See {@link #getTemplate(java.io.File, Object...)} for note on
+     * render args</p>
+     *
+     * @param channel  the channel
+     * @param template either the path of template source file or inline template content
+     * @param args     render args array
+     */
+    public void render(WritableByteChannel channel, String template, Object... args) {
+        outputMode.set(OutputMode.os);
+        try {
+            ITemplate t = getTemplate(template, args);
+            render(t, channel);
+        } finally {
+            renderCleanUp();
+        }
+    }
+
+    /**
+     * Render template by string parameter and an array of
+     * template args. The string parameter could be either
+     * a path point to the template source file, or the inline
+     * template source content. The render result is put into
+     * the specified byte buffer starting at its current position
+     * <p/>
+     * <p>See {@link #getTemplate(java.io.File, Object...)} for note on
+     * render args</p>
+     *
+     * @param buffer   the byte buffer
+     * @param template either the path of template source file or inline template content
+     * @param args     render args array
+     * @throws org.rythmengine.exception.RythmException if the buffer is not large enough
+     */
+    public void render(ByteBuffer buffer, String template, Object... args) {
+        outputMode.set(OutputMode.os);
+        try {
+            ITemplate t = getTemplate(template, args);
+            render(t, buffer);
+        } finally {
+            renderCleanUp();
+        }
+    }
+
     /**
      * Render template with source specified by {@link java.io.File file instance}
      * and an array of render args. Render result return as a String
@@ -1118,6 +1211,69 @@ public class RythmEngine implements IEventDispatcher {
         }
     }
 
+    // the binary render methods are implemented by TemplateBase, other templates are
+    // rendered through the methods of ITemplate
+    private static void render(ITemplate t, WritableByteChannel channel) {
+        if (t instanceof TemplateBase) {
+            ((TemplateBase) t).render(channel);
+        } else {
+            t.render(Channels.newOutputStream(channel));
+        }
+    }
+
+    private void render(ITemplate t, ByteBuffer buffer) {
+        if (t instanceof TemplateBase) {
+            ((TemplateBase) t).render(buffer);
+        } else {
+            buffer.put(t.render().getBytes(conf().outputCharset()));
+        }
+    }
+
+    /**
+     * Render template with source specified by {@link java.io.File file instance}
+     * and an array of render args. Render result written into the specified
+     * {@link java.nio.channels.WritableByteChannel}
+     * <p/>
+     * <p>See {@link #getTemplate(java.io.File, Object...)} for note on
+     * render args</p>
+     *
+     * @param channel the channel
+     * @param file    the template source file
+     * @param args    render args array
+     */
+    public void render(WritableByteChannel channel, File file, Object... args) {
+        outputMode.set(OutputMode.os);
+        try {
+            ITemplate t = getTemplate(file, args);
+            render(t, channel);
+        } finally {
+            renderCleanUp();
+        }
+    }
+
+    /**
+     * Render template with source specified by {@link java.io.File file instance}
+     * and an array of render args. Render result put into the specified
+     * {@link java.nio.ByteBuffer} starting at its current position
+     * <p/>
+     * <p>See {@link #getTemplate(java.io.File, Object...)} for note on
+     * render args</p>
+     *
+     * @param buffer the byte buffer
+     * @param file   the template source file
+     * @param args   render args array
+     * @throws org.rythmengine.exception.RythmException if the buffer is not large enough
+     */
+    public void render(ByteBuffer buffer, File file, Object... args) {
+        outputMode.set(OutputMode.os);
+        try {
+            ITemplate t = getTemplate(file, args);
+            render(t, buffer);
+        } finally {
+            renderCleanUp();
+        }
+    }
+
     /**
      * Render template by string typed inline template content and an array of
      * template args. The render result is returned as a String
@@ -1184,8 +1340,8 @@ public class RythmEngine implements IEventDispatcher {
         }
         try {
             TemplateClass tc = classes().getByTemplate(key, false);
-            if (null == tc) {
-                tc = new TemplateClass(new StringTemplateResource(key, template), this);
+            if (null == tc || !tc.isLoaded()) {
+                tc = loadTemplateClass(key, new StringTemplateResource(key, template), null, true);
                 //classes().add(key, tc);
             }
             ITemplate t = tc.asTemplate(this);
@@ -1258,8 +1414,8 @@ public class RythmEngine implements IEventDispatcher {
         String key = template + argClass;
         try {
             TemplateClass tc = classes().getByTemplate(key);
-            if (null == tc) {
-                tc = new TemplateClass(template, this, new ToString(argClass));
+            if (null == tc || !tc.isLoaded()) {
+                tc = loadTemplateClass(key, resourceManager().get(template), new ToString(argClass), true);
                 //classes().add(key, tc);
             }
             ITemplate t = tc.asTemplate(this);
@@ -1297,8 +1453,8 @@ public class RythmEngine implements IEventDispatcher {
         try {
             //String template = AutoToString.templateStr(c, option, style);
             TemplateClass tc = classes().getByTemplate(key);
-            if (null == tc) {
-                tc = new TemplateClass(new ToStringTemplateResource(key), this, new AutoToString(c, key));
+            if (null == tc || !tc.isLoaded()) {
+                tc = loadTemplateClass(key, new ToStringTemplateResource(key), new AutoToString(c, key), true);
                 //classes().add(key, tc);
             }
             ITemplate t = tc.asTemplate(this);
@@ -1385,10 +1541,10 @@ public class RythmEngine implements IEventDispatcher {
 
         try {
             TemplateClass tc = classes().getByTemplate(template);
-            if (null == tc) {
+            if (null == tc || !tc.isLoaded()) {
                 ITemplateResource rsrc = resourceManager().getResource(template);
                 if (rsrc.isValid()) {
-                    tc = new TemplateClass(rsrc, this);
+                    tc = loadTemplateClass(template, rsrc, null, true);
                     //classes().add(key, tc);
                 } else {
                     nonExistsTemplates.add(template);
@@ -1453,7 +1609,7 @@ public class RythmEngine implements IEventDispatcher {
       Tags
     -------------------------------------------------------------------------------*/
 
-    private final Map<String, ITemplate> _templates = new ConcurrentHashMap<String, ITemplate>();
+    private final ConcurrentMap<String, ITemplate> _templates = new ConcurrentHashMap<String, ITemplate>();
     private final Map<String, JavaTagBase> _tags = new ConcurrentHashMap<String, JavaTagBase>();
     private final Set<String> _nonTmpls = new CopyOnWriteArraySet<String>();
 
@@ -1626,7 +1782,9 @@ public class RythmEngine implements IEventDispatcher {
     }
 
     public void registerFastTag(JavaTagBase tag) {
-        _tags.put(tag.__getName(), tag);
+        if (tag != _tags.put(tag.__getName(), tag)) {
+            unlinkTags();
+        }
     }
 
     /**
@@ -1660,8 +1818,35 @@ public class RythmEngine implements IEventDispatcher {
 //        if (_templates.containsKey(name)) {
 //            return false;
 //        }
-        _templates.put(name, template);
-        return;
+        if (template != _templates.put(name, template)) {
+            unlinkTags();
+        }
+    }
+
+    /**
+     * Unregister the template of a template class evicted by the
+     * {@link TemplateClassManager template class manager}
+     * <p>Not an API for user application</p>
+     *
+     * @param tc
+     */
+    public void unregisterTemplateClass(TemplateClass tc) {
+        String name = tc.getTagName();
+        if (S.isEmpty(name)) {
+            name = tc.getKey();
+        }
+        ITemplate template = _templates.get(name);
+        if (null != template && !(template instanceof JavaTagBase) && tc == template.__getTemplateClass(false)) {
+            _templates.remove(name, template);
+            unlinkTags();
+        }
+        TemplateClass parent = tc.extendedTemplateClass;
+        if (null != parent) {
+            Set<TemplateClass> children = extendMap.get(parent);
+            if (null != children) {
+                children.remove(tc);
+            }
+        }
     }
 
     /**
@@ -1696,83 +1881,65 @@ public class RythmEngine implements IEventDispatcher {
      * @param ignoreNonExistsTag
      */
     public void invokeTemplate(int line, String name, ITemplate caller, ITag.__ParameterList params, ITag.__Body body, ITag.__Body context, boolean ignoreNonExistsTag) {
-        if (_nonExistsTags.contains(name)) return;
+        invokeTemplate(line, name, null, caller, params, body, context, ignoreNonExistsTag);
+    }
 
+    /**
+     * Invoke a tag through a call site. The tag resolved on the first call is linked
+     * to the call site and used directly by subsequent calls from the same caller class,
+     * until the link is dropped because a tag has been reloaded or registered again
+     * <p/>
+     * <p>Not an API for user application</p>
+     *
+     * @param line
+     * @param name
+     * @param site the call site, could be <code>null</code>
+     * @param caller
+     * @param params
+     * @param body
+     * @param context
+     * @param ignoreNonExistsTag
+     */
+    public void invokeTemplate(int line, String name, ITag.__CallSite site, ITemplate caller, ITag.__ParameterList params, ITag.__Body body, ITag.__Body context, boolean ignoreNonExistsTag) {
+        TagLink link = null == site ? null : (TagLink) site.link();
+        if (null != link && !link.accept(this, name, caller)) {
+            link = null;
+        }
+        if (null == link && _nonExistsTags.contains(name)) return;
+
+        boolean hooks = eventBus().tagHooksLive();
         Sandbox.enterSafeZone(secureCode);
-        RythmEvents.ENTER_INVOKE_TEMPLATE.trigger(this, (TemplateBase) caller);
+        if (hooks) {
+            RythmEvents.ENTER_INVOKE_TEMPLATE.trigger(this, (TemplateBase) caller);
+        }
         try {
-            // try tag registry first
-            ITemplate t = _tags.get(name);
-            if (null == t) {
-                t = _templates.get(name);
-            }
-            if (null == t && S.isEqual(name, caller.__getName())) {
-                // is calling self
-                t = caller;
-            }
-
+            ITemplate t = null == link ? null : link.newTag(caller);
             if (null == t) {
-                // try imported path
-                TemplateClass tc = caller.__getTemplateClass(true);
-                if (null != tc.importPaths) {
-                    for (String s : tc.importPaths) {
-                        if (s.startsWith("java")) {
-                            continue;
-                        }
-                        String name0 = s + "." + name;
-                        t = _tags.get(name0);
-                        if (null == t) t = _templates.get(name0);
-                        if (null != t) break;
-                    }
-                }
-
-                // try relative path
+                int version = tagLinkVersion.get();
+                t = resolveTag(name, caller, ignoreNonExistsTag);
                 if (null == t) {
-                    String callerName = tc.getTagName();
-                    int pos = -1;
-                    if (null != callerName) pos = callerName.lastIndexOf(".");
-                    if (-1 != pos) {
-                        String name0 = callerName.substring(0, pos) + "." + name;
-                        t = _tags.get(name0);
-                        if (null == t) t = _templates.get(name0);
-                    }
+                    return;
                 }
-
-                // try load the tag from resource
-                if (null == t) {
-                    tc = resourceManager().tryLoadTemplate(name, tc, caller.__curCodeType());
-                    if (null != tc) t = _templates.get(tc.getTagName());
-                    if (null == t) {
-                        if (ignoreNonExistsTag) {
-                            if (logger.isDebugEnabled()) {
-                                logger.debug("cannot find tag: " + name);
-                            }
-                            _nonExistsTags.add(name);
-                            if (isDevMode() && nonExistsTemplatesChecker == null) {
-                                nonExistsTemplatesChecker = new NonExistsTemplatesChecker();
-                            }
-                            return;
-                        } else {
-                            throw new NullPointerException("cannot find tag: " + name);
-                        }
+                if (!(t instanceof JavaTagBase)) {
+                    // try refresh the tag loaded from template file under tag root
+                    // note Java source tags are not reloaded here
+                    String cn = t.getClass().getName();
+                    TemplateClass tc0 = classes().getByClassName(cn);
+                    if (null == tc0) {
+                        throw new NullPointerException(String.format("null tc0 found. t.class: %s, name: %s, caller.class: %s", cn, name, caller.getClass()));
+                    }
+                    if (null != site) {
+                        site.link(new TagLink(this, version, name, caller.getClass(), tc0, cn, null));
+                    }
+                    t = tc0.asTemplate(caller, this);
+                } else {
+                    if (null != site) {
+                        site.link(new TagLink(this, version, name, caller.getClass(), null, null, (JavaTagBase) t));
                     }
                     t = t.__cloneMe(this, caller);
                 }
             }
 
-            if (!(t instanceof JavaTagBase)) {
-                // try refresh the tag loaded from template file under tag root
-                // note Java source tags are not reloaded here
-                String cn = t.getClass().getName();
-                TemplateClass tc0 = classes().getByClassName(cn);
-                if (null == tc0) {
-                    throw new NullPointerException(String.format("null tc0 found. t.class: %s, name: %s, caller.class: %s", cn, name, caller.getClass()));
-                }
-                t = tc0.asTemplate(caller, this);
-            } else {
-                t = t.__cloneMe(this, caller);
-            }
-
             if (null != params) {
                 if (t instanceof JavaTagBase) {
                     ((JavaTagBase) t).__setRenderArgs0(params);
@@ -1797,21 +1964,149 @@ public class RythmEngine implements IEventDispatcher {
                 t.__setRenderArg("__body", body);
                 t.__setRenderArg("_body", body); // for compatibility
             }
+            if (null != context) {
+                t.__setBodyContext(context);
+            }
+            t.__setSecureCode(secureCode);
+            if (!hooks) {
+                t.__call(line);
+                return;
+            }
             RythmEvents.ON_TAG_INVOCATION.trigger(this, F.T2((TemplateBase) caller, t));
             try {
-                if (null != context) {
-                    t.__setBodyContext(context);
-                }
-                t.__setSecureCode(secureCode).__call(line);
+                t.__call(line);
             } finally {
                 RythmEvents.TAG_INVOKED.trigger(this, F.T2((TemplateBase) caller, t));
             }
         } finally {
-            RythmEvents.EXIT_INVOKE_TEMPLATE.trigger(this, (TemplateBase) caller);
+            if (hooks) {
+                RythmEvents.EXIT_INVOKE_TEMPLATE.trigger(this, (TemplateBase) caller);
+            }
             Sandbox.leaveCurZone(secureCode);
         }
     }
 
+    /*
+     * Find the tag by name from the view of the caller. Returns null if the tag
+     * cannot be found and ignoreNonExistsTag is true
+     */
+    private ITemplate resolveTag(String name, ITemplate caller, boolean ignoreNonExistsTag) {
+        // try tag registry first
+        ITemplate t = _tags.get(name);
+        if (null == t) {
+            t = _templates.get(name);
+        }
+        if (null == t && S.isEqual(name, caller.__getName())) {
+            // is calling self
+            t = caller;
+        }
+
+        if (null == t) {
+            // try imported path
+            TemplateClass tc = caller.__getTemplateClass(true);
+            if (null != tc.importPaths) {
+                for (String s : tc.importPaths) {
+                    if (s.startsWith("java")) {
+                        continue;
+                    }
+                    String name0 = s + "." + name;
+                    t = _tags.get(name0);
+                    if (null == t) t = _templates.get(name0);
+                    if (null != t) break;
+                }
+            }
+
+            // try relative path
+            if (null == t) {
+                String callerName = tc.getTagName();
+                int pos = -1;
+                if (null != callerName) pos = callerName.lastIndexOf(".");
+                if (-1 != pos) {
+                    String name0 = callerName.substring(0, pos) + "." + name;
+                    t = _tags.get(name0);
+                    if (null == t) t = _templates.get(name0);
+                }
+            }
+
+            // try load the tag from resource
+            if (null == t) {
+                tc = resourceManager().tryLoadTemplate(name, tc, caller.__curCodeType());
+                if (null != tc) t = _templates.get(tc.getTagName());
+                if (null == t) {
+                    if (ignoreNonExistsTag) {
+                        if (logger.isDebugEnabled()) {
+                            logger.debug("cannot find tag: " + name);
+                        }
+                        _nonExistsTags.add(name);
+                        if (isDevMode() && nonExistsTemplatesChecker == null) {
+                            nonExistsTemplatesChecker = new NonExistsTemplatesChecker();
+                        }
+                        return null;
+                    } else {
+                        throw new NullPointerException("cannot find tag: " + name);
+                    }
+                }
+                t = t.__cloneMe(this, caller);
+            }
+        }
+        return t;
+    }
+
+    /*
+     * Bumped whenever the tag registry changes or templates are reloaded,
+     * any call site linked with an older version is resolved again
+     */
+    private final AtomicInteger tagLinkVersion = new AtomicInteger();
+
+    private void unlinkTags() {
+        tagLinkVersion.incrementAndGet();
+    }
+
+    /*
+     * The tag linked to a call site. The tag name is kept so that a call site with
+     * dynamic tag name works as a single entry cache, and the caller class is kept
+     * because tag name resolution depends on the import paths and the name of the caller
+     */
+    private static final class TagLink {
+        private final RythmEngine engine;
+        private final int version;
+        private final String name;
+        private final Class<?> callerClass;
+        private final TemplateClass tc;
+        private final String className;
+        private final JavaTagBase tag;
+
+        TagLink(RythmEngine engine, int version, String name, Class<?> callerClass, TemplateClass tc, String className, JavaTagBase tag) {
+            this.engine = engine;
+            this.version = version;
+            this.name = name;
+            this.callerClass = callerClass;
+            this.tc = tc;
+            this.className = className;
+            this.tag = tag;
+        }
+
+        boolean accept(RythmEngine engine, String name, ITemplate caller) {
+            return engine == this.engine && version == engine.tagLinkVersion.get()
+                    && callerClass == caller.getClass() && name.equals(this.name);
+        }
+
+        ITemplate newTag(ITemplate caller) {
+            if (null != tag) {
+                return tag.__cloneMe(engine, caller);
+            }
+            TemplateClass tc = this.tc;
+            if (!engine.isProdMode()) {
+                // let the class manager check for template source update
+                tc = engine.classes().getByClassName(className);
+                if (null == tc) {
+                    return null;
+                }
+            }
+            return tc.asTemplate(caller, engine);
+        }
+    }
+
     // -- cache api
 
     /**
@@ -1826,16 +2121,22 @@ public class RythmEngine implements IEventDispatcher {
      */
     public void cache(String key, Object o, int ttl, Object... args) {
         if (conf().cacheDisabled()) return;
-        ICacheService cacheService = _cacheService;
+        cache(CacheKey.of(key, args), o, ttl);
+    }
+
+    /**
+     * Cache object using a key built by {@link CacheKey#of(String, Object...)} for ttl seconds
+     * <p/>
+     * <p>Not an API for user application</p>
+     *
+     * @param key
+     * @param o
+     * @param ttl if zero then defaultTTL used, if negative then never expire
+     */
+    public void cache(CacheKey key, Object o, int ttl) {
+        if (conf().cacheDisabled()) return;
         Serializable value = null == o ? "" : (o instanceof Serializable ? (Serializable) o : o.toString());
-        if (args.length > 0) {
-            StringBuilder sb = new StringBuilder(key);
-            for (Object arg : args) {
-                sb.append("-").append(arg);
-            }
-            key = sb.toString();
-        }
-        cacheService.put(key, value, ttl);
+        _cacheService.put(key.toString(), value, ttl);
     }
 
     /**
@@ -1882,15 +2183,20 @@ public class RythmEngine implements IEventDispatcher {
      */
     public Serializable cached(String key, Object... args) {
         if (conf().cacheDisabled()) return null;
-        ICacheService cacheService = _cacheService;
-        if (args.length > 0) {
-            StringBuilder sb = new StringBuilder(key);
-            for (Object arg : args) {
-                sb.append("-").append(arg);
-            }
-            key = sb.toString();
-        }
-        return cacheService.get(key);
+        return cached(CacheKey.of(key, args));
+    }
+
+    /**
+     * Get cached value using a key built by {@link CacheKey#of(String, Object...)}
+     * <p/>
+     * <p>Not an API for user application</p>
+     *
+     * @param key
+     * @return cached item
+     */
+    public Serializable cached(CacheKey key) {
+        if (conf().cacheDisabled()) return null;
+        return _cacheService.get(key.toString());
     }
 
     // -- SPI interface
@@ -1927,6 +2233,7 @@ public class RythmEngine implements IEventDispatcher {
             invalidate(child);
             child.reset();
         }
+        unlinkTags();
     }
 
     // -- Sandbox
@@ -1974,16 +2281,365 @@ public class RythmEngine implements IEventDispatcher {
         return sandbox().setUserContext(context);
     }
 
+    // -- Async render
+
+    private Executor _renderExecutor = null;
+    private ExecutorService _defRenderExecutor = null;
+
+    /**
+     * Return the {@link java.util.concurrent.Executor executor} used to run asynchronous renders.
+     * <p/>
+     * <p>See {@link RythmConfigurationKey#ENGINE_RENDER_EXECUTOR_IMPL}</p>
+     *
+     * @return the render executor
+     */
+    public synchronized Executor renderExecutor() {
+        if (null == _renderExecutor) {
+            Executor executor = conf().get(RythmConfigurationKey.ENGINE_RENDER_EXECUTOR_IMPL);
+            if (null == executor) {
+                _defRenderExecutor = newDefaultRenderExecutor();
+                executor = _defRenderExecutor;
+            }
+            _renderExecutor = executor;
+        }
+        return _renderExecutor;
+    }
+
+    private static ExecutorService newDefaultRenderExecutor() {
+        try {
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (Exception e) {
+            // virtual thread not supported by this JVM
+        }
+        return Executors.newCachedThreadPool(new RythmThreadFactory("rythm-render-executor") {
+        });
+    }
+
+    /**
+     * The render settings of the current thread captured so that they could be applied
+     * to another thread. Renders run in a (possibly pooled) worker thread do not depend on
+     * whatever the thread locals of that thread contain
+     */
+    private final class CapturedRenderSettings {
+        private final ICodeType codeType = renderSettings.codeType();
+        private final Locale locale = renderSettings.locale();
+        private final Map<String, Object> usrCtx = renderSettings.userContext();
+
+        /**
+         * Apply the captured settings and this engine to the current thread
+         *
+         * @return the engine previously set to the current thread
+         */
+        RythmEngine enter() {
+            RythmEngine prev = _engine.get();
+            _engine.set(RythmEngine.this);
+            prepare(codeType, locale, usrCtx);
+            return prev;
+        }
+
+        /**
+         * Clear the render settings and restore the engine of the current thread
+         *
+         * @param prev the engine returned by {@link #enter()}
+         */
+        void exit(RythmEngine prev) {
+            renderSettings.clear();
+            if (null == prev) {
+                _engine.remove();
+            } else {
+                _engine.set(prev);
+            }
+        }
+    }
+
+    /**
+     * A render job run by the render executor. The render settings of the
+     * submitting thread are captured when the job is created and applied to
+     * the executing thread
+     */
+    private abstract class AsyncRender<T> implements Callable<T> {
+        private final CapturedRenderSettings settings = new CapturedRenderSettings();
+
+        @Override
+        public final T call() throws Exception {
+            RythmEngine prev = settings.enter();
+            try {
+                return render();
+            } finally {
+                settings.exit(prev);
+            }
+        }
+
+        protected abstract T render();
+
+        Future<T> submit(Executor executor) {
+            FutureTask<T> task = new FutureTask<T>(this);
+            executor.execute(task);
+            return task;
+        }
+    }
+
+    /**
+     * Render template asynchronously with the {@link #renderExecutor() render executor}.
+     * The render settings {@link #prepare(ICodeType, Locale, Map) prepared} in the current
+     * thread are carried over to the render
+     * <p/>
+     * <p>See {@link #render(String, Object...)}</p>
+     *
+     * @param template either the path of template source file or inline template content
+     * @param args     render args array
+     * @return the future of the render result
+     */
+    public Future<String> renderAsync(String template, Object... args) {
+        return renderAsync(renderExecutor(), template, args);
+    }
+
+    /**
+     * Render template asynchronously with the executor specified
+     * <p/>
+     * <p>See {@link #renderAsync(String, Object...)}</p>
+     *
+     * @param executor the executor to run the render
+     * @param template either the path of template source file or inline template content
+     * @param args     render args array
+     * @return the future of the render result
+     */
+    public Future<String> renderAsync(Executor executor, final String template, final Object... args) {
+        if (null == executor) throw new NullPointerException();
+        return new AsyncRender<String>() {
+            @Override
+            protected String render() {
+                return RythmEngine.this.render(template, args);
+            }
+        }.submit(executor);
+    }
+
+    /**
+     * Render template asynchronously with the {@link #renderExecutor() render executor}
+     * and stream the result to the binary output stream
+     * <p/>
+     * <p>See {@link #render(java.io.OutputStream, String, Object...)}</p>
+     *
+     * @param os       the output stream
+     * @param template either the path of template source file or inline template content
+     * @param args     render args array
+     * @return the future which is done when the render finished
+     */
+    public Future<Void> renderAsync(final OutputStream os, final String template, final Object... args) {
+        if (null == os) throw new NullPointerException();
+        return new AsyncRender<Void>() {
+            @Override
+            protected Void render() {
+                RythmEngine.this.render(os, template, args);
+                return null;
+            }
+        }.submit(renderExecutor());
+    }
+
+    /**
+     * Render template asynchronously with the {@link #renderExecutor() render executor}
+     * and stream the result to the character based writer
+     * <p/>
+     * <p>See {@link #render(java.io.Writer, String, Object...)}</p>
+     *
+     * @param w        the writer
+     * @param template either the path of template source file or inline template content
+     * @param args     render args array
+     * @return the future which is done when the render finished
+     */
+    public Future<Void> renderAsync(final Writer w, final String template, final Object... args) {
+        if (null == w) throw new NullPointerException();
+        return new AsyncRender<Void>() {
+            @Override
+            protected Void render() {
+                RythmEngine.this.render(w, template, args);
+                return null;
+            }
+        }.submit(renderExecutor());
+    }
+
+    // -- Batch render
+
+    /**
+     * The number of argument sets rendered in parallel before the results are emitted
+     */
+    private static final int BATCH_WINDOW = 1024;
+
+    /**
+     * The number of argument sets a batch render worker renders without further splitting
+     */
+    private static final int BATCH_CHUNK = 32;
+
+    private ForkJoinPool _batchPool = null;
+
+    private synchronized ForkJoinPool batchPool() {
+        if (null == _batchPool) {
+            _batchPool = new ForkJoinPool();
+        }
+        return _batchPool;
+    }
+
+    /**
+     * Render one template with many argument sets in parallel and return the results
+     * in the order of the argument sets.
+     * <p/>
+     * <p>See {@link #renderBatch(String, Iterable, org.rythmengine.utils.F.Action)}</p>
+     *
+     * @param template either the path of template source file or inline template content
+     * @param argsList the argument sets
+     * @return the render results
+     */
+    public List<String> renderBatch(String template, Iterable<?> argsList) {
+        final List<String> results = new ArrayList<String>();
+        renderBatch(template, argsList, new F.Action<String>() {
+            @Override
+            public void invoke(String result) {
+                results.add(result);
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Render one template with many argument sets in parallel and emit the results to
+     * the callback in the order of the argument sets. The callback is always invoked in
+     * the calling thread.
+     * <p/>
+     * <p>Each element of the argument sets is either an <code>Object[]</code> which is
+     * passed to the template by position, or a single render arg, e.g. a <code>Map</code>
+     * which is passed to the template by name. See {@link #getTemplate(String, Object...)}</p>
+     * <p/>
+     * <p>Unlike calling {@link #render(String, Object...)} repeatedly, the template class is
+     * resolved only once (once per arg type signature when
+     * {@link RythmConfigurationKey#FEATURE_TYPE_INFERENCE_ENABLED type inference} is enabled) and
+     * the template instances are cloned straight from the template class prototype. The render
+     * settings {@link #prepare(ICodeType, Locale, Map) prepared} in the current thread apply
+     * to all renders in the batch</p>
+     *
+     * @param template either the path of template source file or inline template content
+     * @param argsList the argument sets
+     * @param callback the callback receiving the render results
+     */
+    public void renderBatch(String template, Iterable<?> argsList, F.Action<String> callback) {
+        if (null == argsList || null == callback) throw new NullPointerException();
+        Iterator<?> itr = argsList.iterator();
+        if (S.empty(template)) {
+            while (itr.hasNext()) {
+                itr.next();
+                callback.invoke("");
+            }
+            return;
+        }
+        CapturedRenderSettings settings = new CapturedRenderSettings();
+        ForkJoinPool pool = batchPool();
+        Object[][] window = new Object[BATCH_WINDOW][];
+        String[] results = new String[BATCH_WINDOW];
+        TemplateClass tc = null;
+        boolean resolveEach = conf().typeInferenceEnabled();
+        try {
+            while (itr.hasNext()) {
+                int n = 0;
+                while (n < BATCH_WINDOW && itr.hasNext()) {
+                    window[n++] = batchArgs(itr.next());
+                }
+                if (null == tc && !resolveEach) {
+                    // compile the template in the calling thread before spreading the work
+                    tc = getTemplateClass(null, template, window[0]);
+                }
+                pool.invoke(new BatchRender(settings, template, tc, window, results, 0, n));
+                for (int i = 0; i < n; ++i) {
+                    window[i] = null;
+                    String s = results[i];
+                    results[i] = null;
+                    callback.invoke(s);
+                }
+            }
+        } finally {
+            renderCleanUp();
+        }
+    }
+
+    private static Object[] batchArgs(Object o) {
+        return o instanceof Object[] ? (Object[]) o : new Object[]{o};
+    }
+
+    /**
+     * Render a slice of the argument sets of a batch, splitting the slice until it is
+     * small enough to be rendered by one worker
+     */
+    private final class BatchRender extends RecursiveAction {
+        private final CapturedRenderSettings settings;
+        private final String template;
+        private final TemplateClass tc;
+        private final Object[][] args;
+        private final String[] results;
+        private final int from;
+        private final int to;
+
+        BatchRender(CapturedRenderSettings settings, String template, TemplateClass tc, Object[][] args, String[] results, int from, int to) {
+            this.settings = settings;
+            this.template = template;
+            this.tc = tc;
+            this.args = args;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BATCH_CHUNK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new BatchRender(settings, template, tc, args, results, from, mid),
+                        new BatchRender(settings, template, tc, args, results, mid, to));
+                return;
+            }
+            try {
+                for (int i = from; i < to; ++i) {
+                    RythmEngine prev = settings.enter();
+                    try {
+                        Object[] a = args[i];
+                        TemplateClass tc = null == this.tc ? getTemplateClass(null, template, a) : this.tc;
+                        ITemplate t = tc.asTemplate(RythmEngine.this);
+                        setRenderArgs(t, a);
+                        results[i] = t.render();
+                    } finally {
+                        settings.exit(prev);
+                    }
+                }
+            } finally {
+                renderCleanUp();
+            }
+        }
+    }
+
     // dispatch rythm events
-    private IEventDispatcher eventDispatcher = null;
+    private EventBus eventDispatcher = null;
 
     public IEventDispatcher eventDispatcher() {
+        return eventBus();
+    }
+
+    private EventBus eventBus() {
         if (null == eventDispatcher) {
             eventDispatcher = new EventBus(this);
         }
         return eventDispatcher;
     }
 
+    /**
+     * Check if the {@link RythmEvents#ON_RENDER} event has any effect
+     * <p/>
+     * <p>Not an API for user application</p>
+     *
+     * @return <code>true</code> if templates shall trigger the event
+     * @see EventBus#renderHooksLive()
+     */
+    public boolean renderHooksLive() {
+        return eventBus().renderHooksLive();
+    }
+
     /**
      * Not an API for user application
      *
@@ -2104,6 +2760,7 @@ public class RythmEngine implements IEventDispatcher {
         for (String name : templateTags) {
             _templates.remove(name);
         }
+        unlinkTags();
     }
 
     interface IShutdownListener {
@@ -2140,6 +2797,20 @@ public class RythmEngine implements IEventDispatcher {
                 logger.error(e, "Error shutdown secure executor");
             }
         }
+        if (null != _batchPool) {
+            try {
+                _batchPool.shutdown();
+            } catch (Exception e) {
+                logger.error(e, "Error shutdown batch render pool");
+            }
+        }
+        if (null != _defRenderExecutor) {
+            try {
+                _defRenderExecutor.shutdown();
+            } catch (Exception e) {
+                logger.error(e, "Error shutdown render executor");
+            }
+        }
         if (null != _resourceManager) {
             try {
                 _resourceManager.shutdown();
@@ -2147,6 +2818,13 @@ public class RythmEngine implements IEventDispatcher {
                 logger.error(e, "Error shutdown resource manager");
             }
         }
+        if (null != _classCache) {
+            try {
+                _classCache.shutdown();
+            } catch (Exception e) {
+                logger.error(e, "Error shutdown class cache");
+            }
+        }
         if (null != shutdownListener) {
             try {
                 shutdownListener.onShutdown();
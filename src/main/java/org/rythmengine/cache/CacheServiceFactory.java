@@ -25,6 +25,6 @@ public enum CacheServiceFactory implements ICacheServiceFactory {
 //        } catch (Exception e) {
 //            // ignore
 //        }
-        return SimpleCacheService.INSTANCE;
+        return TimingWheelCacheService.INSTANCE;
     }
 }
@@ -7,14 +7,17 @@ package org.rythmengine.cache;
 
 import net.sf.ehcache.CacheManager;
 import net.sf.ehcache.Element;
-import org.rythmengine.extension.ICacheService;
+import org.rythmengine.extension.IBulkCacheService;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * implement cache service based on <a href="http://ehcache.org/">EHCACHE</a>
  */
-public enum EhCacheService implements ICacheService {
+public enum EhCacheService implements IBulkCacheService {
 
     INSTANCE;
 
@@ -64,6 +67,25 @@ public enum EhCacheService implements ICacheService {
         return null == e ? null : e.getValue();
     }
 
+    @Override
+    public Map<String, Serializable> getAll(Collection<String> keys) {
+        Map<String, Serializable> found = new HashMap<String, Serializable>();
+        for (Map.Entry<Object, Element> entry : cache.getAll(keys).entrySet()) {
+            Element e = entry.getValue();
+            if (null != e) {
+                found.put((String) entry.getKey(), e.getValue());
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public void putAll(Map<String, ? extends Serializable> items, int ttl) {
+        for (Map.Entry<String, ? extends Serializable> entry : items.entrySet()) {
+            put(entry.getKey(), entry.getValue(), ttl);
+        }
+    }
+
     @Override
     public boolean contains(String key) {
         Element e = cache.get(key);
@@ -0,0 +1,210 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.cache;
+
+import org.rythmengine.conf.RythmConfiguration;
+import org.rythmengine.extension.IBulkCacheService;
+import org.rythmengine.extension.ICacheService;
+import org.rythmengine.internal.CacheKey;
+import org.rythmengine.utils.TextBuilder.StrBuf;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache the content of <code>@cache</code> blocks and of tag invocations with the
+ * <code>cache()</code> extension on top of the engine's {@link ICacheService}.
+ * <p/>
+ * <p>The content is kept both as a string and encoded in the
+ * {@link RythmConfiguration#outputCharset() output charset}, see {@link StrBuf}</p>
+ * <p/>
+ * <p>When a block is missing or expired only one request renders it. The other requests
+ * either wait for it, or, when {@link org.rythmengine.conf.RythmConfigurationKey#CACHE_STALE_TIMEOUT}
+ * is set and the expired content is still held, are served the expired content at once</p>
+ * <p/>
+ * <p>Not an API for user application. The template code shall call:</p>
+ * <pre><code>
+ * Serializable s = fc.get(key);
+ * if (null == s) {
+ *     try {
+ *         s = render();
+ *         fc.put(key, s, ttl);
+ *     } finally {
+ *         fc.release(key);
+ *     }
+ * }
+ * </code></pre>
+ */
+public class FragmentCache {
+
+    /**
+     * The cached content with the time it expires. The item is kept by the cache service
+     * for another {@link RythmConfiguration#cacheStaleTimeout()} seconds
+     */
+    static final class Fragment implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final StrBuf content;
+        final long expireAt;
+
+        Fragment(StrBuf content, long expireAt) {
+            this.content = content;
+            this.expireAt = expireAt;
+        }
+
+        /**
+         * @return the bytes taken by the chars and the encoded form of the content
+         */
+        int weight() {
+            return 2 * content.length() + content.encodedLength();
+        }
+    }
+
+    private static final class Fill {
+        final Thread renderer = Thread.currentThread();
+        final CountDownLatch done = new CountDownLatch(1);
+        // the nested renders of the block by the renderer, only accessed by the renderer
+        int depth;
+    }
+
+    private final ICacheService service;
+    private final RythmConfiguration conf;
+    private final int defaultTTL;
+    private final ConcurrentMap<CacheKey, Fill> fills = new ConcurrentHashMap<CacheKey, Fill>();
+
+    public FragmentCache(ICacheService service, RythmConfiguration conf, int defaultTTL) {
+        this.service = service;
+        this.conf = conf;
+        this.defaultTTL = defaultTTL;
+    }
+
+    /**
+     * Return the cached content of a block. When <code>null</code> is returned the caller shall
+     * render the block, {@link #put(CacheKey, Object, int) store} it and then
+     * {@link #release(CacheKey) release} the key, even if the rendering failed
+     *
+     * @param key the key of the block
+     * @return the cached content or <code>null</code>
+     */
+    public Serializable get(CacheKey key) {
+        if (conf.cacheDisabled()) return null;
+        String id = key.toString();
+        long deadline = 0;
+        for (;;) {
+            Serializable v = service.get(id);
+            Serializable content = fresh(v);
+            if (null != content) {
+                return content;
+            }
+            Fill fill = new Fill();
+            Fill cur = fills.putIfAbsent(key, fill);
+            if (null == cur) {
+                // the previous renderer might have just released it
+                content = fresh(service.get(id));
+                if (null != content) {
+                    release(key);
+                }
+                return content;
+            }
+            if (cur.renderer == fill.renderer) {
+                // the block is invoked recursively, the matching release shall not end the outer one
+                cur.depth++;
+                return null;
+            }
+            if (null != v) {
+                Fragment f = (Fragment) v;
+                // served while the other request renders it again
+                return f.content;
+            }
+            long now = System.currentTimeMillis();
+            if (0 == deadline) {
+                deadline = now + conf.cacheFillTimeout();
+            }
+            try {
+                if (now >= deadline || !cur.done.await(deadline - now, TimeUnit.MILLISECONDS)) {
+                    // render it without waiting any more
+                    return null;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            // stored by the other request, unless it failed. Then elect another renderer
+        }
+    }
+
+    /**
+     * Read the blocks of a template from the cache service in one go before the template
+     * is built. With a {@link TwoTierCacheService} this takes one round trip to the second
+     * tier, after which {@link #get(CacheKey)} reads the blocks from the first tier. Nothing is
+     * read ahead from a cache service which is not an {@link IBulkCacheService}, as the blocks
+     * are read one by one when the template is built anyway
+     *
+     * @param keys the keys of the blocks
+     */
+    public void prefetch(CacheKey... keys) {
+        if (conf.cacheDisabled() || !(service instanceof IBulkCacheService)) return;
+        List<String> ids = new ArrayList<String>(keys.length);
+        for (CacheKey key : keys) {
+            ids.add(key.toString());
+        }
+        ((IBulkCacheService) service).getAll(ids);
+    }
+
+    private static Serializable fresh(Serializable v) {
+        if (v instanceof Fragment) {
+            Fragment f = (Fragment) v;
+            return f.expireAt > System.currentTimeMillis() ? f.content : null;
+        }
+        return v;
+    }
+
+    /**
+     * Store the rendered content of a block
+     *
+     * @param key     the key of the block
+     * @param content the content
+     * @param ttl     the time to live in seconds. If zero then the default ttl is used, if
+     *                negative then the content never expires
+     */
+    public void put(CacheKey key, Object content, int ttl) {
+        if (conf.cacheDisabled()) return;
+        // encoded once here, so hits written to a binary output are not encoded again
+        StrBuf value = content instanceof StrBuf ? (StrBuf) content : StrBuf.encode(null == content ? "" : content.toString(), conf.outputCharset());
+        if (0 == ttl) {
+            ttl = defaultTTL;
+        }
+        if (ttl < 0) {
+            service.put(key.toString(), new Fragment(value, Long.MAX_VALUE), ttl);
+            return;
+        }
+        long expireAt = System.currentTimeMillis() + ttl * 1000L;
+        service.put(key.toString(), new Fragment(value, expireAt), ttl + conf.cacheStaleTimeout());
+    }
+
+    /**
+     * Let other requests read the block rendered by the current thread, or render it if the
+     * rendering failed. Does nothing if the current thread was not elected to render the block,
+     * or if it releases a recursive invocation of the block
+     *
+     * @param key the key of the block
+     */
+    public void release(CacheKey key) {
+        Fill fill = fills.get(key);
+        if (null != fill && fill.renderer == Thread.currentThread()) {
+            if (fill.depth > 0) {
+                fill.depth--;
+                return;
+            }
+            fills.remove(key, fill);
+            fill.done.countDown();
+        }
+    }
+}
@@ -5,14 +5,17 @@
  */
 package org.rythmengine.cache;
 
-import org.rythmengine.extension.ICacheService;
+import org.rythmengine.extension.IBulkCacheService;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 
 /**
  * A do-nothing implementation of {@link org.rythmengine.extension.ICacheService}
  */
-public class NoCacheService implements ICacheService {
+public class NoCacheService implements IBulkCacheService {
 
     public static final NoCacheService INSTANCE = new NoCacheService();
 
@@ -42,6 +45,15 @@ public class NoCacheService implements ICacheService {
         return null;
     }
 
+    @Override
+    public Map<String, Serializable> getAll(Collection<String> keys) {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public void putAll(Map<String, ? extends Serializable> items, int ttl) {
+    }
+
     @Override
     public boolean contains(String key) {
         return false;
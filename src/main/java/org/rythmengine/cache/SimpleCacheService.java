@@ -5,7 +5,7 @@
  */
 package org.rythmengine.cache;
 
-import org.rythmengine.extension.ICacheService;
+import org.rythmengine.extension.IBulkCacheService;
 import org.rythmengine.internal.RythmThreadFactory;
 import org.rythmengine.logger.ILogger;
 import org.rythmengine.logger.Logger;
@@ -19,7 +19,7 @@ import java.util.concurrent.*;
 /**
  * A simple cache service implementation
  */
-public class SimpleCacheService implements ICacheService {
+public class SimpleCacheService implements IBulkCacheService {
 
     private static final ILogger logger = Logger.get(SimpleCacheService.class);
 
@@ -131,6 +131,25 @@ public class SimpleCacheService implements ICacheService {
         return null == item ? null : item.value;
     }
 
+    @Override
+    public Map<String, Serializable> getAll(Collection<String> keys) {
+        Map<String, Serializable> found = new HashMap<String, Serializable>();
+        for (String key : keys) {
+            Serializable value = get(key);
+            if (null != value) {
+                found.put(key, value);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public void putAll(Map<String, ? extends Serializable> items, int ttl) {
+        for (Map.Entry<String, ? extends Serializable> entry : items.entrySet()) {
+            put(entry.getKey(), entry.getValue(), ttl);
+        }
+    }
+
     @Override
     public boolean contains(String key) {
         return cache_.containsKey(key);
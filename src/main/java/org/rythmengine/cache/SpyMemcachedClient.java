@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.cache;
+
+import net.spy.memcached.AddrUtil;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import net.spy.memcached.MemcachedClient;
+import net.spy.memcached.internal.OperationCompletionListener;
+import net.spy.memcached.internal.OperationFuture;
+import net.spy.memcached.ops.OperationStatus;
+import org.rythmengine.extension.IRemoteCacheClient;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * implement {@link IRemoteCacheClient} on memcached with
+ * <a href="https://github.com/couchbase/spymemcached">spymemcached</a>, which the
+ * application shall put on the class path
+ * <p/>
+ * <p>Keys longer than memcached allows or with chars it does not accept are hashed</p>
+ */
+public class SpyMemcachedClient implements IRemoteCacheClient {
+
+    // memcached reads a longer ttl as a unix time
+    private static final int MAX_RELATIVE_TTL = 30 * 24 * 60 * 60;
+
+    private static final int MAX_KEY_LENGTH = 200;
+
+    private final String servers;
+    private final long opTimeout;
+    private volatile MemcachedClient client;
+
+    /**
+     * @param servers the memcached servers, e.g. <code>"host1:11211 host2:11211"</code>
+     */
+    public SpyMemcachedClient(String servers) {
+        this(servers, 1000);
+    }
+
+    /**
+     * @param servers   the memcached servers, e.g. <code>"host1:11211 host2:11211"</code>
+     * @param opTimeout the time in milliseconds to wait for a read or a write
+     */
+    public SpyMemcachedClient(String servers, long opTimeout) {
+        this.servers = servers;
+        this.opTimeout = opTimeout;
+        startup();
+    }
+
+    private static String keyOf(String key) {
+        boolean valid = key.length() <= MAX_KEY_LENGTH;
+        for (int i = 0, len = key.length(); valid && i < len; ++i) {
+            char c = key.charAt(i);
+            valid = c > ' ' && c < 0x7f;
+        }
+        return valid ? key : "rythm-" + UUID.nameUUIDFromBytes(key.getBytes(Charset.forName("UTF-8")));
+    }
+
+    private MemcachedClient client() {
+        MemcachedClient client = this.client;
+        if (null == client) {
+            throw new IllegalStateException("memcached client is shutdown");
+        }
+        return client;
+    }
+
+    private static int ttlOf(int ttl) {
+        return ttl > MAX_RELATIVE_TTL ? (int) (System.currentTimeMillis() / 1000 + ttl) : ttl;
+    }
+
+    @Override
+    public Serializable get(String key) {
+        return (Serializable) client().get(keyOf(key));
+    }
+
+    @Override
+    public Map<String, Serializable> getAll(Collection<String> keys) {
+        Map<String, String> keyMap = new HashMap<String, String>();
+        for (String key : keys) {
+            keyMap.put(keyOf(key), key);
+        }
+        Map<String, Serializable> found = new HashMap<String, Serializable>();
+        for (Map.Entry<String, Object> entry : client().getBulk(keyMap.keySet()).entrySet()) {
+            found.put(keyMap.get(entry.getKey()), (Serializable) entry.getValue());
+        }
+        return found;
+    }
+
+    @Override
+    public void set(final String key, Serializable value, int ttl, final WriteListener listener) {
+        client().set(keyOf(key), ttlOf(ttl), value).addListener(new OperationCompletionListener() {
+            @Override
+            public void onComplete(OperationFuture<?> future) {
+                OperationStatus status = future.getStatus();
+                listener.onComplete(key, status.isSuccess() ? null
+                        : new IllegalStateException("memcached did not store " + key + ": " + status.getMessage()));
+            }
+        });
+    }
+
+    @Override
+    public void delete(String key) {
+        try {
+            // false when the key is not there, which is fine
+            client().delete(keyOf(key)).get(opTimeout, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void flush() {
+        try {
+            client().flush().get(opTimeout, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public synchronized void startup() {
+        if (null == client) {
+            ConnectionFactoryBuilder builder = new ConnectionFactoryBuilder().setOpTimeout(opTimeout).setDaemon(true);
+            try {
+                client = new MemcachedClient(builder.build(), AddrUtil.getAddresses(servers));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        if (null != client) {
+            // let the pending writes complete
+            client.shutdown(opTimeout, TimeUnit.MILLISECONDS);
+            client = null;
+        }
+    }
+}
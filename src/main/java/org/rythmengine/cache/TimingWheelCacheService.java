@@ -0,0 +1,583 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.cache;
+
+import org.rythmengine.extension.IBulkCacheService;
+import org.rythmengine.internal.RythmThreadFactory;
+import org.rythmengine.logger.ILogger;
+import org.rythmengine.logger.Logger;
+import org.rythmengine.utils.TextBuilder.StrBuf;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The default cache service implementation. Items are bounded by their estimated memory
+ * weight, see {@link #weigh(String, java.io.Serializable)}.
+ * <p/>
+ * <ul>
+ * <li>{@link #get(String)} does not take any lock: it checks the absolute expiry time of the
+ * item and records the access into a frequency sketch</li>
+ * <li>expired items are reclaimed by a hierarchical timing wheel, advanced once per second by
+ * the timer thread, so the cost of expiring does not depend on the number of cached items</li>
+ * <li>new items enter a small LRU admission window. Items leaving the window are only kept
+ * in the main space when they have been requested more often than the item they would evict
+ * (W-TinyLFU), so a burst of one-off keys does not flush the frequently used ones</li>
+ * </ul>
+ */
+public class TimingWheelCacheService implements IBulkCacheService {
+
+    private static final ILogger logger = Logger.get(TimingWheelCacheService.class);
+
+    /**
+     * The default instance, bounded to 1/16 of the max heap size
+     */
+    public static final TimingWheelCacheService INSTANCE = new TimingWheelCacheService(Runtime.getRuntime().maxMemory() / 16);
+
+    private static class TimerThreadFactory extends RythmThreadFactory {
+        private TimerThreadFactory() {
+            super("rythm-timer");
+        }
+    }
+
+    private static final long NEVER = Long.MAX_VALUE;
+
+    // the timing wheel has LEVELS levels of SLOTS buckets, each level spanning SLOTS times
+    // the span of the level below. A tick is a second
+    private static final int SHIFT = 6;
+    private static final int SLOTS = 1 << SHIFT;
+    private static final int LEVELS = 3;
+    private static final long WHEEL_SPAN = 1L << (SHIFT * LEVELS);
+
+    // the share of the maximum weight kept by the admission window, in percent
+    private static final int WINDOW_PERCENT = 1;
+    // the number of recently read items a single eviction might skip before comparing frequencies
+    private static final int SECOND_CHANCES = 8;
+
+    // rough size of the entry, the map node and the key and value object headers
+    private static final int ENTRY_OVERHEAD = 96;
+    private static final int DEFAULT_VALUE_WEIGHT = 64;
+
+    private static final class Entry {
+        final String key;
+        final Serializable value;
+        final long expireAt;
+        final int weight;
+        // set by readers without lock, cleared by the eviction
+        volatile boolean accessed;
+        // below are guarded by the lock
+        boolean inWindow;
+        Entry prev, next;
+        Entry wheelPrev, wheelNext;
+
+        Entry(String key, Serializable value, long expireAt, int weight) {
+            this.key = key;
+            this.value = value;
+            this.expireAt = expireAt;
+            this.weight = weight;
+        }
+
+        // list sentinel
+        Entry() {
+            this(null, null, NEVER, 0);
+            prev = next = this;
+            wheelPrev = wheelNext = this;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> cache_ = new ConcurrentHashMap<String, Entry>();
+
+    // guards all structures below, only taken by writers and the timer
+    private final ReentrantLock lock = new ReentrantLock();
+    private final long maxWeight;
+    private final long windowMaxWeight;
+    private long windowWeight;
+    private long mainWeight;
+    private final Entry window = new Entry();
+    private final Entry main = new Entry();
+    private final Entry[] wheel = new Entry[LEVELS * SLOTS];
+    private long tick;
+
+    private final FrequencySketch sketch = new FrequencySketch();
+
+    private volatile int defaultTTL = 60;
+
+    private ScheduledExecutorService scheduler = null;
+
+    /**
+     * Construct a cache service
+     *
+     * @param maxWeight the maximum total weight of the cached items, i.e. roughly the
+     *                  bytes they might take in memory
+     */
+    public TimingWheelCacheService(long maxWeight) {
+        if (maxWeight <= 0) throw new IllegalArgumentException("max weight shall be positive");
+        this.maxWeight = maxWeight;
+        this.windowMaxWeight = Math.max(1, maxWeight * WINDOW_PERCENT / 100);
+        for (int i = 0; i < wheel.length; ++i) {
+            wheel[i] = new Entry();
+        }
+        tick = currentTick(System.currentTimeMillis());
+        startup();
+    }
+
+    /**
+     * Estimate the memory taken by a cached item. Sub classes could override this to
+     * weigh other value types precisely
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the weight of the item, roughly in bytes
+     */
+    protected int weigh(String key, Serializable value) {
+        long w = ENTRY_OVERHEAD + 2L * key.length();
+        if (value instanceof CharSequence) {
+            w += 2L * ((CharSequence) value).length();
+        } else if (value instanceof byte[]) {
+            w += ((byte[]) value).length;
+        } else if (value instanceof char[]) {
+            w += 2L * ((char[]) value).length;
+        } else if (value instanceof FragmentCache.Fragment) {
+            w += ((FragmentCache.Fragment) value).weight();
+        } else if (value instanceof StrBuf) {
+            StrBuf sb = (StrBuf) value;
+            w += 2L * sb.length() + sb.encodedLength();
+        } else if (null != value) {
+            w += DEFAULT_VALUE_WEIGHT;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, w);
+    }
+
+    @Override
+    public void put(String key, Serializable value, int ttl) {
+        if (null == key) throw new NullPointerException();
+        if (0 == ttl) {
+            ttl = defaultTTL;
+        }
+        long expireAt = ttl < 0 ? NEVER : System.currentTimeMillis() + ttl * 1000L;
+        Entry entry = new Entry(key, value, expireAt, weigh(key, value));
+        lock.lock();
+        try {
+            sketch.ensureCapacity(cache_.size() + 1);
+            sketch.increment(key);
+            Entry old = cache_.put(key, entry);
+            if (null != old) {
+                unlink(old);
+            }
+            if (entry.weight > maxWeight) {
+                cache_.remove(key, entry);
+                return;
+            }
+            entry.inWindow = true;
+            append(window, entry);
+            windowWeight += entry.weight;
+            schedule(entry);
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(String key, Serializable value) {
+        put(key, value, defaultTTL);
+    }
+
+    @Override
+    public Serializable remove(String key) {
+        Entry entry;
+        lock.lock();
+        try {
+            entry = cache_.remove(key);
+            if (null != entry) {
+                unlink(entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return null == entry || expired(entry, System.currentTimeMillis()) ? null : entry.value;
+    }
+
+    @Override
+    public void evict(String key) {
+        remove(key);
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            cache_.clear();
+            window.prev = window.next = window;
+            main.prev = main.next = main;
+            for (Entry bucket : wheel) {
+                bucket.wheelPrev = bucket.wheelNext = bucket;
+            }
+            windowWeight = 0;
+            mainWeight = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Serializable get(String key) {
+        sketch.increment(key);
+        Entry entry = cache_.get(key);
+        if (null == entry || expired(entry, System.currentTimeMillis())) {
+            // expired items are reclaimed by the timer
+            return null;
+        }
+        if (!entry.accessed) {
+            entry.accessed = true;
+        }
+        return entry.value;
+    }
+
+    @Override
+    public Map<String, Serializable> getAll(Collection<String> keys) {
+        Map<String, Serializable> found = new HashMap<String, Serializable>();
+        for (String key : keys) {
+            Serializable value = get(key);
+            if (null != value) {
+                found.put(key, value);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public void putAll(Map<String, ? extends Serializable> items, int ttl) {
+        for (Map.Entry<String, ? extends Serializable> entry : items.entrySet()) {
+            put(entry.getKey(), entry.getValue(), ttl);
+        }
+    }
+
+    @Override
+    public boolean contains(String key) {
+        Entry entry = cache_.get(key);
+        return null != entry && !expired(entry, System.currentTimeMillis());
+    }
+
+    @Override
+    public void setDefaultTTL(int ttl) {
+        if (ttl == 0) throw new IllegalArgumentException("time to live value couldn't be zero");
+        this.defaultTTL = ttl;
+    }
+
+    /**
+     * @return the number of items held, including those expired but not yet reclaimed
+     */
+    public int size() {
+        return cache_.size();
+    }
+
+    /**
+     * @return the total weight of the items held
+     */
+    public long weightedSize() {
+        lock.lock();
+        try {
+            return windowWeight + mainWeight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        clear();
+        if (null != scheduler) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+
+    @Override
+    public synchronized void startup() {
+        if (null == scheduler) {
+            scheduler = new ScheduledThreadPoolExecutor(1, new TimerThreadFactory());
+            scheduler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        expire();
+                    } catch (RuntimeException e) {
+                        logger.error(e, "error expiring cached items");
+                    }
+                }
+            }, 1, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    protected void finalize() throws Throwable {
+        shutdown();
+    }
+
+    private static boolean expired(Entry entry, long now) {
+        return entry.expireAt <= now;
+    }
+
+    private static long currentTick(long millis) {
+        return millis / 1000;
+    }
+
+    /**
+     * Advance the timing wheel to the current time and reclaim the expired items
+     */
+    void expire() {
+        long now = System.currentTimeMillis();
+        long nowTick = currentTick(now);
+        lock.lock();
+        try {
+            if (nowTick - tick >= WHEEL_SPAN) {
+                // the timer has not run for long, e.g. the system was suspended
+                rebuildWheel(now, nowTick);
+                return;
+            }
+            while (tick < nowTick) {
+                ++tick;
+                // cascade the upper levels down before their slots get reused
+                if (0 == (tick & ((1L << (2 * SHIFT)) - 1))) {
+                    cascade(bucket(2, tick), now);
+                }
+                if (0 == (tick & (SLOTS - 1))) {
+                    cascade(bucket(1, tick), now);
+                }
+                cascade(bucket(0, tick), now);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Entry bucket(int level, long tick) {
+        return wheel[level * SLOTS + (int) ((tick >>> (SHIFT * level)) & (SLOTS - 1))];
+    }
+
+    private void cascade(Entry bucket, long now) {
+        Entry e = bucket.wheelNext;
+        bucket.wheelPrev = bucket.wheelNext = bucket;
+        while (e != bucket) {
+            Entry next = e.wheelNext;
+            e.wheelPrev = e.wheelNext = null;
+            if (expired(e, now)) {
+                if (cache_.remove(e.key, e)) {
+                    unlink(e);
+                }
+                if (logger.isTraceEnabled()) {
+                    logger.trace("- %s at %s", e.key, e.expireAt);
+                }
+            } else {
+                schedule(e);
+            }
+            e = next;
+        }
+    }
+
+    private void rebuildWheel(long now, long nowTick) {
+        for (Entry bucket : wheel) {
+            bucket.wheelPrev = bucket.wheelNext = bucket;
+        }
+        tick = nowTick;
+        for (Entry head : new Entry[]{window, main}) {
+            Entry e = head.next;
+            while (e != head) {
+                Entry next = e.next;
+                e.wheelPrev = e.wheelNext = null;
+                if (expired(e, now)) {
+                    cache_.remove(e.key, e);
+                    unlink(e);
+                } else {
+                    schedule(e);
+                }
+                e = next;
+            }
+        }
+    }
+
+    private void schedule(Entry e) {
+        if (NEVER == e.expireAt) {
+            return;
+        }
+        // round up so the item is reclaimed after its expiry time
+        long expireTick = currentTick(e.expireAt + 999);
+        long delay = expireTick - tick;
+        if (delay <= 0) {
+            expireTick = tick + 1;
+            delay = 1;
+        } else if (delay >= WHEEL_SPAN) {
+            // rescheduled when cascaded from the top level
+            expireTick = tick + WHEEL_SPAN - 1;
+            delay = WHEEL_SPAN - 1;
+        }
+        int level = delay < SLOTS ? 0 : delay < SLOTS * SLOTS ? 1 : 2;
+        Entry bucket = bucket(level, expireTick);
+        e.wheelNext = bucket;
+        e.wheelPrev = bucket.wheelPrev;
+        bucket.wheelPrev.wheelNext = e;
+        bucket.wheelPrev = e;
+    }
+
+    private void unlink(Entry e) {
+        if (null != e.wheelPrev) {
+            e.wheelPrev.wheelNext = e.wheelNext;
+            e.wheelNext.wheelPrev = e.wheelPrev;
+            e.wheelPrev = e.wheelNext = null;
+        }
+        if (null != e.prev) {
+            e.prev.next = e.next;
+            e.next.prev = e.prev;
+            e.prev = e.next = null;
+            if (e.inWindow) {
+                windowWeight -= e.weight;
+            } else {
+                mainWeight -= e.weight;
+            }
+        }
+    }
+
+    private void remove(Entry e) {
+        cache_.remove(e.key, e);
+        unlink(e);
+    }
+
+    private static void append(Entry head, Entry e) {
+        e.next = head;
+        e.prev = head.prev;
+        head.prev.next = e;
+        head.prev = e;
+    }
+
+    private static void moveToTail(Entry head, Entry e) {
+        e.prev.next = e.next;
+        e.next.prev = e.prev;
+        append(head, e);
+    }
+
+    private boolean overweight() {
+        return windowWeight + mainWeight > maxWeight;
+    }
+
+    private void evict() {
+        while (windowWeight > windowMaxWeight) {
+            Entry candidate = window.next;
+            moveToTail(main, candidate);
+            candidate.inWindow = false;
+            windowWeight -= candidate.weight;
+            mainWeight += candidate.weight;
+            if (overweight()) {
+                admit(candidate);
+            }
+        }
+        while (overweight()) {
+            // the window alone is over the bound
+            remove(main.next != main ? main.next : window.next);
+        }
+    }
+
+    /**
+     * Keep the candidate just moved into the main space only if it is used more often
+     * than the items it evicts
+     */
+    private void admit(Entry candidate) {
+        int chances = SECOND_CHANCES;
+        while (overweight()) {
+            Entry victim = main.next;
+            if (victim == candidate) {
+                remove(candidate);
+                return;
+            }
+            if (victim.accessed && chances-- > 0) {
+                victim.accessed = false;
+                moveToTail(main, victim);
+                continue;
+            }
+            if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                remove(victim);
+            } else {
+                remove(candidate);
+                return;
+            }
+        }
+    }
+
+    /**
+     * A count-min sketch of 4 bit counters estimating how often keys are requested. Counters
+     * are updated without lock: a lost increment only makes the estimate a bit lower. All
+     * counters are halved periodically so the estimate follows recent popularity
+     */
+    private static final class FrequencySketch {
+        private static final int MAX_COUNT = 15;
+        private static final int MAX_CAPACITY = 1 << 24;
+        private static final int DEPTH = 4;
+
+        private volatile byte[] table = new byte[256];
+        private int samples;
+
+        // called with the lock held
+        void ensureCapacity(int size) {
+            byte[] t = table;
+            if (size * 8L > t.length && t.length < MAX_CAPACITY) {
+                table = new byte[(int) Math.min(MAX_CAPACITY, Integer.highestOneBit(size) * 32L)];
+                samples = 0;
+            }
+        }
+
+        private static long spread(String key) {
+            long h = key.hashCode() * 0x9E3779B97F4A7C15L;
+            return h ^ (h >>> 29);
+        }
+
+        // the counters of a key are picked by double hashing: h1 + i * h2
+        private static int index(long hash, int i, int mask) {
+            return ((int) hash + i * ((int) (hash >>> 32) | 1)) & mask;
+        }
+
+        void increment(String key) {
+            byte[] t = table;
+            int mask = t.length - 1;
+            long hash = spread(key);
+            boolean added = false;
+            for (int i = 0; i < DEPTH; ++i) {
+                int idx = index(hash, i, mask);
+                if (t[idx] < MAX_COUNT) {
+                    t[idx]++;
+                    added = true;
+                }
+            }
+            if (added && ++samples >= t.length) {
+                reset(t);
+            }
+        }
+
+        int frequency(String key) {
+            byte[] t = table;
+            int mask = t.length - 1;
+            long hash = spread(key);
+            int min = MAX_COUNT;
+            for (int i = 0; i < DEPTH; ++i) {
+                min = Math.min(min, t[index(hash, i, mask)]);
+            }
+            return min;
+        }
+
+        private void reset(byte[] t) {
+            samples = 0;
+            for (int i = 0; i < t.length; ++i) {
+                t[i] >>= 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,293 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.cache;
+
+import org.rythmengine.extension.IBulkCacheService;
+import org.rythmengine.extension.ICacheService;
+import org.rythmengine.extension.IRemoteCacheClient;
+import org.rythmengine.logger.ILogger;
+import org.rythmengine.logger.Logger;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache service with a local first tier in front of an out of process second tier
+ * shared by all nodes, so a block rendered by one node is served by the others.
+ * <p/>
+ * <p>Items read from the second tier are kept in the first tier for at most
+ * <code>localTTL</code> seconds, which bounds how long a node could serve an item
+ * evicted or replaced by another node. Items are written to the second tier without
+ * waiting for the write</p>
+ * <p/>
+ * <p>When the second tier could not be reached the items are served from the first tier
+ * only, and the second tier is not called again for <code>retryInterval</code>
+ * milliseconds, so an outage neither slows down every render nor floods the log</p>
+ * <p/>
+ * <p>Configure it with an instance, e.g.</p>
+ * <pre><code>
+ * conf.put("cache.service.impl", new TwoTierCacheService(
+ *     new TimingWheelCacheService(64 * 1024 * 1024),
+ *     new SpyMemcachedClient("host1:11211 host2:11211"), 10));
+ * </code></pre>
+ */
+public class TwoTierCacheService implements IBulkCacheService {
+
+    private static final ILogger logger = Logger.get(TwoTierCacheService.class);
+
+    private final ICacheService local;
+    private final IRemoteCacheClient remote;
+    private final int localTTL;
+    private final long retryInterval;
+    private int defaultTTL = 60;
+
+    // the time to call the second tier again after a failure, zero while it is reachable
+    private final AtomicLong retryAt = new AtomicLong();
+
+    private final IRemoteCacheClient.WriteListener writeListener = new IRemoteCacheClient.WriteListener() {
+        @Override
+        public void onComplete(String key, Throwable error) {
+            if (null == error) {
+                remoteReached();
+            } else {
+                remoteFailed(error, "storing " + key + " to");
+            }
+        }
+    };
+
+    /**
+     * @param local    the first tier
+     * @param remote   the client of the second tier
+     * @param localTTL the max time in seconds to keep an item in the first tier
+     */
+    public TwoTierCacheService(ICacheService local, IRemoteCacheClient remote, int localTTL) {
+        this(local, remote, localTTL, 30000);
+    }
+
+    /**
+     * @param local         the first tier
+     * @param remote        the client of the second tier
+     * @param localTTL      the max time in seconds to keep an item in the first tier
+     * @param retryInterval the time in milliseconds to serve from the first tier only
+     *                      after the second tier could not be reached
+     */
+    public TwoTierCacheService(ICacheService local, IRemoteCacheClient remote, int localTTL, long retryInterval) {
+        if (localTTL <= 0) throw new IllegalArgumentException("local time to live value must be positive");
+        if (retryInterval <= 0) throw new IllegalArgumentException("retry interval must be positive");
+        this.local = local;
+        this.remote = remote;
+        this.localTTL = localTTL;
+        this.retryInterval = retryInterval;
+    }
+
+    /**
+     * Whether to call the second tier. Once the retry interval passed after a failure
+     * one caller tries it again while the others keep skipping it
+     */
+    private boolean remoteAvailable() {
+        long at = retryAt.get();
+        if (0 == at) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        return now >= at && retryAt.compareAndSet(at, now + retryInterval);
+    }
+
+    private void remoteReached() {
+        if (0 != retryAt.get() && 0 != retryAt.getAndSet(0)) {
+            logger.info("The remote cache is reachable again");
+        }
+    }
+
+    private void remoteFailed(Throwable e, String what) {
+        if (0 == retryAt.getAndSet(System.currentTimeMillis() + retryInterval)) {
+            logger.warn(e, "Error %s the remote cache, serving from the local cache for %sms", what, retryInterval);
+        } else if (logger.isDebugEnabled()) {
+            logger.debug(e, "Error %s the remote cache", what);
+        }
+    }
+
+    private int localTTL(int ttl) {
+        return ttl <= 0 ? localTTL : Math.min(ttl, localTTL);
+    }
+
+    private int remoteTTL(int ttl) {
+        if (0 == ttl) {
+            ttl = defaultTTL;
+        }
+        // zero means never expire to the remote store
+        return ttl < 0 ? 0 : ttl;
+    }
+
+    @Override
+    public void put(String key, Serializable value, int ttl) {
+        if (null == key) throw new NullPointerException();
+        local.put(key, value, localTTL(0 == ttl ? defaultTTL : ttl));
+        if (remoteAvailable()) {
+            set(key, value, remoteTTL(ttl));
+        }
+    }
+
+    private void set(String key, Serializable value, int ttl) {
+        try {
+            remote.set(key, value, ttl, writeListener);
+        } catch (RuntimeException e) {
+            remoteFailed(e, "storing " + key + " to");
+        }
+    }
+
+    @Override
+    public void put(String key, Serializable value) {
+        put(key, value, defaultTTL);
+    }
+
+    @Override
+    public void putAll(Map<String, ? extends Serializable> items, int ttl) {
+        putAllLocal(items, localTTL(0 == ttl ? defaultTTL : ttl));
+        if (!remoteAvailable()) {
+            return;
+        }
+        // the writes are sent without waiting for each other
+        int remoteTTL = remoteTTL(ttl);
+        for (Map.Entry<String, ? extends Serializable> entry : items.entrySet()) {
+            set(entry.getKey(), entry.getValue(), remoteTTL);
+        }
+    }
+
+    @Override
+    public Serializable remove(String key) {
+        Serializable value = get(key);
+        evict(key);
+        return value;
+    }
+
+    @Override
+    public void evict(String key) {
+        local.evict(key);
+        if (!remoteAvailable()) {
+            return;
+        }
+        try {
+            remote.delete(key);
+            remoteReached();
+        } catch (RuntimeException e) {
+            remoteFailed(e, "removing " + key + " from");
+        }
+    }
+
+    @Override
+    public Serializable get(String key) {
+        Serializable value = local.get(key);
+        if (null != value || !remoteAvailable()) {
+            return value;
+        }
+        try {
+            value = remote.get(key);
+            remoteReached();
+        } catch (RuntimeException e) {
+            remoteFailed(e, "reading " + key + " from");
+            return null;
+        }
+        if (null != value) {
+            local.put(key, value, localTTL);
+        }
+        return value;
+    }
+
+    @Override
+    public Map<String, Serializable> getAll(Collection<String> keys) {
+        Map<String, Serializable> found = getAllLocal(keys);
+        List<String> missing = new ArrayList<String>();
+        for (String key : keys) {
+            if (!found.containsKey(key)) {
+                missing.add(key);
+            }
+        }
+        if (missing.isEmpty() || !remoteAvailable()) {
+            return found;
+        }
+        Map<String, Serializable> fetched;
+        try {
+            fetched = remote.getAll(missing);
+            remoteReached();
+        } catch (RuntimeException e) {
+            remoteFailed(e, "reading " + missing.size() + " items from");
+            return found;
+        }
+        if (!fetched.isEmpty()) {
+            putAllLocal(fetched, localTTL);
+            found.putAll(fetched);
+        }
+        return found;
+    }
+
+    private Map<String, Serializable> getAllLocal(Collection<String> keys) {
+        if (local instanceof IBulkCacheService) {
+            return new HashMap<String, Serializable>(((IBulkCacheService) local).getAll(keys));
+        }
+        Map<String, Serializable> found = new HashMap<String, Serializable>();
+        for (String key : keys) {
+            Serializable value = local.get(key);
+            if (null != value) {
+                found.put(key, value);
+            }
+        }
+        return found;
+    }
+
+    private void putAllLocal(Map<String, ? extends Serializable> items, int ttl) {
+        if (local instanceof IBulkCacheService) {
+            ((IBulkCacheService) local).putAll(items, ttl);
+            return;
+        }
+        for (Map.Entry<String, ? extends Serializable> entry : items.entrySet()) {
+            local.put(entry.getKey(), entry.getValue(), ttl);
+        }
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return null != get(key);
+    }
+
+    /**
+     * Remove all items from both tiers, including those stored by other nodes
+     */
+    @Override
+    public void clear() {
+        local.clear();
+        try {
+            remote.flush();
+            remoteReached();
+        } catch (RuntimeException e) {
+            remoteFailed(e, "clearing");
+        }
+    }
+
+    @Override
+    public void setDefaultTTL(int ttl) {
+        if (ttl == 0) throw new IllegalArgumentException("time to live value couldn't be zero");
+        this.defaultTTL = ttl;
+        local.setDefaultTTL(localTTL(ttl));
+    }
+
+    /**
+     * Shutdown the first tier and disconnect from the second tier. The items in the second
+     * tier are kept for the other nodes
+     */
+    @Override
+    public void shutdown() {
+        local.shutdown();
+        remote.shutdown();
+    }
+
+    @Override
+    public void startup() {
+        local.startup();
+        remote.startup();
+    }
+}
@@ -19,6 +19,7 @@ import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.charset.Charset;
 import java.util.*;
 
 import static org.rythmengine.conf.RythmConfigurationKey.*;
@@ -197,6 +198,78 @@ public class RythmConfiguration {
         return _precompileMode;
     }
 
+    private Charset _outputCharset = null;
+
+    /**
+     * Return {@link RythmConfigurationKey#ENGINE_OUTPUT_CHARSET} without lookup
+     *
+     * @return the output charset
+     */
+    public Charset outputCharset() {
+        if (null == _outputCharset) {
+            Object o = get(ENGINE_OUTPUT_CHARSET);
+            _outputCharset = o instanceof Charset ? (Charset) o : Charset.forName(o.toString());
+        }
+        return _outputCharset;
+    }
+
+    private Integer _outputBufferSize = null;
+
+    /**
+     * Return {@link RythmConfigurationKey#ENGINE_OUTPUT_BUFFER_SIZE} without lookup
+     *
+     * @return the output buffer size in bytes
+     */
+    public int outputBufferSize() {
+        if (null == _outputBufferSize) {
+            _outputBufferSize = get(ENGINE_OUTPUT_BUFFER_SIZE);
+        }
+        return _outputBufferSize;
+    }
+
+    private Integer _inlineTemplateCacheSize = null;
+
+    /**
+     * Return {@link RythmConfigurationKey#ENGINE_INLINE_TEMPLATE_CACHE_SIZE} without lookup
+     *
+     * @return the maximum number of inline template classes
+     */
+    public int inlineTemplateCacheSize() {
+        if (null == _inlineTemplateCacheSize) {
+            _inlineTemplateCacheSize = get(ENGINE_INLINE_TEMPLATE_CACHE_SIZE);
+        }
+        return _inlineTemplateCacheSize;
+    }
+
+    private Long _inlineTemplateCacheMemory = null;
+
+    /**
+     * Return {@link RythmConfigurationKey#ENGINE_INLINE_TEMPLATE_CACHE_MEMORY} without lookup
+     *
+     * @return the maximum memory taken by inline template classes in bytes
+     */
+    public long inlineTemplateCacheMemory() {
+        if (null == _inlineTemplateCacheMemory) {
+            Integer kb = get(ENGINE_INLINE_TEMPLATE_CACHE_MEMORY);
+            _inlineTemplateCacheMemory = kb * 1024L;
+        }
+        return _inlineTemplateCacheMemory;
+    }
+
+    private IFlushPolicy _outputFlushPolicy = null;
+
+    /**
+     * Return {@link RythmConfigurationKey#ENGINE_OUTPUT_FLUSH_POLICY_IMPL} without lookup
+     *
+     * @return the output flush policy
+     */
+    public IFlushPolicy outputFlushPolicy() {
+        if (null == _outputFlushPolicy) {
+            _outputFlushPolicy = get(ENGINE_OUTPUT_FLUSH_POLICY_IMPL);
+        }
+        return _outputFlushPolicy;
+    }
+
     private Boolean _disableFileWrite = null;
 
     /**
@@ -366,6 +439,34 @@ public class RythmConfiguration {
         return !cacheEnabled();
     }
 
+    private Integer _cacheStaleTimeout = null;
+
+    /**
+     * Return {@link RythmConfigurationKey#CACHE_STALE_TIMEOUT} without lookup
+     *
+     * @return the time in seconds an expired cached block is still served
+     */
+    public int cacheStaleTimeout() {
+        if (null == _cacheStaleTimeout) {
+            _cacheStaleTimeout = get(CACHE_STALE_TIMEOUT);
+        }
+        return _cacheStaleTimeout;
+    }
+
+    private Integer _cacheFillTimeout = null;
+
+    /**
+     * Return {@link RythmConfigurationKey#CACHE_FILL_TIMEOUT} without lookup
+     *
+     * @return the time in milliseconds to wait for a cached block rendered by another request
+     */
+    public int cacheFillTimeout() {
+        if (null == _cacheFillTimeout) {
+            _cacheFillTimeout = get(CACHE_FILL_TIMEOUT);
+        }
+        return _cacheFillTimeout;
+    }
+
     private Boolean _transformEnabled = null;
 
     /**
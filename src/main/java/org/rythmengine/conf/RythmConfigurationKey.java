@@ -12,6 +12,7 @@ import org.rythmengine.cache.NoCacheService;
 import org.rythmengine.exception.ConfigurationException;
 import org.rythmengine.extension.ICodeType;
 import org.rythmengine.extension.IDurationParser;
+import org.rythmengine.extension.IFlushPolicy;
 import org.rythmengine.extension.II18nMessageResolver;
 import org.rythmengine.logger.ILogger;
 import org.rythmengine.logger.JDKLogger;
@@ -71,8 +72,9 @@ public enum RythmConfigurationKey {
     /**
      * "cache.service.impl": Set {@link org.rythmengine.extension.ICacheService cache service} implementation
      * <p/>
-     * <p>Default value: try {@link org.rythmengine.cache.EhCacheService} first, if
-     * cannot initialize then use {@link org.rythmengine.cache.SimpleCacheService}</p>
+     * <p>Default value: {@link org.rythmengine.cache.TimingWheelCacheService#INSTANCE}, bounded to
+     * 1/16 of the max heap size. Set a {@link org.rythmengine.cache.TimingWheelCacheService} instance
+     * to use another bound</p>
      * <p/>
      * <p>Note when {@link #CACHE_ENABLED} is set to <code>false</code>, then this setting
      * will be ignored, and the service impl will be set to {@link org.rythmengine.cache.NoCacheService}
@@ -107,6 +109,24 @@ public enum RythmConfigurationKey {
      */
     CACHE_PROD_ONLY_ENABLED("cache.prod_only.enabled", true),
 
+    /**
+     * "cache.stale.timeout": Set the time in seconds a <code>@cache</code> block is still served
+     * after its ttl expired, while a single request renders it again. When set to <code>0</code>
+     * all requests wait for the request rendering an expired block
+     * <p/>
+     * <p>Default value: <code>0</code></p>
+     */
+    CACHE_STALE_TIMEOUT("cache.stale.timeout", 0),
+
+    /**
+     * "cache.fill.timeout": Set the maximum time in milliseconds a request waits for another request
+     * rendering the same <code>@cache</code> block. The request renders the block itself after
+     * the timeout
+     * <p/>
+     * <p>Default value: <code>10000</code></p>
+     */
+    CACHE_FILL_TIMEOUT("cache.fill.timeout", 10000),
+
     /**
      * "codegen.compact.enabled": Enable/disable compact redundant space and lines
      * <p/>
@@ -267,6 +287,61 @@ public enum RythmConfigurationKey {
     
     ENGINE_OUTPUT_JAVA_SOURCE_ENABLED("engine.debug_java_source.enabled", false),
 
+    /**
+     * "engine.output.charset": Set the charset used to encode template output when rendering
+     * to a binary output stream. Static segments of a template are pre-encoded in this charset
+     * when the template class is generated
+     * <p/>
+     * <p>Default value: <code>UTF-8</code></p>
+     */
+    ENGINE_OUTPUT_CHARSET("engine.output.charset", "UTF-8"),
+
+    /**
+     * "engine.output.buffer.size": Set the size of the per render buffer used to collect
+     * output before it is written to the output stream (in bytes) or writer (in chars)
+     * <p/>
+     * <p>Default value: <code>8192</code></p>
+     */
+    ENGINE_OUTPUT_BUFFER_SIZE("engine.output.buffer.size", 8192),
+
+    /**
+     * "engine.output.flush_policy.impl": Set the {@link org.rythmengine.extension.IFlushPolicy flush policy}
+     * which decides when the output buffered during rendering to a writer or an output stream is flushed
+     * to the underlying destination
+     * <p/>
+     * <p>Default value: {@link org.rythmengine.extension.IFlushPolicy#DEFAULT_POLICY}</p>
+     */
+    ENGINE_OUTPUT_FLUSH_POLICY_IMPL("engine.output.flush_policy.impl", IFlushPolicy.DEFAULT_POLICY),
+
+    /**
+     * "engine.render.executor.impl": Set the {@link java.util.concurrent.Executor executor} used to run
+     * asynchronous renders started with {@link org.rythmengine.RythmEngine#renderAsync(String, Object...)}
+     * and friends
+     * <p/>
+     * <p>Default value: <code>null</code>, in which case the engine runs each render in a virtual thread if the
+     * JVM supports it, or in a cached pool of daemon threads otherwise</p>
+     */
+    ENGINE_RENDER_EXECUTOR_IMPL("engine.render.executor.impl"),
+
+    /**
+     * "engine.inline_template_cache.size": Set the maximum number of inline template classes, i.e. template
+     * classes compiled from template source passed in as a String, kept by the engine. Once exceeded the least
+     * recently used inline templates are evicted and compiled again on their next use. A value not greater
+     * than zero means no limit
+     * <p/>
+     * <p>Default value: <code>1000</code></p>
+     */
+    ENGINE_INLINE_TEMPLATE_CACHE_SIZE("engine.inline_template_cache.size", 1000),
+
+    /**
+     * "engine.inline_template_cache.memory": Set the maximum amount of memory (in kilobytes) taken by the template
+     * source, java source and byte code of the inline template classes kept by the engine. A value not greater than
+     * zero means no limit
+     * <p/>
+     * <p>Default value: <code>65536</code> (64MB)</p>
+     */
+    ENGINE_INLINE_TEMPLATE_CACHE_MEMORY("engine.inline_template_cache.memory", 65536),
+
     /**
      * "engine.playframework.enabled": A special flag used when Rythm is working with rythm-plugin for Play!Framework. Usually
      * you should not touch this setting.
@@ -0,0 +1,34 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.extension;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * A cache service reading and storing several items at once. Implementing it is optional,
+ * the blocks of a template are read one by one from a cache service which does not
+ */
+public interface IBulkCacheService extends ICacheService {
+
+    /**
+     * Return the items from the cache service by keys. Services backed by a remote
+     * store shall fetch them in one round trip
+     *
+     * @param keys
+     * @return the values associated with the keys found in the cache
+     */
+    Map<String, Serializable> getAll(Collection<String> keys);
+
+    /**
+     * Store the items into the cache service with the same ttl value
+     *
+     * @param items the values by key
+     * @param ttl   time to live of the cached items. See {@link #put(String, java.io.Serializable, int)}
+     */
+    void putAll(Map<String, ? extends Serializable> items, int ttl);
+}
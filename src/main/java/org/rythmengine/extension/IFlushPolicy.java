@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.extension;
+
+/**
+ * When rendering to a writer or an output stream, Rythm collects the output into
+ * an internal chunk buffer. A flush policy decides how large the chunk is and
+ * at which points the chunk shall be pushed to the underlying writer or output
+ * stream <b>and</b> the underlying destination flushed, so that the client could
+ * start receiving a large page before the rendering is finished.
+ * <p/>
+ * <p>User application could configure the policy via
+ * {@link org.rythmengine.conf.RythmConfigurationKey#ENGINE_OUTPUT_FLUSH_POLICY_IMPL "engine.output.flush_policy.impl"}
+ * configuration</p>
+ */
+public interface IFlushPolicy {
+
+    /**
+     * Enumerate the points at which the output sink consults the flush policy
+     */
+    public static enum Point {
+        /**
+         * The chunk buffer reached the {@link #threshold() threshold}
+         */
+        BUFFER,
+        /**
+         * The template executed a <code>@flush()</code> directive
+         */
+        DIRECTIVE,
+        /**
+         * A layout template finished output a section or the layout content
+         */
+        SECTION
+    }
+
+    /**
+     * Return the number of bytes (when rendering to output stream) or chars (when
+     * rendering to writer) the chunk buffer could hold before it is pushed to the
+     * underlying destination. A non-positive value means use the configured
+     * {@link org.rythmengine.conf.RythmConfigurationKey#ENGINE_OUTPUT_BUFFER_SIZE buffer size}
+     *
+     * @return the threshold
+     */
+    int threshold();
+
+    /**
+     * Check whether the underlying destination should be flushed at the point specified
+     *
+     * @param point the flush point
+     * @return <code>true</code> if the output shall be flushed
+     */
+    boolean flushAt(Point point);
+
+    /**
+     * The default implementation of {@link IFlushPolicy}. It always flushes on <code>@flush()</code>
+     * directive, and optionally flushes when the buffer reached the threshold and/or at the end
+     * of a layout section
+     */
+    public static class DefImpl implements IFlushPolicy {
+        private final int threshold;
+        private final boolean flushOnThreshold;
+        private final boolean flushOnSection;
+
+        public DefImpl(int threshold, boolean flushOnThreshold, boolean flushOnSection) {
+            this.threshold = threshold;
+            this.flushOnThreshold = flushOnThreshold;
+            this.flushOnSection = flushOnSection;
+        }
+
+        @Override
+        public int threshold() {
+            return threshold;
+        }
+
+        @Override
+        public boolean flushAt(Point point) {
+            switch (point) {
+                case BUFFER:
+                    return flushOnThreshold;
+                case SECTION:
+                    return flushOnSection;
+                default:
+                    return true;
+            }
+        }
+    }
+
+    /**
+     * The default flush policy: chunks are sized by the configured buffer size and the underlying
+     * destination is flushed only on <code>@flush()</code> directive
+     */
+    public static final IFlushPolicy DEFAULT_POLICY = new DefImpl(0, false, false);
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.extension;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * The client of an out of process cache store, e.g. memcached, shared by the nodes
+ * running the same templates. Used as the second tier of
+ * {@link org.rythmengine.cache.TwoTierCacheService}
+ * <p/>
+ * <p>Implementations may throw a <code>RuntimeException</code> when the store could not
+ * be reached. The caller treats it as a cache miss</p>
+ *
+ * @see org.rythmengine.cache.SpyMemcachedClient
+ */
+public interface IRemoteCacheClient {
+
+    /**
+     * Return an item from the store by key
+     *
+     * @param key
+     * @return the value associated with the key or <code>null</code>
+     */
+    Serializable get(String key);
+
+    /**
+     * Return the items from the store by keys in one round trip
+     *
+     * @param keys
+     * @return the values associated with the keys found in the store
+     */
+    Map<String, Serializable> getAll(Collection<String> keys);
+
+    /**
+     * Send an item to the store by key without waiting for the write. The listener is
+     * notified once the write completes, possibly on a thread of the client
+     *
+     * @param key
+     * @param value
+     * @param ttl      time to live in seconds. If set to zero then the item never expires
+     * @param listener
+     */
+    void set(String key, Serializable value, int ttl, WriteListener listener);
+
+    /**
+     * Remove an item from the store by key. The call returns once the item is removed
+     *
+     * @param key
+     */
+    void delete(String key);
+
+    /**
+     * Remove all items from the store
+     */
+    void flush();
+
+    /**
+     * Connect to the store
+     */
+    void startup();
+
+    /**
+     * Disconnect from the store
+     */
+    void shutdown();
+
+    /**
+     * Notified of the outcome of a {@link #set(String, Serializable, int, WriteListener) write}
+     */
+    interface WriteListener {
+        /**
+         * @param key
+         * @param error the reason the item was not stored, or <code>null</code> once it is
+         *              visible to the other nodes
+         */
+        void onComplete(String key, Throwable error);
+    }
+}
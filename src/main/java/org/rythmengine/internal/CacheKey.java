@@ -19,7 +19,64 @@ import java.util.Locale;
  * To change this template use File | Settings | File Templates.
  */
 public class CacheKey {
-    private CacheKey() {
+    private final String id;
+    private final int hash;
+
+    private CacheKey(String id) {
+        this.id = id;
+        this.hash = null == id ? 0 : id.hashCode();
+    }
+
+    /**
+     * Create the key of an item cached by a template, e.g. by a <code>@cache</code> block.
+     * <p/>
+     * <p>Each argument is encoded with its length, so different arguments never end up with
+     * the same key, e.g. <code>("a-b", "c")</code> and <code>("a", "b-c")</code>. The key is
+     * meant to be created once and shared by the lookup and the store of the cached item</p>
+     * <p/>
+     * <p>Not an API for user application</p>
+     *
+     * @param key  the key identifying the cached block
+     * @param args the argument values the cached content depends on
+     * @return the cache key
+     */
+    public static CacheKey of(String key, Object... args) {
+        if (null == args || args.length == 0) {
+            return new CacheKey(key);
+        }
+        StringBuilder sb = new StringBuilder(key);
+        for (Object arg : args) {
+            if (null == arg) {
+                sb.append("-~");
+            } else {
+                String s = arg.toString();
+                sb.append('-').append(s.length()).append(':').append(s);
+            }
+        }
+        return new CacheKey(sb.toString());
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) return true;
+        if (obj instanceof CacheKey) {
+            CacheKey that = (CacheKey) obj;
+            return hash == that.hash && id.equals(that.id);
+        }
+        return false;
+    }
+
+    /**
+     * @return the key used by the {@link org.rythmengine.extension.ICacheService cache service}
+     */
+    @Override
+    public String toString() {
+        return id;
     }
 
     public static String i18nMsg(ITemplate template, String key, boolean useFormat) {
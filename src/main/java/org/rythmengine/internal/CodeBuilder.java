@@ -40,6 +40,8 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * code Builder
@@ -195,6 +197,8 @@ public class CodeBuilder extends TextBuilder {
 
     private Set<InlineClass> inlineClasses = new CopyOnWriteArraySet<InlineClass>();
     private List<String> staticCodes = new ArrayList<String>();
+    // the keys of @cache blocks known before build, see pBuild()
+    private Set<String> cacheKeys = new LinkedHashSet<String>();
 
     public void setInitCode(String code) {
         if (S.empty(initCode)) {
@@ -268,6 +272,14 @@ public class CodeBuilder extends TextBuilder {
         return parser.getDialect() instanceof SimpleRythm;
     }
 
+    /**
+     * @return the number of passes the template took to parse
+     * @see TemplateParser#parsePasses()
+     */
+    public int parsePasses() {
+        return parser.parsePasses();
+    }
+
     // public because event handler needs this method
     public boolean basicTemplate() {
         return parser.getDialect() instanceof BasicRythm;
@@ -336,6 +348,10 @@ public class CodeBuilder extends TextBuilder {
         this.buildBody = null;
         this.templateDefLang = null;
         this.staticCodes.clear();
+        this.cacheKeys.clear();
+        this.consts.clear();
+        this.constTokens.clear();
+        this.locals.clear();
     }
 
     /**
@@ -361,6 +377,10 @@ public class CodeBuilder extends TextBuilder {
         this.macroStack.clear();
         this.buildBody = null;
         this.staticCodes.clear();
+        this.cacheKeys.clear();
+        this.consts.clear();
+        this.constTokens.clear();
+        this.locals.clear();
     }
 
     public void merge(CodeBuilder codeBuilder) {
@@ -377,9 +397,28 @@ public class CodeBuilder extends TextBuilder {
         this.renderArgs.putAll(codeBuilder.renderArgs);
         this.importLineMap.putAll(codeBuilder.importLineMap);
         this.staticCodes.addAll(codeBuilder.staticCodes);
+        this.cacheKeys.addAll(codeBuilder.cacheKeys);
+        for (Map.Entry<Token.StringToken, String> entry : codeBuilder.consts.entrySet()) {
+            if (!consts.containsKey(entry.getKey())) {
+                consts.put(entry.getKey(), entry.getValue());
+            }
+        }
+        this.constTokens.putAll(codeBuilder.constTokens);
+        this.locals.addAll(codeBuilder.locals);
         renderArgCounter += codeBuilder.renderArgCounter;
     }
 
+    /**
+     * Share the variable name registry with the including code builder, so that
+     * the constant names generated by an included template do not clash with
+     * the names generated by the including template
+     *
+     * @param includingBuilder the code builder of the including template
+     */
+    public void shareVarNames(CodeBuilder includingBuilder) {
+        this.varNames = includingBuilder.varNames;
+    }
+
     public CodeBuilder() {
         super();    //To change body of overridden methods use File | Settings | File Templates.
     }
@@ -506,6 +545,16 @@ public class CodeBuilder extends TextBuilder {
         staticCodes.add(codeSnippet);
     }
 
+    /**
+     * Register the key of a <code>@cache</code> block which depends only on the render args,
+     * so the cached content could be prefetched before the template is built
+     *
+     * @param keyExpr the java expression of the {@link CacheKey}
+     */
+    public void addCacheKey(String keyExpr) {
+        cacheKeys.add(keyExpr);
+    }
+
     public InlineClass defClass(String className, String body) {
         className = className.trim();
         InlineClass clz = new InlineClass(className, body);
@@ -519,6 +568,9 @@ public class CodeBuilder extends TextBuilder {
     public InlineTag defTag(String tagName, String retType, String signature, String body) {
         tagName = tagName.trim();
         InlineTag tag = new InlineTag(tagName, retType, signature, body);
+        if (null != signature) {
+            addLocals(signature);
+        }
         if (inlineTags.contains(tag)) {
             throw new ParseException(engine, templateClass, parser.currentLine(), "inline tag already defined: %s", tagName);
         }
@@ -580,7 +632,8 @@ public class CodeBuilder extends TextBuilder {
             throw new ParseException(engine, templateClass, lineNo, "include for template failed: %s ", include);
         }
         TemplateClass includeTc = includeTmpl.__getTemplateClass(false);
-        includeTc.buildSourceCode(includingClassName());
+        addInline();
+        includeTc.buildSourceCode(this);
         merge(includeTc.codeBuilder);
         templateClass.addIncludeTemplateClass(includeTc);
         return includeTc.codeBuilder.buildBody;
@@ -588,7 +641,7 @@ public class CodeBuilder extends TextBuilder {
     
     public String addInlineInclude(String inlineTemplate, int lineNo) {
         TemplateClass includeTc = new TemplateClass(new StringTemplateResource(inlineTemplate), engine, false);
-        includeTc.buildSourceCode(includingClassName());
+        includeTc.buildSourceCode(this);
         merge(includeTc.codeBuilder);
         return includeTc.codeBuilder.buildBody;
     }
@@ -689,6 +742,30 @@ public class CodeBuilder extends TextBuilder {
         renderArgs.put(name, new RenderArgDeclaration(renderArgCounter++, lineNo, type, name));
     }
 
+    private static final Pattern P_DECLARATION = Pattern.compile("[\\w\\]>.]\\s+([a-zA-Z_$][\\w$]*)\\s*([=;:,)]|$)");
+
+    // the variables and parameters declared by the template, which could shadow render args
+    private Set<String> locals = new HashSet<String>();
+
+    public void addLocal(String name) {
+        locals.add(name.trim());
+    }
+
+    /**
+     * Add the variables and parameters declared in a piece of java code of the template,
+     * e.g. a script block or the parameters of an inline tag
+     */
+    public void addLocals(String code) {
+        Matcher m = P_DECLARATION.matcher(code);
+        while (m.find()) {
+            locals.add(m.group(1));
+        }
+    }
+
+    public boolean isLocal(String name) {
+        return locals.contains(name);
+    }
+
     public synchronized void addRenderArgsIfNotDeclared(int lineNo, String type, String name) {
         if (!renderArgs.containsKey(name)) {
             renderArgs.put(name, new RenderArgDeclaration(renderArgCounter++, lineNo, type, name));
@@ -697,6 +774,20 @@ public class CodeBuilder extends TextBuilder {
 
     private Map<String, List<Token>> macros = new ConcurrentHashMap<String, List<Token>>();
     private Deque<String> macroStack = new ConcurrentLinkedDeque<String>();
+    // the number of includes and macro invocations parsed so far
+    private int inlines;
+
+    /**
+     * Count an include or a macro invocation. Its code goes inline, so it may refer to
+     * the local variables where it is invoked
+     */
+    public void addInline() {
+        inlines++;
+    }
+
+    public int inlines() {
+        return inlines;
+    }
 
     public void pushMacro(String macro) {
         if (macros.containsKey(macro)) {
@@ -980,7 +1071,7 @@ public class CodeBuilder extends TextBuilder {
     
     private void addInferencedRenderArgs() {
         if (renderArgs.isEmpty() && conf.typeInferenceEnabled()) {
-            Map<String, String> tMap = ParamTypeInferencer.getTypeMap();
+            Map<String, String> tMap = null == templateClass ? ParamTypeInferencer.getTypeMap() : templateClass.inferredTypes();
             List<String> ls = new ArrayList<String>(tMap.keySet());
             Collections.sort(ls);
             for (String name : ls) {
@@ -1009,29 +1100,15 @@ public class CodeBuilder extends TextBuilder {
         List<RenderArgDeclaration> renderArgList = new ArrayList<RenderArgDeclaration>(renderArgs.values());
         // comment to fix gh244: Collections.sort(renderArgList);
         
-        // -- output __renderArgName method
+        // -- output the static render arg name and type tables
         pn();
-        boolean first; 
-        ptn("protected java.lang.String __renderArgName(int __pos) {");
-        p2tn("int __p = 0;");
-        if (true) {
-            first = true;
-            for (RenderArgDeclaration arg : renderArgList) {
-                if (first) {
-                    first = false;
-                    p2t("");
-                } else {
-                    p2t("else ");
-                }
-                p("if (__p++ == __pos) return \"").p(arg.name).p("\";").pn();
-            }
-            p2tn("throw new ArrayIndexOutOfBoundsException();");
+        pt("private static final java.lang.String[] __ARG_NAMES = {");
+        for (RenderArgDeclaration arg : renderArgList) {
+            p("\"").p(arg.name).p("\", ");
         }
-        ptn("}");
-
-        // -- output __renderArgTypeMap method
-        pn();
-        ptn("protected java.util.Map<java.lang.String, java.lang.Class> __renderArgTypeMap() {");
+        pn("};");
+        ptn("private static final java.util.Map<java.lang.String, java.lang.Class> __ARG_TYPES;");
+        ptn("static {");
         p2tn("java.util.Map<java.lang.String, java.lang.Class> __m = new java.util.HashMap<String, Class>();");
         for (Map.Entry<String, RenderArgDeclaration> entry : renderArgs.entrySet()) {
             RenderArgDeclaration arg = entry.getValue();
@@ -1061,16 +1138,21 @@ public class CodeBuilder extends TextBuilder {
                     type = "Object";
                 }
                 p2t("__m.put(\"").p(entry.getKey()).p("\", ").p(type).pn(".class);");
-//                int lvl = 0;
-//                if (isArray(type)) {
-//                    int pos = type.lastIndexOf("[");
-//                    type = type.substring(0, pos);
-//                    p2t("__m.put(\"").p(argName).p("__").p(lvl).p("\", ").p(type).pn(".class);");
-//                    //lvl++;
-//                }
             }
         }
-        p2tn("return __m;");
+        p2tn("__ARG_TYPES = java.util.Collections.unmodifiableMap(__m);");
+        ptn("}");
+
+        // -- output __renderArgName method
+        pn();
+        ptn("protected java.lang.String __renderArgName(int __pos) {");
+        p2tn("return __ARG_NAMES[__pos];");
+        ptn("}");
+
+        // -- output __renderArgTypeMap method
+        pn();
+        ptn("protected java.util.Map<java.lang.String, java.lang.Class> __renderArgTypeMap() {");
+        p2tn("return __ARG_TYPES;");
         ptn("}");
 
         // -- output __setRenderArgs method
@@ -1078,7 +1160,6 @@ public class CodeBuilder extends TextBuilder {
         ptn("@SuppressWarnings(\"unchecked\")\n\tpublic TemplateBase __setRenderArgs(java.util.Map<java.lang.String, java.lang.Object> __args) {");
         p2tn("if (null == __args) throw new NullPointerException();\n\t\tif (__args.isEmpty()) return this;");
         p2tn("super.__setRenderArgs(__args);");
-        first = true;
         for (Map.Entry<String, RenderArgDeclaration> entry : renderArgs.entrySet()) {
             RenderArgDeclaration arg = entry.getValue();
             p2t("if (__args.containsKey(\"").p(entry.getKey()).p("\")) this.").p(entry.getKey()).p(" = __get(__args,\"").p(entry.getKey()).p("\",").p(arg.objectType()).pn(".class);");
@@ -1129,42 +1210,49 @@ public class CodeBuilder extends TextBuilder {
             ptn("}");
         }
 
-        // -- output __setRenderArg by name
+        // -- output __setRenderArg by name, dispatched on the name hash
         pn();
         ptn("@SuppressWarnings(\"unchecked\") @Override public TemplateBase __setRenderArg(java.lang.String __name, java.lang.Object __arg) {");
-        if (true) {
-            first = true;
+        if (!renderArgList.isEmpty()) {
+            Map<Integer, List<RenderArgDeclaration>> hashBuckets = new TreeMap<Integer, List<RenderArgDeclaration>>();
             for (RenderArgDeclaration arg : renderArgList) {
-                if (first) {
+                int hash = arg.name.hashCode();
+                List<RenderArgDeclaration> bucket = hashBuckets.get(hash);
+                if (null == bucket) {
+                    bucket = new ArrayList<RenderArgDeclaration>();
+                    hashBuckets.put(hash, bucket);
+                }
+                bucket.add(arg);
+            }
+            p2tn("if (null != __name) switch (__name.hashCode()) {");
+            for (Map.Entry<Integer, List<RenderArgDeclaration>> entry : hashBuckets.entrySet()) {
+                p3t("case ").p(entry.getKey()).p(":");
+                boolean first = true;
+                for (RenderArgDeclaration arg : entry.getValue()) {
+                    p(first ? " " : " else ");
                     first = false;
-                    p2t("");
-                } else {
-                    p2t("else ");
+                    String argName = arg.name;
+                    p("if (\"").p(argName).p("\".equals(__name)) this.").p(argName).p(" = __safeCast(__arg, ").p(arg.objectType()).p(".class);");
                 }
-                String argName = arg.name;
-                p("if (\"").p(argName).p("\".equals(__name)) this.").p(argName).p(" = __safeCast(__arg, ").p(arg.objectType()).pn(".class);");
+                pn(" break;");
             }
+            p2tn("}");
         }
         p2t("super.__setRenderArg(__name, __arg);\n\t\treturn this;\n\t}\n");
 
         // -- output __setRenderArg by position
         pn();
         ptn("@SuppressWarnings(\"unchecked\") public TemplateBase __setRenderArg(int __pos, java.lang.Object __arg) {");
-        p2tn("int __p = 0;");
         if (true) {
-            first = true;
+            int pos = 0;
+            p2tn("switch (__pos) {");
             for (RenderArgDeclaration arg : renderArgList) {
                 if (implicitVarNames.contains(arg.name)) {
                     continue;
                 }
-                if (first) {
-                    first = false;
-                    p2t("");
-                } else {
-                    p2t("else ");
-                }
-                p2t("if (__p++ == __pos) { \n\t\t\tObject v = __arg; \n\t\t\t").p(arg.name).p(" = __safeCast(v, ").p(arg.objectType()).p(".class); \n\t\t\t__renderArgs.put(\"").p(arg.name).p("\", ").p(arg.name).p(");\n\t\t}\n"); 
+                p3t("case ").p(pos++).p(": ").p(arg.name).p(" = __safeCast(__arg, ").p(arg.objectType()).p(".class); __renderArgs.put(\"").p(arg.name).p("\", ").p(arg.name).pn("); break;");
             }
+            p2tn("}");
         }
         // the first argument has a default name "arg"
         p2tn("if(0 == __pos) __setRenderArg(\"arg\", __arg);");
@@ -1227,11 +1315,9 @@ public class CodeBuilder extends TextBuilder {
     public String buildBody = null;
 
     transient Map<Token.StringToken, String> consts = new ConcurrentHashMap<Token.StringToken, String>();
-
-    private RythmEngine.OutputMode outputMode = RythmEngine.outputMode();
+    transient Map<String, Token.StringToken> constTokens = new ConcurrentHashMap<String, Token.StringToken>();
 
     private Token.StringToken addConst(Token.StringToken st) {
-        if (!outputMode.writeOutput()) return st;
         if (consts.containsKey(st)) {
             st.constId = consts.get(st);
             return st;
@@ -1239,6 +1325,7 @@ public class CodeBuilder extends TextBuilder {
             String id = this.newVarName();
             st.constId = id;
             consts.put(st, id);
+            constTokens.put(id, st);
             return st;
         }
     }
@@ -1261,8 +1348,8 @@ public class CodeBuilder extends TextBuilder {
                 curTk = curTk.mergeWith(bk);
             } else if (tb instanceof CompactStateToken) {
                 if (null != curTk && curTk.s().length() > 0) {
-                    curTk = addConst(curTk);
                     curTk.compact();
+                    curTk = addConst(curTk);
                     merged.add(curTk);
                 }
                 curTk = new Token.StringToken("", parser);
@@ -1270,8 +1357,8 @@ public class CodeBuilder extends TextBuilder {
                 tb.build();
             } else {
                 if (null != curTk && curTk.s().length() > 0) {
-                    curTk = addConst(curTk);
                     curTk.compact();
+                    curTk = addConst(curTk);
                     merged.add(curTk);
                 }
                 curTk = new Token.StringToken("", parser);
@@ -1279,8 +1366,8 @@ public class CodeBuilder extends TextBuilder {
             }
         }
         if (null != curTk && curTk.s().length() > 0) {
-            curTk = addConst(curTk);
             curTk.compact();
+            curTk = addConst(curTk);
             merged.add(curTk);
         }
         return merged;
@@ -1323,6 +1410,17 @@ public class CodeBuilder extends TextBuilder {
         pn();
         ptn("public org.rythmengine.utils.TextBuilder build(){");
         p2t("buffer().ensureCapacity(").p(tmpl.length()).p(");").pn();
+        if (cacheKeys.size() > 1) {
+            // fetch all the blocks in one go, which matters when the cache is out of process
+            p2t("__engine().fragmentCache().prefetch(");
+            boolean first = true;
+            for (String key : cacheKeys) {
+                if (!first) p(", ");
+                first = false;
+                p(key);
+            }
+            p(");").pn();
+        }
         StringBuilder sb = new StringBuilder();
         StringBuilder old = buffer();
         __setBuffer(sb);
@@ -1337,34 +1435,21 @@ public class CodeBuilder extends TextBuilder {
         p("\n\t\treturn this;\n\t}\n");
 
         // print out consts
-        for (Token.StringToken st : consts.keySet()) {
-            pConst(st);
+        for (Map.Entry<String, Token.StringToken> entry : constTokens.entrySet()) {
+            pConst(entry.getKey(), entry.getValue());
         }
     }
 
-    private void pConst(Token.StringToken st) {
-        String constId = st.constId;
+    private void pConst(String constId, Token.StringToken st) {
         String s = st.s(), s0;
-        if (st.compactMode()) {
+        if (st.compactOnCreate) {
             s0 = s.replaceAll("(\\r?\\n)+", "\\\\n").replaceAll("\"", "\\\\\"");
         } else {
             s0 = s.replaceAll("(\\r?\\n)", "\\\\n").replaceAll("\"", "\\\\\"");
         }
-        np("private static final org.rythmengine.utils.TextBuilder.StrBuf ").p(constId).p(" = new org.rythmengine.utils.TextBuilder.StrBuf(\"").p(s0);
-        StrBuf sw = new StrBuf(s);
-        if (outputMode == RythmEngine.OutputMode.os) {
-            p("\", new byte[]{");
-            byte[] ba = sw.toBinary();
-            for (int i = 0; i < ba.length; ++i) {
-                p(String.valueOf(ba[i]));
-                if (i < ba.length - 1) p(",");
-            }
-            p("});");
-        } else if (outputMode == RythmEngine.OutputMode.writer) {
-            p("\", null);");
-        } else {
-            throw new AssertionError("should not go here");
-        }
+        String charset = conf.outputCharset().name();
+        np("private static final org.rythmengine.utils.TextBuilder.StrBuf ").p(constId).p(" = org.rythmengine.utils.TextBuilder.StrBuf.encode(\"").p(s0);
+        p("\", \"").p(charset).p("\");");
         p("// line:").pn(st.getLineNo());
     }
 
@@ -41,6 +41,7 @@ public class EventBus implements IEventDispatcher {
 
         @Override
         public void onRender(ITemplate template) {
+            if (listeners.isEmpty()) return;
             for (IRythmListener l : listeners) {
                 try {
                     l.onRender(template);
@@ -52,6 +53,7 @@ public class EventBus implements IEventDispatcher {
 
         @Override
         public void rendered(ITemplate template) {
+            if (listeners.isEmpty()) return;
             for (IRythmListener l : listeners) {
                 try {
                     l.rendered(template);
@@ -63,6 +65,7 @@ public class EventBus implements IEventDispatcher {
 
         @Override
         public void enterInvokeTemplate(TemplateBase caller) {
+            if (listeners.isEmpty()) return;
             for (IRythmListener l : listeners) {
                 try {
                     l.enterInvokeTemplate(caller);
@@ -74,6 +77,7 @@ public class EventBus implements IEventDispatcher {
 
         @Override
         public void exitInvokeTemplate(TemplateBase caller) {
+            if (listeners.isEmpty()) return;
             for (IRythmListener l : listeners) {
                 try {
                     l.exitInvokeTemplate(caller);
@@ -85,6 +89,7 @@ public class EventBus implements IEventDispatcher {
 
         @Override
         public void onInvoke(ITag tag) {
+            if (listeners.isEmpty()) return;
             for (IRythmListener l : listeners) {
                 try {
                     l.onInvoke(tag);
@@ -96,6 +101,7 @@ public class EventBus implements IEventDispatcher {
 
         @Override
         public void invoked(ITag tag) {
+            if (listeners.isEmpty()) return;
             for (IRythmListener l : listeners) {
                 try {
                     l.invoked(tag);
@@ -108,12 +114,47 @@ public class EventBus implements IEventDispatcher {
 
     private final RythmListenerDispatcher renderListener = new RythmListenerDispatcher();
 
+    // updated when render listeners are registered or unregistered
+    private volatile boolean tagHooksLive = false;
+    private volatile boolean renderHooksLive = false;
+
     public final void registerRenderListener(IRythmListener l) {
         renderListener.listeners.add(l);
+        updateHooks();
     }
 
     public final void unregisterRenderListener(IRythmListener l) {
         renderListener.listeners.remove(l);
+        updateHooks();
+    }
+
+    private void updateHooks() {
+        tagHooksLive = !renderListener.listeners.isEmpty();
+        renderHooksLive = tagHooksLive || null != sourceCodeEnhancer;
+    }
+
+    /**
+     * Check if the tag invocation events, i.e. {@link RythmEvents#ENTER_INVOKE_TEMPLATE},
+     * {@link RythmEvents#ON_TAG_INVOCATION}, {@link RythmEvents#TAG_INVOKED} and
+     * {@link RythmEvents#EXIT_INVOKE_TEMPLATE}, have any effect. Returns <code>false</code>
+     * if there is no render listener registered, in which case the engine does not
+     * trigger these events
+     *
+     * @return <code>true</code> if tag invocation events shall be triggered
+     */
+    public boolean tagHooksLive() {
+        return tagHooksLive;
+    }
+
+    /**
+     * Check if the {@link RythmEvents#ON_RENDER} event has any effect. Returns
+     * <code>false</code> if there is neither render listener nor source code enhancer
+     * configured, in which case templates do not trigger the event
+     *
+     * @return <code>true</code> if the <code>ON_RENDER</code> event shall be triggered
+     */
+    public boolean renderHooksLive() {
+        return renderHooksLive;
     }
 
     public EventBus(RythmEngine engine) {
@@ -126,6 +167,7 @@ public class EventBus implements IEventDispatcher {
         if (null != l) {
             registerRenderListener(l);
         }
+        updateHooks();
         registerHandlers();
     }
 
@@ -163,7 +205,7 @@ public class EventBus implements IEventDispatcher {
         m.put(RythmEvents.PARSE_FAILED, new IEventHandler<Void, TemplateClass>() {
             @Override
             public Void handleEvent(RythmEngine engine, TemplateClass tc) {
-                TemplateResourceManager.rollbackTmpBlackList();
+                TemplateResourceManager.rollbackTmpBlackList(tc);
                 return null;
             }
         });
@@ -190,17 +232,10 @@ public class EventBus implements IEventDispatcher {
                 return null;
             }
         });
-        m.put(RythmEvents.COMPILED, new IEventHandler<byte[], byte[]>() {
-            @Override
-            public byte[] handleEvent(RythmEngine engine, byte[] bytes) {
-                TemplateResourceManager.commitTmpBlackList();
-                return bytes;
-            }
-        });
         m.put(RythmEvents.COMPILE_FAILED, new IEventHandler<Void, TemplateClass>() {
             @Override
             public Void handleEvent(RythmEngine engine, TemplateClass tc) {
-                TemplateResourceManager.rollbackTmpBlackList();
+                TemplateResourceManager.rollbackTmpBlackList(tc);
                 return null;
             }
         });
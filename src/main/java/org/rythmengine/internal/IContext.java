@@ -9,6 +9,7 @@ import org.rythmengine.RythmEngine;
 import org.rythmengine.exception.ParseException;
 import org.rythmengine.extension.ICodeType;
 import org.rythmengine.internal.compiler.TemplateClass;
+import org.rythmengine.utils.Escape;
 
 import java.util.Locale;
 
@@ -28,6 +29,14 @@ public interface IContext {
      */
     String getRemain();
 
+    /**
+     * Return the remaining template content as a window on the template
+     * source. Unlike {@link #getRemain()} no copy of the text is made
+     *
+     * @return remaining text to be parsed
+     */
+    CharSequence getRemainSequence();
+
     /**
      * Do have have remain template content to be parsed
      *
@@ -41,6 +50,13 @@ public interface IContext {
      */
     char peek();
 
+    /**
+     * @param i the offset from the cursor
+     * @return the remain character at offset i without moving cursor, or
+     * the null character if the offset is beyond the template end
+     */
+    char peek(int i);
+
     /**
      * @return the first remain character and move the cursor one step
      */
@@ -187,5 +203,17 @@ public interface IContext {
     void pushLocale(Locale locale);
     
     Locale popLocale();
+
+    /**
+     * Return the escape scheme in effect at the current parsing point, or
+     * <code>null</code> if it can only be known at render time
+     *
+     * @return the escape scheme
+     */
+    Escape peekEscape();
+
+    void pushEscape(Escape escape);
+
+    Escape popEscape();
     
 }
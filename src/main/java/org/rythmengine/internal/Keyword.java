@@ -66,6 +66,10 @@ public enum Keyword implements IKeyword {
      * "@finally{}" section per template
      */
     FINALLY,
+    /**
+     * Flush the output rendered so far to the writer or output stream
+     */
+    FLUSH,
     /**
      * Fetch named content from this or sub template
      */
@@ -6,7 +6,6 @@
 package org.rythmengine.internal;
 
 import org.rythmengine.utils.Escape;
-import org.rythmengine.utils.S;
 import org.rythmengine.utils.TextBuilder;
 import org.rythmengine.utils.RawData;
 
@@ -125,24 +124,35 @@ public class TemplateBuilder extends TextBuilder {
             if (null == escape) {
                 escape = __defaultEscape();
             }
-            switch (escape) {
-                case RAW:
-                    return (TemplateBuilder) p(S.raw(o));
-                case HTML:
-                    return (TemplateBuilder) p(S.escapeHtml(o));
-                case JSON:
-                    return (TemplateBuilder) p(S.escapeJson(o));
-                case JS:
-                    return (TemplateBuilder) p(S.escapeJavaScript(o));
-                case CSV:
-                    return (TemplateBuilder) p(S.escapeCsv(o));
-                case XML:
-                    return (TemplateBuilder) p(S.escapeXml(o));
+            if (Escape.RAW == escape) {
+                return (TemplateBuilder) p(o);
             }
+            pe_(o.toString(), escape);
         }
         return this;
     }
 
+    private void pe_(String s, Escape escape) {
+        if (null != __buffer) {
+            __appendEscaped(s, escape);
+        } else if (__caller instanceof TemplateBuilder) {
+            ((TemplateBuilder) __caller).pe_(s, escape);
+        } else {
+            __caller.p(escape.apply(s));
+        }
+    }
+
+    /**
+     * Append the string escaped with the escape scheme specified to the buffer. The
+     * escaped characters are appended directly, no intermediate escaped string is created
+     *
+     * @param s      the string to be escaped
+     * @param escape the escape scheme, never {@link Escape#RAW}
+     */
+    protected void __appendEscaped(String s, Escape escape) {
+        escape.escape(s, __buffer);
+    }
+
     /**
      * See {@link #p(char)}
      */
@@ -17,9 +17,12 @@ import org.rythmengine.internal.parser.build_in.SectionParser;
 import org.rythmengine.logger.ILogger;
 import org.rythmengine.logger.Logger;
 import org.rythmengine.resource.TemplateResourceManager;
+import org.rythmengine.utils.Escape;
 
+import java.nio.CharBuffer;
 import java.util.Deque;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.Locale;
 import java.util.concurrent.ConcurrentLinkedDeque;
 
@@ -32,6 +35,12 @@ public class TemplateParser implements IContext {
     private String template;
     private int totalLines;
     int cursor = 0;
+    // the line number at lineCursor, moved along with cursor by currentLine()
+    private int lineCursor = 0;
+    private int line = 1;
+    // the remain string last copied out, shared by parsers probing the same position
+    private String remain;
+    private int remainCursor = -1;
 
     public TemplateParser(CodeBuilder cb) {
         this.template = cb.template();
@@ -78,7 +87,9 @@ public class TemplateParser implements IContext {
 
     void parse() {
         DialectManager dm = engine.dialectManager();
+        passes = 0;
         while (true) {
+            passes++;
             this.breakStack.clear();
             this.codeTypeStack.clear();
             this.pushCodeType(cb.templateDefLang);
@@ -99,22 +110,38 @@ public class TemplateParser implements IContext {
                     cb.addBuilder(builder);
                 }
                 dm.endParse(this);
+                TemplateResourceManager.holdTmpBlackList(getTemplateClass());
                 break;
             } catch (ExitInstruction e) {
                 dm.endParse(this);
+                TemplateResourceManager.holdTmpBlackList(getTemplateClass());
                 break;
             } catch (RewindableException e) {
                 dm.endParse(this);
+                TemplateResourceManager.rollbackTmpBlackList();
                 if (null != cb.requiredDialect) {
                     throw e;
                 }
             } catch (RuntimeException e) {
                 dm.endParse(this);
+                TemplateResourceManager.rollbackTmpBlackList();
                 throw e;
             }
         }
     }
 
+    private int passes;
+
+    /**
+     * Return the number of passes the last parse took. It is more than
+     * one if the template has been parsed again with a more capable dialect
+     *
+     * @return the number of parse passes
+     */
+    public int parsePasses() {
+        return passes;
+    }
+
     @Override
     public TemplateClass getTemplateClass() {
         return cb.getTemplateClass();
@@ -137,7 +164,17 @@ public class TemplateParser implements IContext {
 
     @Override
     public String getRemain() {
-        return cursor < template.length() ? template.substring(cursor) : "";
+        if (cursor >= template.length()) return "";
+        if (remainCursor != cursor) {
+            remain = template.substring(cursor);
+            remainCursor = cursor;
+        }
+        return remain;
+    }
+
+    @Override
+    public CharSequence getRemainSequence() {
+        return cursor < template.length() ? CharBuffer.wrap(template, cursor, template.length()) : "";
     }
 
     @Override
@@ -156,6 +193,13 @@ public class TemplateParser implements IContext {
         return template.charAt(cursor);
     }
 
+    @Override
+    public char peek(int i) {
+        int pos = cursor + i;
+        if (pos < 0 || pos >= template.length()) return '\u0000';
+        return template.charAt(pos);
+    }
+
     @Override
     public char pop() {
         if (!hasRemain()) throw new ArrayIndexOutOfBoundsException();
@@ -210,8 +254,14 @@ public class TemplateParser implements IContext {
     public int currentLine() {
         if (null == template) return -1; // for testing purpose only
         if (cursor >= template.length()) return totalLines;
-        //return template.substring(0, cursor).split("(\\r\\n|\\n|\\r)").length;
-        return StringUtils.countMatches(template.substring(0, cursor), "\n") + 1;
+        // count the line breaks between the last queried position and the cursor only
+        for (; lineCursor < cursor; ++lineCursor) {
+            if ('\n' == template.charAt(lineCursor)) line++;
+        }
+        for (; lineCursor > cursor; --lineCursor) {
+            if ('\n' == template.charAt(lineCursor - 1)) line--;
+        }
+        return line;
     }
 
     @Override
@@ -394,6 +444,24 @@ public class TemplateParser implements IContext {
         return localeStack.isEmpty() ? null : localeStack.pop();
     }
 
+    // null elements stand for escape schemes unknown until render time
+    private Deque<Escape> escapeStack = new LinkedList<Escape>();
+
+    @Override
+    public Escape peekEscape() {
+        return escapeStack.isEmpty() ? null : escapeStack.peek();
+    }
+
+    @Override
+    public void pushEscape(Escape escape) {
+        escapeStack.push(escape);
+    }
+
+    @Override
+    public Escape popEscape() {
+        return escapeStack.isEmpty() ? null : escapeStack.pop();
+    }
+
     public void shutdown() {
         dialect = null;
     }
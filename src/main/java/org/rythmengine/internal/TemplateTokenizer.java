@@ -49,8 +49,7 @@ public class TemplateTokenizer implements Iterable<Token> {
                 TemplateParser p = (TemplateParser) ctx();
                 if (lastCursor < p.cursor) return null;
                 //logger.warn("fail-through parser reached. is there anything wrong in your template? line: %s", ctx.currentLine());
-                String oneStep = p.getRemain().substring(0, 1);
-                p.step(1);
+                String oneStep = String.valueOf(p.pop());
                 return new Token.StringToken(oneStep, p);
             }
         });
@@ -11,11 +11,15 @@ import org.rythmengine.conf.RythmConfiguration;
 import org.rythmengine.internal.parser.build_in.BlockToken;
 import org.rythmengine.logger.ILogger;
 import org.rythmengine.logger.Logger;
+import org.rythmengine.utils.Escape;
 import org.rythmengine.utils.S;
 import org.rythmengine.utils.TextBuilder;
 import com.stevesoft.pat.Regex;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.Stack;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -29,13 +33,21 @@ public class Token extends TextBuilder {
 
     public static class StringToken extends Token {
         public String constId = null;
+        /*
+         * The compact mode in effect when the token is created. The context
+         * state moves on with @compact/@nocompact blocks, while the token
+         * might be keyed or printed as a constant long after the block closed
+         */
+        protected final boolean compactOnCreate;
 
         public StringToken(String s, IContext ctx) {
             super(s, ctx);
+            compactOnCreate = compactMode();
         }
 
         public StringToken(String s, IContext context, boolean disableCompactMode) {
             super(s, context, disableCompactMode);
+            compactOnCreate = compactMode();
         }
 
         public StringToken mergeWith(BlockToken.LiteralBlock block) {
@@ -76,9 +88,7 @@ public class Token extends TextBuilder {
 
         @Override
         protected void output() {
-            RythmEngine.OutputMode mode = RythmEngine.outputMode();
-            if (mode.writeOutput()) {
-                if (null == constId) return;
+            if (null != constId) {
                 p("p(").p(constId).p(");");
                 pline();
             } else {
@@ -88,7 +98,7 @@ public class Token extends TextBuilder {
 
         @Override
         public int hashCode() {
-            return s.hashCode() + (compactMode() ? 1 : -1);
+            return s.hashCode() + (compactOnCreate ? 1 : -1);
         }
 
         @Override
@@ -96,7 +106,7 @@ public class Token extends TextBuilder {
             if (obj == this) return true;
             if (obj instanceof StringToken) {
                 StringToken st = (StringToken) obj;
-                return st.compactMode() == compactMode() && st.s.equals(s);
+                return st.compactOnCreate == compactOnCreate && st.s.equals(s);
             }
             return false;
         }
@@ -125,6 +135,10 @@ public class Token extends TextBuilder {
     private RythmEngine engine = null;
     private Iterable<IJavaExtension> javaExtensions = null;
     private boolean transformEnabled = true;
+    /*
+     * The escape scheme known at parsing time, null if it is only known at render time
+     */
+    private Escape escape = null;
     /*
      * Indicate whether token parse is good
      */
@@ -165,6 +179,7 @@ public class Token extends TextBuilder {
         this.disableCompactMode = disableCompactMode;
         RythmConfiguration conf = engine.conf();
         this.transformEnabled = conf.transformEnabled();
+        if (null != context) this.escape = context.peekEscape();
     }
     
     public boolean test(String line) {
@@ -269,10 +284,41 @@ public class Token extends TextBuilder {
     protected final void outputExpression(boolean needsPrint) {
         if (S.isEmpty(s)) return;
         String s = processExtensions(false);
-        if (needsPrint) p("\ntry{pe(").p(s).p(");} catch (RuntimeException e) {__handleTemplateExecutionException(e);} ");
-        else p("\ntry{").p(s).p(";} catch (RuntimeException e) {__handleTemplateExecutionException(e);} ");
+        if (!needsPrint) {
+            p("\ntry{").p(s).p(";} catch (RuntimeException e) {__handleTemplateExecutionException(e);} ");
+        } else if (isSafeRenderArg(s)) {
+            // the value cannot contain characters to be escaped
+            p("\ntry{p(").p(s).p(");} catch (RuntimeException e) {__handleTemplateExecutionException(e);} ");
+        } else if (null != escape) {
+            p("\ntry{pe(").p(s).p(", org.rythmengine.utils.Escape.").p(escape.name()).p(");} catch (RuntimeException e) {__handleTemplateExecutionException(e);} ");
+        } else {
+            p("\ntry{pe(").p(s).p(");} catch (RuntimeException e) {__handleTemplateExecutionException(e);} ");
+        }
         pline();
     }
+
+    private static final Set<String> SAFE_TYPES = new HashSet<String>(Arrays.asList(
+            "int", "long", "short", "byte", "float", "double", "boolean",
+            "Integer", "Long", "Short", "Byte", "Float", "Double", "Boolean",
+            "java.lang.Integer", "java.lang.Long", "java.lang.Short", "java.lang.Byte",
+            "java.lang.Float", "java.lang.Double", "java.lang.Boolean",
+            "RawData", "org.rythmengine.utils.RawData"
+    ));
+
+    private static final Pattern P_VAR_NAME = Pattern.compile("[a-zA-Z_$][\\w$]*");
+
+    /*
+     * Check if the expression is a render arg declared with a type whose string form
+     * never needs to be escaped. The render arg could be shadowed by a local variable
+     * or a parameter, so it is not taken as safe if the template declares one of the
+     * same name
+     */
+    private boolean isSafeRenderArg(String s) {
+        if (dynaExp || null == ctx || !P_VAR_NAME.matcher(s).matches()) return false;
+        CodeBuilder cb = ctx.getCodeBuilder();
+        CodeBuilder.RenderArgDeclaration rad = cb.renderArgs.get(s);
+        return null != rad && SAFE_TYPES.contains(rad.type) && !cb.isLocal(s);
+    }
     
     private boolean dynaExp = false;
     
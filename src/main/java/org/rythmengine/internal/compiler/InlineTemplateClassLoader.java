@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.internal.compiler;
+
+import java.security.ProtectionDomain;
+
+/**
+ * Define the class of an inline template, and the inner classes of it, apart from
+ * the classes kept by the {@link TemplateClassLoader template class loader}. Once an
+ * inline template is evicted from the {@link TemplateClassManager template class manager}
+ * nothing refers to this loader any more, and the template classes can be unloaded.
+ * <p/>
+ * <p>Like the template class loader, this loader is parallel capable and defines each
+ * class while holding the loading lock of the class name</p>
+ */
+final class InlineTemplateClassLoader extends ClassLoader {
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    private final TemplateClassLoader templateClassLoader;
+
+    private final TemplateClass root;
+
+    private final String innerClassPrefix;
+
+    InlineTemplateClassLoader(TemplateClassLoader parent, TemplateClass root) {
+        super(parent);
+        this.templateClassLoader = parent;
+        this.root = root;
+        this.innerClassPrefix = root.name() + "$";
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        boolean inner = name.startsWith(innerClassPrefix);
+        if (!inner && !name.equals(root.name())) {
+            return super.loadClass(name, resolve);
+        }
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> c = findLoadedClass(name);
+            if (null == c && inner) {
+                // the template might have been evicted already, which
+                // does not stop a render in progress from loading its inner classes
+                TemplateClass tc = root.embeddedClass(name);
+                if (null != tc && null != tc.enhancedByteCode) {
+                    c = define(name, tc.enhancedByteCode, templateClassLoader.protectionDomain);
+                }
+            }
+            if (null == c) {
+                c = templateClassLoader.loadTemplateClass(name);
+                if (null == c) {
+                    throw new ClassNotFoundException(name);
+                }
+            }
+            if (resolve) {
+                resolveClass(c);
+            }
+            return c;
+        }
+    }
+
+    Class<?> define(String name, byte[] bytes, ProtectionDomain protectionDomain) {
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> c = findLoadedClass(name);
+            if (null == c) {
+                c = defineClass(name, bytes, 0, bytes.length, protectionDomain);
+            }
+            return c;
+        }
+    }
+}
@@ -7,13 +7,14 @@ package org.rythmengine.internal.compiler;
 
 import java.io.File;
 import java.lang.reflect.Modifier;
-import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -33,6 +34,7 @@ import org.rythmengine.logger.ILogger;
 import org.rythmengine.logger.Logger;
 import org.rythmengine.resource.ITemplateResource;
 import org.rythmengine.resource.StringTemplateResource;
+import org.rythmengine.resource.TemplateResourceManager;
 import org.rythmengine.template.ITemplate;
 import org.rythmengine.template.TagBase;
 import org.rythmengine.template.TemplateBase;
@@ -61,7 +63,29 @@ public class TemplateClass {
     private boolean inner = false;
     private RythmEngine engine = null;
     private boolean enhancing = false;
-    private transient List<TemplateClass> embeddedClasses = new ArrayList<TemplateClass>();
+    private transient List<TemplateClass> embeddedClasses = new CopyOnWriteArrayList<TemplateClass>();
+    /**
+     * The class loader of an isolated inline template, see {@link #isolatedClassLoader(TemplateClassLoader)}
+     */
+    private transient InlineTemplateClassLoader isolatedClassLoader;
+    /**
+     * Set when this inline template is kept in the inline template cache of {@link TemplateClassManager}
+     */
+    boolean inlineCached;
+    /**
+     * Set when this inline template is used, and cleared by the inline template cache
+     * to find out the templates not used recently
+     */
+    volatile boolean inlineReferenced;
+    /**
+     * Set while this inline template is being parsed, compiled and loaded, during which
+     * it is not evicted from the inline template cache
+     */
+    volatile boolean inlineLoading;
+    /**
+     * The footprint of this inline template counted by the inline template cache
+     */
+    long inlineFootprint;
 
     /**
      * The fully qualified class name
@@ -122,6 +146,14 @@ public class TemplateClass {
      */
     public CodeBuilder codeBuilder;
 
+    private int parsePasses;
+
+    /**
+     * The render arg types inferred when this template class is named, so that
+     * the template can be parsed by any thread
+     */
+    private Map<String, String> inferredTypes = Collections.emptyMap();
+
     /**
      * The ITemplate instance
      */
@@ -403,10 +435,16 @@ public class TemplateClass {
                 engine.registerTemplate(tmpl);
                 //engine.registerTemplate(getFullName(true), tmpl);
                 templateInstance = tmpl;
+                if (inlineCached) {
+                    inlineLoading = false;
+                    engine.classes().inlineTemplateLoaded(this);
+                }
             } catch (RythmException e) {
                 throw e;
             } catch (Exception e) {
                 throw new RuntimeException("Error load template instance for " + getKey(), e);
+            } finally {
+                inlineLoading = false;
             }
         }
         if (!engine.isProdMode()) {
@@ -421,6 +459,26 @@ public class TemplateClass {
         return templateInstance;
     }
 
+    /**
+     * Is the template instance created, or is this class found not a valid template
+     *
+     * @return true if this class does not need to be {@link #load(RythmEngine) loaded}
+     */
+    public boolean isLoaded() {
+        return null != templateInstance || !isValid;
+    }
+
+    /**
+     * Compile and load the java class if it is not loaded yet, and create the
+     * template instance which render time templates are cloned from
+     * <p>Not an API for user application</p>
+     *
+     * @param engine the rythm engine
+     */
+    public void load(RythmEngine engine) {
+        templateInstance_(engine);
+    }
+
     public ITemplate asTemplate(ICodeType type, Locale locale, RythmEngine engine) {
         if (null == name || engine.isDevMode()) {
             refresh(false);
@@ -448,13 +506,30 @@ public class TemplateClass {
     }
 
     public void buildSourceCode(String includingClassName) {
+        buildSourceCode(includingClassName, null);
+    }
+
+    /**
+     * Build the source code of this template class to be included by another template
+     *
+     * @param includingBuilder the code builder of the including template
+     */
+    public void buildSourceCode(CodeBuilder includingBuilder) {
+        buildSourceCode(includingBuilder.includingClassName(), includingBuilder);
+    }
+
+    private void buildSourceCode(String includingClassName, CodeBuilder includingBuilder) {
         long start = System.currentTimeMillis();
         importPaths = new CopyOnWriteArraySet<String>();
         // Possible bug here?
         if (null != codeBuilder) codeBuilder.clear();
         codeBuilder = new CodeBuilder(templateResource.asTemplateContent(), name(), tagName, this, engine, dialect);
         codeBuilder.includingCName = includingClassName;
+        if (null != includingBuilder) {
+            codeBuilder.shareVarNames(includingBuilder);
+        }
         codeBuilder.build();
+        parsePasses = codeBuilder.parsePasses();
         extendedTemplateClass = codeBuilder.getExtendedTemplateClass();
         javaSource = codeBuilder.toString();
         if (logger.isTraceEnabled()) {
@@ -476,6 +551,7 @@ public class TemplateClass {
             codeBuilder = dialect.createCodeBuilder(templateResource.asTemplateContent(), name, tagName, this, engine);
         }
         codeBuilder.build();
+        parsePasses = codeBuilder.parsePasses();
         extendedTemplateClass = codeBuilder.getExtendedTemplateClass();
         javaSource = codeBuilder.toString();
         engine();
@@ -485,6 +561,31 @@ public class TemplateClass {
         if (logger.isTraceEnabled()) {
             logger.trace("%s ms to generate java source for template: %s", System.currentTimeMillis() - start, getKey());
         }
+        if (parsePasses > 1 && logger.isDebugEnabled()) {
+            logger.debug("template parsed %s times to find a capable dialect: %s", parsePasses, getKey());
+        }
+    }
+
+    /**
+     * Return the number of passes the parser took to generate the java source
+     * of this template. Each pass after the first one parsed the whole template
+     * again with a more capable dialect
+     *
+     * @return the number of parse passes, or <code>0</code> if the source has
+     * not been generated yet
+     */
+    public int parsePasses() {
+        return parsePasses;
+    }
+
+    /**
+     * Return the render arg types inferred from the params of the render call
+     * this template class is loaded for
+     *
+     * @return the inferred types by render arg name
+     */
+    public Map<String, String> inferredTypes() {
+        return inferredTypes;
     }
 
     public void addImportPath(String path) {
@@ -527,6 +628,7 @@ public class TemplateClass {
             name = canonicalClassName(templateResource.getSuggestedClassName()) + CN_SUFFIX;
             if (engine.conf().typeInferenceEnabled()) {
                 name += ParamTypeInferencer.uuid();
+                inferredTypes = new HashMap<String, String>(ParamTypeInferencer.getTypeMap());
             }
             ITemplateResourceLoader loader = engine().resourceManager().whichLoader(templateResource);
             if (null != loader) {
@@ -611,9 +713,14 @@ public class TemplateClass {
 
         // now start generate source and compile source to byte code
         reset();
-        buildSourceCode();
-        engine().classCache().cacheTemplateClassSource(this); // cache source code for debugging purpose
+        try {
+            buildSourceCode();
+        } catch (RuntimeException e) {
+            inlineLoading = false;
+            throw e;
+        }
         if (!codeBuilder.isRythmTemplate()) {
+            TemplateResourceManager.rollbackTmpBlackList(this);
             isValid = false;
             engine().classes().remove(this);
             return false;
@@ -633,6 +740,72 @@ public class TemplateClass {
         return compiled && javaClass != null;
     }
 
+    /**
+     * Is this template class defined in its own class loader. Inline templates are, unless they
+     * extend another template, in which case they need package access to the parent template class
+     *
+     * @return true if the class is defined in its own class loader
+     */
+    public boolean isolated() {
+        return !inner && isStringTemplate() && null == extendedTemplateClass;
+    }
+
+    /*
+     * Called by the template class loader when this class is about to be defined
+     */
+    synchronized InlineTemplateClassLoader isolatedClassLoader(TemplateClassLoader parent) {
+        if (inner) {
+            return null == root ? null : root.isolatedClassLoader(parent);
+        }
+        if (null == name || !isolated()) {
+            return null;
+        }
+        InlineTemplateClassLoader loader = isolatedClassLoader;
+        if (null == loader || loader.getParent() != parent) {
+            loader = new InlineTemplateClassLoader(parent, this);
+            isolatedClassLoader = loader;
+        }
+        return loader;
+    }
+
+    TemplateClass embeddedClass(String name) {
+        for (TemplateClass tc : embeddedClasses) {
+            if (name.equals(tc.name)) {
+                return tc;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Estimate the memory taken by the template source, java source and byte code of this class
+     * and the embedded classes
+     *
+     * @return the memory footprint in bytes
+     */
+    public long footprint() {
+        long n = 0;
+        if (!inner && isStringTemplate()) {
+            n += 2L * getKey().length();
+        }
+        String src = javaSource;
+        if (null != src) {
+            n += 2L * src.length();
+        }
+        byte[] bc = javaByteCode;
+        if (null != bc) {
+            n += bc.length;
+        }
+        byte[] ebc = enhancedByteCode;
+        if (null != ebc && ebc != bc) {
+            n += ebc.length;
+        }
+        for (TemplateClass tc : embeddedClasses) {
+            n += tc.footprint();
+        }
+        return n;
+    }
+
     /**
      * Remove all java source/ byte code and cache
      */
@@ -649,6 +822,7 @@ public class TemplateClass {
         engine().classCache().deleteCache(this);
         engine().invalidate(this);
         javaClass = null;
+        isolatedClassLoader = null;
     }
 
     @SuppressWarnings("unused")
@@ -670,7 +844,7 @@ public class TemplateClass {
             if (null == javaSource) {
                 throw new IllegalStateException("Cannot find java source when compiling " + getKey());
             }
-            engine().classes().compiler.compile(new String[]{name});
+            engine().classes().compiler().compile(new String[]{name});
             if (logger.isTraceEnabled()) {
                 logger.trace("%sms to compile template: %s", System.currentTimeMillis() - start, getKey());
             }
@@ -715,7 +889,7 @@ public class TemplateClass {
         root.embeddedClasses.add(this);
     }
 
-    public byte[] enhance() {
+    public synchronized byte[] enhance() {
         if (enhancing) {
             throw new IllegalStateException("reenter enhance() call");
         }
@@ -781,6 +955,7 @@ public class TemplateClass {
         javaByteCode = code;
         //enhancedByteCode = code;
         compiled = true;
+        TemplateResourceManager.commitTmpBlackList(this);
         RythmEvents.COMPILED.trigger(engine(), code);
         enhance();
         //compiled(code, false);
@@ -9,22 +9,76 @@ import org.rythmengine.Rythm;
 import org.rythmengine.RythmEngine;
 import org.rythmengine.conf.RythmConfiguration;
 import org.rythmengine.conf.RythmConfigurationKey;
+import org.rythmengine.internal.RythmThreadFactory;
 import org.rythmengine.logger.ILogger;
 import org.rythmengine.logger.Logger;
 import org.rythmengine.utils.TextBuilder;
 
 import java.io.*;
 import java.net.URI;
-import java.security.MessageDigest;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Used to speed up compilation time
+ * Used to speed up compilation time. The java source and bytecode of all template classes
+ * are kept in one archive file, which is memory mapped when it is read. The entries changed
+ * are appended to the archive asynchronously, and the archive is compacted the next time it
+ * is opened once the entries replaced take most of it
  */
 public class TemplateClassCache {
     private static final ILogger logger = Logger.get(TemplateClassCache.class);
 
+    private static final String ARCHIVE_FILE_NAME = "rythm-classes.idx";
+    private static final int MAGIC = 0x52594341;
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 8;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * The delay in milliseconds to write the archive after it is changed, so that
+     * the templates compiled in a row are written at once
+     */
+    private static final long FLUSH_DELAY = 1000;
+
+    /**
+     * Engines in the same JVM might append to the same archive. The file lock taken
+     * to append keeps other processes out, but fails when held by this JVM
+     */
+    private static final Object APPEND_LOCK = new Object();
+
+    private volatile ConcurrentMap<String, ByteBuffer> entries;
+    // names of the entries changed since the last flush
+    private final Set<String> dirty = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    // the archive file is not read by this engine and is replaced by the next flush
+    private boolean reset;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ScheduledThreadPoolExecutor writer = new ScheduledThreadPoolExecutor(1, new WriterThreadFactory());
+
+    private static class WriterThreadFactory extends RythmThreadFactory {
+        private WriterThreadFactory() {
+            super("rythm-class-cache");
+        }
+    }
+
     private final RythmEngine engine;
     private final RythmConfiguration conf;
     private final Rythm.Mode mode;
@@ -34,6 +88,7 @@ public class TemplateClassCache {
         this.engine = engine;
         this.conf = engine.conf();
         this.mode = engine.mode();
+        this.writer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
     }
 
     private boolean readEnabled() {
@@ -41,7 +96,7 @@ public class TemplateClassCache {
     }
     
     private boolean writeEnabled() {
-        return (mode.isDev() || !conf.disableFileWrite() || conf.precompileMode()) && !RythmEngine.insideSandbox();
+        return (mode.isDev() || !conf.disableFileWrite() || conf.precompileMode()) && !RythmEngine.insideSandbox() && null != getArchiveFile();
     }
 
     /**
@@ -51,13 +106,10 @@ public class TemplateClassCache {
      */
     public void deleteCache(TemplateClass tc) {
         if (!writeEnabled()) return;
-        try {
-            File f = getCacheFile(tc);
-            if (f.exists() && !f.delete()) {
-                f.deleteOnExit();
-            }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        String name = tc.name0();
+        if (null != entries().remove(name)) {
+            dirty.add(name);
+            scheduleFlush();
         }
     }
 
@@ -70,29 +122,18 @@ public class TemplateClassCache {
         if (!readEnabled()) {
             return;
         }
-        InputStream is = null;
+        ByteBuffer entry = entries().get(tc.name0());
+        if (null == entry) {
+            return;
+        }
         try {
-            File f = getCacheFile(tc);
-            if (!f.exists() || !f.canRead()) return;
-            is = new BufferedInputStream(new FileInputStream(f));
-
-            // --- check hash
-            int offset = 0;
-            int read;
-            StringBuilder hash = new StringBuilder();
-            while ((read = is.read()) != 0) {
-                if (read == -1) {
-                    logger.error("Failed to read cache file for template class: %s", tc);
-                    return;
-                }
-                hash.append((char) read);
-                offset++;
-            }
+            ByteBuffer buf = entry.duplicate();
 
-            //check hash only in non precompiled mode
+            // --- check hash only in non precompiled mode
+            long hash = buf.getLong();
             if (!conf.loadPrecompiled()) {
-                String curHash = hash(tc);
-                if (!curHash.equals(hash.toString())) {
+                long curHash = hash(tc);
+                if (curHash != hash) {
                     if (logger.isTraceEnabled()) {
                         logger.trace("Bytecode too old (%s != %s)", hash, curHash);
                     }
@@ -101,146 +142,468 @@ public class TemplateClassCache {
             }
 
             // --- load java source
-            read = -1;
-            StringBuilder source = new StringBuilder();
-            while ((read = is.read()) != 0) {
-                source.append((char) read);
-                offset++;
-            }
-            if (source.length() != 0) {
-                String s = source.toString();
-                String[] sa = s.split("__INCLUDED_TAG_TYPES__");
-                tc.javaSource = sa[0];
-                s = sa[1];
-                sa = s.split("__INCULDED_TEMPLATE_CLASS_NAME_LIST__");
-                tc.deserializeIncludeTagTypes(sa[0]);
-                s = sa[1];
-                sa = s.split("__IMPORT_PATH_LIST__");
-                tc.setIncludeTemplateClassNames(sa[0]);
-                if (sa.length > 1) {
-                    s = sa[1];
-                    sa = s.split(";");
-                    Set<String> importPaths = new CopyOnWriteArraySet<String>();
-                    for (String path : sa) {
-                        if ("java.lang".equals(path)) continue;
-                        importPaths.add(path);
-                    }
-                    tc.replaceImportPath(importPaths);
+            String javaSource = readString(buf);
+            if (null != javaSource) {
+                tc.javaSource = javaSource;
+                tc.deserializeIncludeTagTypes(readString(buf));
+                tc.setIncludeTemplateClassNames(readString(buf));
+                Set<String> importPaths = new CopyOnWriteArraySet<String>();
+                for (String path : readString(buf).split(";")) {
+                    if (path.isEmpty() || "java.lang".equals(path)) continue;
+                    importPaths.add(path);
                 }
+                tc.replaceImportPath(importPaths);
             } // else it must be an inner class
 
             // --- load byte code
-            byte[] byteCode = new byte[(int) f.length() - (offset + 2)];
-            is.read(byteCode);
+            byte[] byteCode = new byte[buf.getInt()];
+            buf.get(byteCode);
             tc.loadCachedByteCode(byteCode);
-
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }finally {
-            if(is != null)
-                try {
-                    is.close();
-                } catch (IOException e) {
-                    logger.error(e.getMessage(), e);
-                }
-        }
-    }
-
-    public void cacheTemplateClassSource(TemplateClass tc) {
-        if (!writeEnabled()) {
-            return;
-        }
-        try {
-            File f = getCacheSourceFile(tc);
-            OutputStream os = new BufferedOutputStream(new FileOutputStream(f));
-            os.write(tc.javaSource.getBytes("utf-8"));
-            os.close();
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        } catch (BufferUnderflowException e) {
+            logger.error("Failed to read cache entry for template class: %s", tc);
         }
     }
 
     public void cacheTemplateClass(TemplateClass tc) {
-        if (!writeEnabled()) {
+        if (!writeEnabled() || null == tc.enhancedByteCode) {
             return;
         }
-        String hash = hash(tc);
         try {
-            File f = getCacheFile(tc);
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            DataOutputStream os = new DataOutputStream(bos);
             // --- write hash value
-            OutputStream os = new BufferedOutputStream(new FileOutputStream(f));
-            os.write(hash.getBytes("utf-8"));
+            os.writeLong(hash(tc));
 
             // --- cache java source
-            os.write(0);
+            writeString(os, tc.javaSource);
             if (null != tc.javaSource) {
+                writeString(os, tc.serializeIncludeTagTypes());
+                writeString(os, tc.refreshIncludeTemplateClassNames());
                 TextBuilder tb = new TextBuilder();
-                tb.p(tc.javaSource);
-                tb.p("__INCLUDED_TAG_TYPES__").p(tc.serializeIncludeTagTypes());
-                tb.p("__INCULDED_TEMPLATE_CLASS_NAME_LIST__").p(tc.refreshIncludeTemplateClassNames())
-                        .p("__IMPORT_PATH_LIST__");
-                if (tc.importPaths == null) {
-                    tc.importPaths = new CopyOnWriteArraySet<String>();
-                }
-                if (tc.importPaths.isEmpty()) {
-                    tc.importPaths.add("java.lang");
-                }
-                boolean first = true;
-                for (String s : tc.importPaths) {
-                    if (!first) {
-                        tb.p(";");
-                    } else {
-                        first = false;
+                if (tc.importPaths != null) {
+                    boolean first = true;
+                    for (String s : tc.importPaths) {
+                        if (!first) {
+                            tb.p(";");
+                        } else {
+                            first = false;
+                        }
+                        tb.p(s);
                     }
-                    tb.p(s);
                 }
-                os.write(tb.toString().getBytes("utf-8"));
+                writeString(os, tb.toString());
             } // else the tc is an inner class thus we don't have javaSource at all
 
             // --- cache byte code
-            os.write(0);
-            //if (null != tc.enhancedByteCode) {
+            os.writeInt(tc.enhancedByteCode.length);
             os.write(tc.enhancedByteCode);
-
             os.close();
-        } catch (Exception e) {
+            String name = tc.name0();
+            entries().put(name, ByteBuffer.wrap(bos.toByteArray()));
+            dirty.add(name);
+        } catch (IOException e) {
             throw new RuntimeException(e);
         }
+        scheduleFlush();
     }
 
     /**
-     * Build a hash of the source code.
-     * To efficiently track source code modifications.
+     * Write the pending changes to the archive and stop the writer
+     */
+    public void shutdown() {
+        writer.shutdown();
+        if (flushScheduled.get()) {
+            flush();
+        }
+    }
+
+    private static void writeString(DataOutputStream os, String s) throws IOException {
+        if (null == s) {
+            os.writeInt(-1);
+            return;
+        }
+        byte[] ba = s.getBytes(UTF_8);
+        os.writeInt(ba.length);
+        os.write(ba);
+    }
+
+    private static String readString(ByteBuffer buf) {
+        int len = buf.getInt();
+        if (len < 0) {
+            return null;
+        }
+        byte[] ba = new byte[len];
+        buf.get(ba);
+        return new String(ba, UTF_8);
+    }
+
+    /**
+     * Return the archive entries by template class name. The archive is mapped the first time
+     * it is needed and the entries are slices of the mapping until they are replaced. When the
+     * cache is not read, the archive is replaced by the template classes cached by this engine
+     */
+    private ConcurrentMap<String, ByteBuffer> entries() {
+        ConcurrentMap<String, ByteBuffer> m = entries;
+        if (null == m) {
+            synchronized (this) {
+                m = entries;
+                if (null == m) {
+                    m = new ConcurrentHashMap<String, ByteBuffer>();
+                    File f = getArchiveFile();
+                    if (readEnabled()) {
+                        try {
+                            if (null == f) {
+                                m.putAll(readClasspathArchive());
+                            } else if (f.canRead()) {
+                                reset = !read(f, m);
+                            }
+                        } catch (Exception e) {
+                            logger.warn(e, "Failed to read template class archive: %s", null == f ? ARCHIVE_FILE_NAME : f);
+                            m.clear();
+                            reset = true;
+                        }
+                    } else {
+                        reset = null != f && f.exists();
+                    }
+                    entries = m;
+                }
+            }
+        }
+        return m;
+    }
+
+    /**
+     * Map the archive file and read its records. The archive is compacted before it is mapped
+     * when less than half of it is live or it ends with an incomplete record, as a file
+     * mapped cannot be replaced on some platforms
+     *
+     * @return false if the file is not an archive of the current format
+     */
+    private boolean read(File f, Map<String, ByteBuffer> m) throws IOException {
+        long[] scan = scan(f);
+        if (null == scan) {
+            return false;
+        }
+        long valid = scan[0], live = scan[1], size = f.length();
+        if (writeEnabled() && (valid < size || live * 2 < valid)) {
+            Map<String, ByteBuffer> compacted = new TreeMap<String, ByteBuffer>();
+            ByteBuffer archive = ByteBuffer.wrap(Files.readAllBytes(f.toPath()));
+            ((Buffer) archive).position(HEADER_SIZE);
+            records(archive, compacted);
+            try {
+                replace(f, records(compacted));
+                size = f.length();
+            } catch (IOException e) {
+                // e.g. mapped by another engine, compact it next time
+                logger.debug("Failed to compact template class archive %s: %s", f, e);
+            }
+        }
+        records(map(f, HEADER_SIZE, size - HEADER_SIZE), m);
+        return true;
+    }
+
+    /**
+     * Read the header of each record of the archive file
+     *
+     * @return the length of the complete records and the length of the live ones, both including
+     * the header of the archive, or <code>null</code> if the file is not an archive of the current format
+     */
+    private static long[] scan(File f) throws IOException {
+        DataInputStream is = new DataInputStream(new BufferedInputStream(new FileInputStream(f)));
+        try {
+            if (is.readInt() != MAGIC || is.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            Map<String, Integer> records = new HashMap<String, Integer>();
+            long valid = HEADER_SIZE;
+            try {
+                while (true) {
+                    byte[] name = new byte[is.readUnsignedShort()];
+                    is.readFully(name);
+                    int len = is.readInt();
+                    for (int n = Math.max(len, 0); n > 0; ) {
+                        int skipped = is.skipBytes(n);
+                        if (skipped <= 0) {
+                            throw new EOFException();
+                        }
+                        n -= skipped;
+                    }
+                    int recordLen = 6 + name.length + Math.max(len, 0);
+                    valid += recordLen;
+                    if (len < 0) {
+                        records.remove(new String(name, UTF_8));
+                    } else {
+                        records.put(new String(name, UTF_8), recordLen);
+                    }
+                }
+            } catch (EOFException e) {
+                // the end of the archive, or of its last complete record
+            }
+            long live = HEADER_SIZE;
+            for (int recordLen : records.values()) {
+                live += recordLen;
+            }
+            return new long[]{valid, live};
+        } catch (EOFException e) {
+            // shorter than the header
+            return null;
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * Map a region of the archive file
+     */
+    private static ByteBuffer map(File f, long position, long size) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(f, "r");
+        try {
+            return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, position, size);
+        } finally {
+            // the mapping stays valid after the file is closed
+            raf.close();
+        }
+    }
+
+    /**
+     * Read the archive precompiled into the classpath, when no
+     * {@link RythmConfigurationKey#HOME_PRECOMPILED precompiled dir} is set
+     */
+    private Map<String, ByteBuffer> readClasspathArchive() throws IOException {
+        InputStream is = engine.classLoader().getResourceAsStream(ARCHIVE_FILE_NAME);
+        if (null == is) {
+            return Collections.emptyMap();
+        }
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = is.read(buf)) != -1) {
+                bos.write(buf, 0, n);
+            }
+            Map<String, ByteBuffer> m = new HashMap<String, ByteBuffer>();
+            ByteBuffer archive = ByteBuffer.wrap(bos.toByteArray());
+            if (archive.remaining() >= HEADER_SIZE && archive.getInt() == MAGIC && archive.getInt() == FORMAT_VERSION) {
+                records(archive, m);
+            }
+            return m;
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * Read the records of the archive into the entries, a record replacing the entry of the
+     * same name read before. A record is the name of a template class, the length of its
+     * entry or -1 when the entry is removed, and the entry. An incomplete record at the end
+     * of the archive is ignored
+     */
+    private static void records(ByteBuffer archive, Map<String, ByteBuffer> m) {
+        while (archive.remaining() >= 6) {
+            byte[] name = new byte[archive.getShort() & 0xFFFF];
+            if (archive.remaining() < name.length + 4) {
+                return;
+            }
+            archive.get(name);
+            int len = archive.getInt();
+            if (len < 0) {
+                m.remove(new String(name, UTF_8));
+                continue;
+            }
+            if (archive.remaining() < len) {
+                return;
+            }
+            // through Buffer, as ByteBuffer only overrides limit and position since Java 9
+            ByteBuffer entry = archive.slice();
+            ((Buffer) entry).limit(len);
+            ((Buffer) archive).position(archive.position() + len);
+            m.put(new String(name, UTF_8), entry);
+        }
+    }
+
+    /**
+     * Write the records of the entries, a <code>null</code> entry being written as removed
+     */
+    private static byte[] records(Map<String, ByteBuffer> entries) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream os = new DataOutputStream(bos);
+        for (Map.Entry<String, ByteBuffer> e : entries.entrySet()) {
+            byte[] name = e.getKey().getBytes(UTF_8);
+            os.writeShort(name.length);
+            os.write(name);
+            ByteBuffer entry = e.getValue();
+            if (null == entry) {
+                os.writeInt(-1);
+                continue;
+            }
+            ByteBuffer buf = entry.duplicate();
+            os.writeInt(buf.remaining());
+            if (buf.hasArray()) {
+                os.write(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+            } else {
+                byte[] ba = new byte[buf.remaining()];
+                buf.get(ba);
+                os.write(ba);
+            }
+        }
+        os.close();
+        return bos.toByteArray();
+    }
+
+    private static byte[] header() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(HEADER_SIZE);
+        DataOutputStream os = new DataOutputStream(bos);
+        os.writeInt(MAGIC);
+        os.writeInt(FORMAT_VERSION);
+        os.close();
+        return bos.toByteArray();
+    }
+
+    /**
+     * Append the records to the archive file, which is created if it does not exist
+     *
+     * @return the position the records are written at
+     */
+    private static long append(File f, byte[] records) throws IOException {
+        synchronized (APPEND_LOCK) {
+            RandomAccessFile raf = new RandomAccessFile(f, "rw");
+            try {
+                FileChannel channel = raf.getChannel();
+                FileLock lock = channel.lock();
+                try {
+                    long position = channel.size();
+                    if (0 == position) {
+                        write(channel, header(), 0);
+                        position = HEADER_SIZE;
+                    }
+                    write(channel, records, position);
+                    return position;
+                } finally {
+                    lock.release();
+                }
+            } finally {
+                raf.close();
+            }
+        }
+    }
+
+    private static void write(FileChannel channel, byte[] ba, long position) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(ba);
+        while (buf.hasRemaining()) {
+            position += channel.write(buf, position);
+        }
+    }
+
+    /**
+     * Replace the archive file by a new one holding the records. The file replaced must not
+     * be mapped by this engine
+     *
+     * @return the position the records are written at
+     */
+    private static long replace(File f, byte[] records) throws IOException {
+        File tmp = new File(f.getPath() + ".tmp");
+        try {
+            OutputStream os = new FileOutputStream(tmp);
+            try {
+                os.write(header());
+                os.write(records);
+            } finally {
+                os.close();
+            }
+            Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (tmp.exists() && !tmp.delete()) {
+                tmp.deleteOnExit();
+            }
+            throw e;
+        }
+        return HEADER_SIZE;
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                writer.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush();
+                    }
+                }, FLUSH_DELAY, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // shutting down, the pending changes are written by shutdown()
+            }
+        }
+    }
+
+    /**
+     * Append the entries changed to the archive, or replace the archive if it is not read by
+     * this engine, and swap the entries written for slices of the new mapping
      */
-    String hash(TemplateClass tc) {
+    private synchronized void flush() {
+        flushScheduled.set(false);
+        ConcurrentMap<String, ByteBuffer> m = entries();
+        Map<String, ByteBuffer> written = new TreeMap<String, ByteBuffer>();
+        if (reset) {
+            written.putAll(m);
+            dirty.clear();
+        } else {
+            for (Iterator<String> itr = dirty.iterator(); itr.hasNext(); ) {
+                String name = itr.next();
+                itr.remove();
+                written.put(name, m.get(name));
+            }
+            if (written.isEmpty()) {
+                return;
+            }
+        }
+        File f = getArchiveFile();
         try {
-            //Object enhancer = engine.conf().byteCodeEnhancer();
-            MessageDigest messageDigest = MessageDigest.getInstance("MD5");
-            messageDigest.reset();
-            messageDigest.update((engine.version() + tc.getTemplateSource(true)).getBytes("utf-8"));
-            byte[] digest = messageDigest.digest();
-            StringBuilder builder = new StringBuilder();
-            for (int i = 0; i < digest.length; ++i) {
-                int value = digest[i];
-                if (value < 0) {
-                    value += 256;
+            byte[] records = records(written);
+            long position = reset ? replace(f, records) : append(f, records);
+            reset = false;
+            Map<String, ByteBuffer> mapped = new HashMap<String, ByteBuffer>();
+            records(map(f, position, records.length), mapped);
+            for (Map.Entry<String, ByteBuffer> e : written.entrySet()) {
+                ByteBuffer entry = mapped.get(e.getKey());
+                if (null != entry) {
+                    m.replace(e.getKey(), e.getValue(), entry);
                 }
-                builder.append(Integer.toHexString(value));
             }
-            return builder.toString();
         } catch (Exception e) {
-            throw new RuntimeException(e);
+            logger.warn(e, "Failed to write template class archive: %s", f);
+            if (!reset) {
+                // written by the next flush
+                dirty.addAll(written.keySet());
+            }
         }
     }
 
-    String cacheFileName(TemplateClass tc, String suffix) {
-        return tc.name0() + suffix;
+    /**
+     * Build a hash of the source code.
+     * To efficiently track source code modifications.
+     */
+    long hash(TemplateClass tc) {
+        // 64 bit FNV-1a
+        long h = 0xcbf29ce484222325L;
+        String s = engine.version();
+        for (int i = 0, n = s.length(); i < n; ++i) {
+            h = (h ^ s.charAt(i)) * 0x100000001b3L;
+        }
+        s = tc.getTemplateSource(true);
+        for (int i = 0, n = s.length(); i < n; ++i) {
+            h = (h ^ s.charAt(i)) * 0x100000001b3L;
+        }
+        return h;
     }
 
     private File getCacheFile(String fileName) {
         RythmConfiguration conf = engine.conf();
         if (conf.loadPrecompiled() || conf.precompileMode()) {
             URI uri = conf.get(RythmConfigurationKey.HOME_PRECOMPILED);
+            if (null == uri) {
+                // precompiled into the classpath
+                return null;
+            }
             File precompileDir = new File(uri);
             return new File(precompileDir, fileName);
         } else {
@@ -250,16 +613,10 @@ public class TemplateClassCache {
     }
 
     /**
-     * Retrieve the real file that will be used as cache.
+     * Retrieve the archive file that will be used as cache.
      */
-    File getCacheFile(TemplateClass tc) {
-        String id = cacheFileName(tc, ".rythm");
-        return getCacheFile(id);
-    }
-
-    File getCacheSourceFile(TemplateClass tc) {
-        String id = cacheFileName(tc, ".java");
-        return getCacheFile(id);
+    File getArchiveFile() {
+        return getCacheFile(ARCHIVE_FILE_NAME);
     }
 
 }
@@ -37,6 +37,10 @@ import java.util.regex.Pattern;
  */
 public class TemplateClassLoader extends ClassLoader {
 
+    static {
+        registerAsParallelCapable();
+    }
+
     private static final ILogger logger = Logger.get(TemplateClass.class);
 
     public static class ClassStateHashCreator {
@@ -208,62 +212,57 @@ public class TemplateClassLoader extends ClassLoader {
         sandboxPassword.set(password);
     }
 
+    /*
+     * Names looked up through this class loader which turned out not to be template classes
+     */
+    private final Set<String> nonTemplateClasses = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /*
+     * Template class names always end with (or contain for inner classes) the suffix, any
+     * other class is loaded by the parent class loader
+     */
+    private boolean mayBeTemplateClass(String name) {
+        return name.contains(TemplateClass.CN_SUFFIX) && !nonTemplateClasses.contains(name);
+    }
+
     @Override
-    protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
-        if (name.contains("UrlResolver")) {
-            logger.info("loading UrlResovler...");
-        }
-        // init secure context for sandbox
-//        SecurityManager sm;
-//        RythmSecurityManager rsm = null;
-//        String pass = null;
-        try {
-            if (Rythm.insideSandbox()) {
-                if (conf.restrictedClasses().contains(name)) {
-                    throw new ClassNotFoundException("Access to class " + name + " is restricted in sandbox mode");
-                }
-//            sm = System.getSecurityManager();
-//            if (null != sm && sm instanceof RythmSecurityManager) {
-//                rsm = (RythmSecurityManager) sm;
-//                pass = sandboxPassword.get();
-//            }
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (Rythm.insideSandbox()) {
+            if (conf.restrictedClasses().contains(name)) {
+                throw new ClassNotFoundException("Access to class " + name + " is restricted in sandbox mode");
             }
+        }
 
-            TemplateClass tc = engine.classes().clsNameIdx.get(name);
-            if (null == tc) {
-                // it's not a template class, let's try to find already loaded one
-                Class<?> c = findLoadedClass(name);
-                if (c != null) {
-                    return c;
-                }
+        TemplateClass tc = engine.classes().clsNameIdx.get(name);
+        if (null == tc) {
+            if (!mayBeTemplateClass(name)) {
+                return super.loadClass(name, resolve);
+            }
+        } else if (engine.isProdMode() && tc.isDefinable()) {
+            // already loaded, there is no change to check in prod mode
+            Class<?> c = tc.javaClass;
+            if (null != c) {
+                return c;
             }
+        }
 
-            // First check if it's an application Class
-            Class<?> TemplateClass = loadTemplateClass(name);
-            if (TemplateClass != null) {
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> c = loadTemplateClass(name);
+            if (null != c) {
                 if (resolve) {
-                    resolveClass(TemplateClass);
+                    resolveClass(c);
                 }
-                return TemplateClass;
+                return c;
+            }
+            if (null == tc) {
+                nonTemplateClasses.add(name);
             }
-
-            // Delegate to the classic classloader
-            //boolean unlockSM = /*engine.isDevMode() && */null != rsm;
-            // release sandbox password if running inside sandbox in order to load 
-            // application classes when running is dev mode
-//            if (unlockSM) {
-//                rsm.unlock(pass);
-//            }
-            return super.loadClass(name, resolve);
-        } finally {
-//            if (unlockSM) {
-//                rsm.lock(pass);
-//            }
         }
+        return super.loadClass(name, resolve);
     }
 
     @SuppressWarnings("unchecked")
-    private Class<?> loadTemplateClass(String name) {
+    Class<?> loadTemplateClass(String name) {
         Class<?> maybeAlreadyLoaded = findLoadedClass(name);
         if (maybeAlreadyLoaded != null) {
             return maybeAlreadyLoaded;
@@ -282,7 +281,7 @@ public class TemplateClassLoader extends ClassLoader {
             }
             if (bc != null) {
                 //templateClass.enhancedByteCode = bc;
-                templateClass.javaClass = (Class<ITemplate>) defineClass(templateClass.name(), templateClass.enhancedByteCode, 0, templateClass.enhancedByteCode.length, protectionDomain);
+                templateClass.javaClass = (Class<ITemplate>) defineTemplateClass(templateClass, templateClass.enhancedByteCode);
                 resolveClass(templateClass.javaClass);
                 if (!templateClass.isClass()) {
                     templateClass.javaPackage = templateClass.javaClass.getPackage();
@@ -295,7 +294,7 @@ public class TemplateClassLoader extends ClassLoader {
 
             if (templateClass.javaByteCode != null || templateClass.compile() != null) {
                 templateClass.enhance();
-                templateClass.javaClass = (Class<ITemplate>) defineClass(templateClass.name(), templateClass.enhancedByteCode, 0, templateClass.enhancedByteCode.length, protectionDomain);
+                templateClass.javaClass = (Class<ITemplate>) defineTemplateClass(templateClass, templateClass.enhancedByteCode);
                 resolveClass(templateClass.javaClass);
                 if (!templateClass.isClass()) {
                     templateClass.javaPackage = templateClass.javaClass.getPackage();
@@ -341,13 +340,25 @@ public class TemplateClassLoader extends ClassLoader {
                         throw new RuntimeException("Cannot find bytecode cache for inner class: " + name);
                     }
                 }
-                tc.javaClass = (Class<ITemplate>) defineClass(tc.name(), bc, 0, bc.length, protectionDomain);
+                tc.javaClass = (Class<ITemplate>) defineTemplateClass(tc, bc);
                 return tc.javaClass;
             }
         }
         return null;
     }
 
+    /*
+     * Inline templates are defined in their own class loader, so that the classes could be
+     * unloaded once the template is evicted. See TemplateClass.isolated()
+     */
+    private Class<?> defineTemplateClass(TemplateClass templateClass, byte[] bc) {
+        InlineTemplateClassLoader loader = templateClass.isolatedClassLoader(this);
+        if (null != loader) {
+            return loader.define(templateClass.name(), bc, protectionDomain);
+        }
+        return defineClass(templateClass.name(), bc, 0, bc.length, protectionDomain);
+    }
+
     private String getPackageName(String name) {
         int dot = name.lastIndexOf('.');
         return dot > -1 ? name.substring(0, dot) : "";
@@ -374,14 +385,14 @@ public class TemplateClassLoader extends ClassLoader {
 
     private boolean typeNotFound(String name) {
         if (null == notFoundTypes) {
-            notFoundTypes = engine.classes().compiler.notFoundTypes;
+            notFoundTypes = engine.classes().notFoundTypes;
         }
         return notFoundTypes.contains(name);
     }
 
     private void setTypeNotFound(String name) {
         if (null == notFoundTypes) {
-            notFoundTypes = engine.classes().compiler.notFoundTypes;
+            notFoundTypes = engine.classes().notFoundTypes;
         }
         if (engine.isProdMode()) {
             notFoundTypes.add(name);
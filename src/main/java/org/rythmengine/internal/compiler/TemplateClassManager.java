@@ -11,12 +11,23 @@ import org.rythmengine.logger.Logger;
 import org.rythmengine.resource.ClasspathTemplateResource;
 import org.rythmengine.resource.ITemplateResource;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created by IntelliJ IDEA.
@@ -33,22 +44,72 @@ public class TemplateClassManager {
     public RythmEngine engine = null;
 
     /**
-     * Reference to the eclipse compiler.
+     * Reference to the eclipse compiler, created when the first template class is compiled
+     * so that the compiler is not needed when all template classes are loaded precompiled
      */
-    TemplateCompiler compiler = null;
+    private volatile TemplateCompiler compiler = null;
+
+    /**
+     * The types the compiler and the template class loader failed to find
+     */
+    final Set<String> notFoundTypes = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
     /**
      * Index template class with class name
      */
-    public Map<String, TemplateClass> clsNameIdx = new ConcurrentHashMap<String, TemplateClass>();
+    public ConcurrentMap<String, TemplateClass> clsNameIdx = new ConcurrentHashMap<String, TemplateClass>();
     /**
      * Index template class with inline template content or template file name
      */
-    public Map<Object, TemplateClass> tmplIdx = new HashMap<Object, TemplateClass>();
+    public ConcurrentMap<Object, TemplateClass> tmplIdx = new ConcurrentHashMap<Object, TemplateClass>();
+
+    /**
+     * Template classes being loaded, see {@link #getOrLoad(Object, java.util.concurrent.Callable)}
+     */
+    private final ConcurrentMap<Object, Loading> loadingIdx = new ConcurrentHashMap<Object, Loading>();
+
+    /*
+     * A template class load, run by the thread which registered it
+     */
+    private static class Loading extends FutureTask<TemplateClass> {
+        private final Thread owner = Thread.currentThread();
+
+        Loading(Callable<TemplateClass> loader) {
+            super(loader);
+        }
+    }
+
+    /**
+     * Inline templates kept by the engine, bounded by
+     * {@link org.rythmengine.conf.RythmConfigurationKey#ENGINE_INLINE_TEMPLATE_CACHE_SIZE} and
+     * {@link org.rythmengine.conf.RythmConfigurationKey#ENGINE_INLINE_TEMPLATE_CACHE_MEMORY}.
+     * The queue is scanned in the clock order: a template used since the last scan is moved to the
+     * tail, the others are evicted, which approximates LRU without any locking on template lookup
+     */
+    private final Deque<TemplateClass> inlineTemplates = new ArrayDeque<TemplateClass>();
+    /*
+     * The sum of the footprints counted for the inline templates, guarded by inlineTemplates
+     */
+    private long inlineMemory;
+    private final AtomicLong inlineLoads = new AtomicLong();
+    private final AtomicLong inlineEvictions = new AtomicLong();
 
     public TemplateClassManager(RythmEngine engine) {
         if (null == engine) throw new NullPointerException();
         this.engine = engine;
-        this.compiler = new TemplateCompiler(this);
+    }
+
+    TemplateCompiler compiler() {
+        TemplateCompiler c = compiler;
+        if (null == c) {
+            synchronized (this) {
+                c = compiler;
+                if (null == c) {
+                    c = new TemplateCompiler(this);
+                    compiler = c;
+                }
+            }
+        }
+        return c;
     }
 
     /**
@@ -56,7 +117,15 @@ public class TemplateClassManager {
      */
     public void clear() {
         clsNameIdx = new ConcurrentHashMap<String, TemplateClass>();
-        tmplIdx = new HashMap<Object, TemplateClass>();
+        tmplIdx = new ConcurrentHashMap<Object, TemplateClass>();
+        synchronized (inlineTemplates) {
+            for (TemplateClass tc : inlineTemplates) {
+                tc.inlineCached = false;
+                tc.inlineFootprint = 0;
+            }
+            inlineTemplates.clear();
+            inlineMemory = 0;
+        }
     }
 
     /**
@@ -81,7 +150,13 @@ public class TemplateClassManager {
     }
     
     public TemplateClass getByTemplate(Object name, boolean checkResource) {
+        if (null == name) {
+            return null;
+        }
         TemplateClass tc = tmplIdx.get(name);
+        if (null != tc && tc.inlineCached && !tc.inlineReferenced) {
+            tc.inlineReferenced = true;
+        }
         if (checkResource && null == tc) {
             // try to see if resourceLoader has some kind of name transform
             ITemplateResource r = engine.resourceManager().getResource(name.toString());
@@ -98,6 +173,59 @@ public class TemplateClassManager {
         return getByTemplate(name, true);
     }
 
+    /**
+     * Load a template class which is not found in the index, or not loaded yet. When several
+     * threads load the template class of the same key at the same time, only one of them runs
+     * the loader, the others wait for it and get the same template class, or the same exception
+     * if it failed. As the key might have been loaded after the caller missed it, the loader
+     * is supposed to check the index again before creating a new template class
+     * <p/>
+     * <p>A loader asking for the key it is loading, e.g. a template invoking itself while it is
+     * compiled, fails with an <code>IllegalStateException</code> instead of waiting for itself</p>
+     *
+     * @param key    the key the caller failed to find the loaded template class with
+     * @param loader load the template class
+     * @return the template class
+     */
+    public TemplateClass getOrLoad(Object key, Callable<TemplateClass> loader) {
+        Loading task = new Loading(loader);
+        Loading loading = loadingIdx.putIfAbsent(key, task);
+        if (null != loading && loading.owner == task.owner) {
+            throw new IllegalStateException("template is referenced while being loaded: " + key);
+        }
+        if (null == loading) {
+            loading = task;
+            try {
+                task.run();
+            } finally {
+                loadingIdx.remove(key, task);
+            }
+        }
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return loading.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new RuntimeException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     private void checkUpdate(TemplateClass tc) {
         if (null == tc || engine.isProdMode()) {
             return;
@@ -140,6 +268,161 @@ public class TemplateClassManager {
                     tmplIdx.put(key2, templateClass);
                 }
             }
+            if (templateClass.isStringTemplate()) {
+                addInlineTemplate(templateClass);
+            }
+        }
+    }
+
+    private void addInlineTemplate(TemplateClass templateClass) {
+        long footprint = templateClass.footprint();
+        synchronized (inlineTemplates) {
+            if (templateClass.inlineCached) {
+                return;
+            }
+            templateClass.inlineCached = true;
+            templateClass.inlineReferenced = true;
+            templateClass.inlineLoading = true;
+            templateClass.inlineFootprint = footprint;
+            inlineMemory += footprint;
+            inlineTemplates.add(templateClass);
+        }
+        inlineLoads.incrementAndGet();
+        trimInlineTemplates();
+    }
+
+    /**
+     * Count the footprint of an inline template once its java source is generated and compiled,
+     * as it is added to the cache before
+     *
+     * @param templateClass the template class loaded
+     */
+    void inlineTemplateLoaded(TemplateClass templateClass) {
+        long footprint = templateClass.footprint();
+        synchronized (inlineTemplates) {
+            if (!templateClass.inlineCached) {
+                return;
+            }
+            inlineMemory += footprint - templateClass.inlineFootprint;
+            templateClass.inlineFootprint = footprint;
+        }
+        trimInlineTemplates();
+    }
+
+    private void trimInlineTemplates() {
+        int maxSize = engine.conf().inlineTemplateCacheSize();
+        long maxMemory = engine.conf().inlineTemplateCacheMemory();
+        List<TemplateClass> evicted = new ArrayList<TemplateClass>();
+        synchronized (inlineTemplates) {
+            // every template gets at most one more round once its referenced flag is cleared
+            int scan = 2 * inlineTemplates.size();
+            while (scan-- > 0 && ((maxSize > 0 && inlineTemplates.size() > maxSize) || (maxMemory > 0 && inlineMemory > maxMemory))) {
+                TemplateClass tc = inlineTemplates.poll();
+                if (tc.inlineLoading || tc.inlineReferenced) {
+                    tc.inlineReferenced = false;
+                    inlineTemplates.add(tc);
+                    continue;
+                }
+                inlineMemory -= tc.inlineFootprint;
+                tc.inlineFootprint = 0;
+                tc.inlineCached = false;
+                evicted.add(tc);
+            }
+        }
+        for (TemplateClass tc : evicted) {
+            evict(tc);
+        }
+    }
+
+    private void evict(TemplateClass templateClass) {
+        if (logger.isTraceEnabled()) {
+            logger.trace("evict inline template class: %s", templateClass.name());
+        }
+        inlineEvictions.incrementAndGet();
+        String name = templateClass.name();
+        if (null != name) {
+            for (TemplateClass tc : getEmbeddedClasses(name)) {
+                clsNameIdx.remove(tc.name());
+            }
+            clsNameIdx.remove(name, templateClass);
+        }
+        tmplIdx.remove(templateClass.getKey(), templateClass);
+        engine.unregisterTemplateClass(templateClass);
+    }
+
+    /**
+     * Compile the template classes in batches run by the executor, see
+     * {@link TemplateCompiler#compile(java.util.Collection, java.util.concurrent.ExecutorService)}
+     *
+     * @param classes  the template classes to compile
+     * @param executor the executor to compile the batches
+     */
+    public void compile(Collection<TemplateClass> classes, ExecutorService executor) {
+        compiler().compile(classes, executor);
+    }
+
+    /**
+     * Return the statistics of the inline template cache
+     *
+     * @return the inline template cache stats
+     */
+    public InlineTemplateStats inlineTemplateStats() {
+        int size;
+        long memory;
+        synchronized (inlineTemplates) {
+            size = inlineTemplates.size();
+            memory = inlineMemory;
+        }
+        return new InlineTemplateStats(size, memory, inlineLoads.get(), inlineEvictions.get());
+    }
+
+    /**
+     * A snapshot of the inline template cache statistics
+     */
+    public static class InlineTemplateStats {
+        private final int size;
+        private final long memory;
+        private final long loadCount;
+        private final long evictionCount;
+
+        InlineTemplateStats(int size, long memory, long loadCount, long evictionCount) {
+            this.size = size;
+            this.memory = memory;
+            this.loadCount = loadCount;
+            this.evictionCount = evictionCount;
+        }
+
+        /**
+         * @return the number of inline templates in the cache
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @return the estimated memory taken by the inline templates in the cache, in bytes
+         */
+        public long memory() {
+            return memory;
+        }
+
+        /**
+         * @return the number of inline templates added to the cache, each of which was parsed and compiled
+         */
+        public long loadCount() {
+            return loadCount;
+        }
+
+        /**
+         * @return the number of inline templates evicted from the cache
+         */
+        public long evictionCount() {
+            return evictionCount;
+        }
+
+        @Override
+        public String toString() {
+            return "InlineTemplateStats{size=" + size + ", memory=" + memory + ", loadCount=" + loadCount + ", evictionCount=" + evictionCount + "}";
         }
     }
 
@@ -160,6 +443,24 @@ public class TemplateClassManager {
         }
         for (String cn : embedded) clsNameIdx.remove(cn);
         if (null != templateClass && null != templateClass.templateResource) tmplIdx.remove(templateClass.getKey());
+        if (templateClass.inlineCached) {
+            removeInlineTemplate(templateClass);
+        }
+    }
+
+    private void removeInlineTemplate(TemplateClass templateClass) {
+        synchronized (inlineTemplates) {
+            Iterator<TemplateClass> itr = inlineTemplates.iterator();
+            while (itr.hasNext()) {
+                if (itr.next() == templateClass) {
+                    itr.remove();
+                    inlineMemory -= templateClass.inlineFootprint;
+                    templateClass.inlineFootprint = 0;
+                    templateClass.inlineCached = false;
+                    return;
+                }
+            }
+        }
     }
 
     public void remove(String name) {
@@ -22,6 +22,11 @@ import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
 import org.eclipse.jdt.internal.compiler.problem.DefaultProblemFactory;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Created by IntelliJ IDEA.
@@ -38,7 +43,7 @@ public class TemplateCompiler {
         return classCache.engine;
     }
 
-    Map<String, Boolean> packagesCache = new HashMap<String, Boolean>();
+    Map<String, Boolean> packagesCache = new ConcurrentHashMap<String, Boolean>();
 
     // -- util methods
     private String getTemplateByClassName(String className) {
@@ -138,7 +143,92 @@ public class TemplateCompiler {
         }
     }
 
-    final Set<String> notFoundTypes = new HashSet<String>();
+    /**
+     * The least number of template classes worth a compiler invocation of its own
+     */
+    private static final int MIN_BATCH_SIZE = 16;
+
+    /**
+     * Compile the template classes in a few large batches, each of which is compiled by one
+     * compiler invocation. The batches are compiled in parallel by the executor. The classes
+     * of a batch that failed are compiled one by one to report the template at fault
+     *
+     * @param classes  the template classes to compile
+     * @param executor the executor to compile the batches
+     */
+    public void compile(Collection<TemplateClass> classes, ExecutorService executor) {
+        List<TemplateClass> l = new ArrayList<TemplateClass>();
+        for (TemplateClass tc : classes) {
+            if (null == tc.javaByteCode && null == tc.enhancedByteCode && null != tc.javaSource) {
+                l.add(tc);
+            }
+        }
+        int n = l.size();
+        if (0 == n) {
+            return;
+        }
+        int batches = Math.min(Runtime.getRuntime().availableProcessors(), (n + MIN_BATCH_SIZE - 1) / MIN_BATCH_SIZE);
+        List<Future<Void>> futures = new ArrayList<Future<Void>>(batches);
+        for (int i = 0; i < batches; ++i) {
+            final List<TemplateClass> batch = l.subList(i * n / batches, (i + 1) * n / batches);
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    compileBatch(batch);
+                    return null;
+                }
+            }));
+        }
+        RuntimeException failure = null;
+        boolean interrupted = false;
+        for (Future<Void> f : futures) {
+            while (true) {
+                try {
+                    f.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (null == failure) {
+                        failure = cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+                    }
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (null != failure) {
+            throw failure;
+        }
+    }
+
+    private void compileBatch(List<TemplateClass> batch) {
+        String[] classNames = new String[batch.size()];
+        for (int i = 0; i < classNames.length; ++i) {
+            classNames[i] = batch.get(i).name();
+        }
+        try {
+            compile(classNames);
+        } catch (CompileException.CompilerException e) {
+            CompileException failure = null;
+            for (TemplateClass tc : batch) {
+                try {
+                    tc.compile();
+                } catch (CompileException ce) {
+                    if (null == failure) {
+                        failure = ce;
+                    }
+                }
+            }
+            if (null != failure) {
+                throw failure;
+            }
+        }
+    }
+
 
     /**
      * Please compile this className
@@ -180,7 +270,7 @@ public class TemplateCompiler {
             }
 
             private NameEnvironmentAnswer findStandType(final String name) throws ClassFormatException {
-                if (notFoundTypes.contains(name)) {
+                if (classCache.notFoundTypes.contains(name)) {
                     return null;
                 }
                 RythmEngine engine = engine();
@@ -190,9 +280,9 @@ public class TemplateCompiler {
                     return new NameEnvironmentAnswer(classFileReader, null);
                 }
                 if (engine.isProdMode()) {
-                    notFoundTypes.add(name);
+                    classCache.notFoundTypes.add(name);
                 } else if (name.matches("^(java\\.|play\\.|com\\.greenlaw110\\.).*")) {
-                    notFoundTypes.add(name);
+                    classCache.notFoundTypes.add(name);
                 }
                 return null;
             }
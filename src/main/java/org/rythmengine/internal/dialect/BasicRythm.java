@@ -35,7 +35,7 @@ public class BasicRythm extends SimpleRythm {
     protected Class<?>[] buildInParserClasses() {
         // InvokeTagParse must be put in front of ExpressionParser as the later's matching pattern covers the former
         // BraceParser must be put in front of ElseIfParser
-        return new Class<?>[]{BreakParser.class, ContinueParser.class, CommentParser.class, EscapeParser.class, ElseForParser.class, ElseIfParser.class, BraceParser.class, InvokeTemplateParser.class, NullableExpressionParser.class, ExpressionParser.class, ForEachParser.class, IfParser.class, RawParser.class, TimestampParser.class};
+        return new Class<?>[]{BreakParser.class, ContinueParser.class, CommentParser.class, EscapeParser.class, ElseForParser.class, ElseIfParser.class, BraceParser.class, InvokeTemplateParser.class, NullableExpressionParser.class, ExpressionParser.class, FlushParser.class, ForEachParser.class, IfParser.class, RawParser.class, TimestampParser.class};
     }
 
     @Override
@@ -74,7 +74,81 @@ public class BasicRythm extends SimpleRythm {
             if (template.contains(s)) return false;
         }
 
-        return true;
+        return !hasScriptOrComplexExpression(template);
+    }
+
+    /*
+     * A script block or a complex expression fails the parse only when the
+     * parser reaches it, after which the whole template is parsed again with
+     * the next dialect. Find them upfront instead. Escaped carets, comments
+     * and parenthesized arguments are skipped, and only what the parser would
+     * certainly reject is reported
+     */
+    private static boolean hasScriptOrComplexExpression(String template) {
+        int len = template.length();
+        int i = template.indexOf('@');
+        while (i > -1 && i < len - 1) {
+            char c = template.charAt(i + 1);
+            if ('@' == c) {
+                i += 2;
+            } else if ('*' == c) {
+                int end = template.indexOf("*@", i + 2);
+                if (end < 0) return false;
+                i = end + 2;
+            } else if ('/' == c) {
+                int end = template.indexOf('\n', i + 2);
+                if (end < 0) return false;
+                i = end + 1;
+            } else if ('{' == c) {
+                return true;
+            } else if ('(' == c) {
+                i = skipParentheses(template, i + 1);
+            } else if (isExpressionChar(c)) {
+                int j = i + 1;
+                while (j < len && isExpressionChar(template.charAt(j))) j++;
+                String name = template.substring(i + 1, j);
+                int k = j;
+                while (k < len && (isExpressionChar(template.charAt(k)) || '.' == template.charAt(k))) k++;
+                int n = k;
+                while (n < len && Character.isWhitespace(template.charAt(n))) n++;
+                if (n < len && '(' == template.charAt(n)) {
+                    // a directive, tag or method call with arguments
+                    i = skipParentheses(template, n);
+                } else if (k > j && !"else".equals(name) && (k == len || "?([".indexOf(template.charAt(k)) < 0)) {
+                    return true;
+                } else {
+                    i = k;
+                }
+            } else {
+                i++;
+            }
+            if (i < len) i = template.indexOf('@', i);
+        }
+        return false;
+    }
+
+    private static boolean isExpressionChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || '_' == c;
+    }
+
+    private static int skipParentheses(String template, int open) {
+        int len = template.length();
+        int depth = 0;
+        char quote = 0;
+        for (int i = open; i < len; ++i) {
+            char c = template.charAt(i);
+            if (0 != quote) {
+                if ('\\' == c) i++;
+                else if (quote == c) quote = 0;
+            } else if ('"' == c || '\'' == c) {
+                quote = c;
+            } else if ('(' == c) {
+                depth++;
+            } else if (')' == c && --depth == 0) {
+                return i + 1;
+            }
+        }
+        return len;
     }
 
     @Override
@@ -21,6 +21,8 @@ public abstract class DialectBase implements IDialect {
     }
 
     private List<IParserFactory> freeParsers = new ArrayList<IParserFactory>();
+    // the number of free parsers registered by the dialect itself
+    private int buildInFreeParsers;
 
     @Override
     public void registerParserFactory(IParserFactory parser) {
@@ -54,6 +56,7 @@ public abstract class DialectBase implements IDialect {
                 }
             }
         }
+        buildInFreeParsers = freeParsers.size();
     }
 
     public IParser createBuildInParser(String keyword, IContext context) {
@@ -69,6 +72,18 @@ public abstract class DialectBase implements IDialect {
         return null == f ? null : f.create(context);
     }
 
+    /**
+     * Check if any free parser other than the build-in ones has been
+     * registered to this dialect. The build-in free parsers only start at
+     * the caret, a brace or a line break followed by one of them, which lets
+     * the dispatcher skip them anywhere else
+     *
+     * @return true if there are free parsers registered from outside
+     */
+    public boolean hasCustomFreeParsers() {
+        return freeParsers.size() > buildInFreeParsers;
+    }
+
     public Iterable<IParserFactory> freeParsers() {
         return new Iterable<IParserFactory>() {
             final List<IParserFactory> fs = new ArrayList<IParserFactory>(freeParsers);
@@ -51,6 +51,12 @@ public class DialectManager {
         protected Deque<IDialect> initialValue() {
             return new ConcurrentLinkedDeque<>();
         }
+
+        @Override
+        protected Deque<IDialect> childValue(Deque<IDialect> parentValue) {
+            // a thread started while parsing must not share the parse stack
+            return new ConcurrentLinkedDeque<>(parentValue);
+        }
     };
 
     private static void push(IDialect dialect) {
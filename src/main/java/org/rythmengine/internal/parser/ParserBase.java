@@ -33,6 +33,25 @@ public abstract class ParserBase implements IParser {
         return Pattern.compile(regex, Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
     }
 
+    /**
+     * Compile a regex that is to be matched against the head of the remaining
+     * template with {@link java.util.regex.Matcher#lookingAt()} instead of
+     * {@link java.util.regex.Matcher#matches()}. A trailing <code>.*</code>
+     * swallowing the rest of the template is dropped so that a match costs the
+     * length of the token instead of the length of the template. Any other
+     * regex is anchored at the template end to keep the full match semantic
+     *
+     * @param regex the regex as would be passed to <code>matches()</code>
+     * @param flags the match flags
+     * @return the pattern to be used with <code>lookingAt()</code>
+     */
+    public static Pattern headPattern(String regex, int flags) {
+        if ((flags & Pattern.DOTALL) != 0 && regex.endsWith(".*") && !regex.endsWith("\\.*")) {
+            return Pattern.compile(regex.substring(0, regex.length() - 2), flags);
+        }
+        return Pattern.compile("(?:" + regex + ")\\z", flags);
+    }
+
     private final IDialect d_;
     private final IContext c_;
     protected final RythmEngine engine_;
@@ -64,6 +83,10 @@ public abstract class ParserBase implements IParser {
         return c_.getRemain();
     }
 
+    protected final CharSequence remainSequence() {
+        return c_.getRemainSequence();
+    }
+
     protected final int currentLine() {
         return c_.currentLine();
     }
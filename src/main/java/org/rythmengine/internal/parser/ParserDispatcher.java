@@ -29,14 +29,18 @@ public class ParserDispatcher extends ParserBase {
 
     public ParserDispatcher(IContext context) {
         super(context);
-        P = pattern("\\n?[ \\t\\x0B\\f]*%s(%s)(\\s*|\\(|\\{).*", a(), Patterns.VarName);
+        P = headPattern(String.format("\\n?[ \\t\\x0B\\f]*%s(%s)(\\s*|\\(|\\{).*", a(), Patterns.VarName), Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
     }
     
     public F.T2<IParser, Token> go2() {
         DialectBase d = (DialectBase) dialect();
         IContext c = ctx();
-        Matcher m = P.matcher(remain());
-        if (m.matches()) {
+        if (!d.hasCustomFreeParsers() && !atLead(c)) {
+            // none of the build-in parsers could start here
+            return null;
+        }
+        Matcher m = P.matcher(remainSequence());
+        if (m.lookingAt()) {
             String s = m.group(1);
             IParser p = d.createBuildInParser(s, c);
             if (null != p) {
@@ -52,6 +56,28 @@ public class ParserDispatcher extends ParserBase {
         return null;
     }
 
+    /*
+     * Build-in keyword and free parsers start at the caret or a brace,
+     * optionally led by a line break and blanks
+     */
+    private boolean atLead(IContext c) {
+        String a = a();
+        if (a.length() != 1) return true;
+        char caret = a.charAt(0);
+        char ch = c.peek();
+        if (ch == caret || ch == '{' || ch == '}') return true;
+        int i = 0;
+        if ('\n' == ch || '\r' == ch) {
+            char ch1 = c.peek(++i);
+            if (ch1 != ch && ('\n' == ch1 || '\r' == ch1)) i++;
+        }
+        ch = c.peek(i);
+        while (' ' == ch || '\t' == ch || '\u000B' == ch || '\f' == ch) {
+            ch = c.peek(++i);
+        }
+        return ch == caret || ch == '}';
+    }
+
     public Token go() {
         throw new UnsupportedOperationException();
     }
@@ -38,6 +38,7 @@ public class AssignParser extends KeywordParserFactory {
             if (sa.length > 1) {
                 isFinal = Boolean.parseBoolean(sa[1].trim());
             }
+            context.getCodeBuilder().addLocal(this.assignTo);
         }
 
         @Override
@@ -20,8 +20,13 @@ public class BlockCloseParser extends ParserBase {
     private static final String PTN = "([\\}]?%s[\\}\\s\\n\\>\\]]).*";
     private static final String PTN2 = "((\\}%s|%s\\}|\\})([ \\t\\x0B\\f]*\\{?[ \\t\\x0B\\f]*\\n?)).*";
 
+    private final Pattern P;
+    private final Pattern P2;
+
     public BlockCloseParser(IContext context) {
         super(context);
+        P = headPattern(String.format(PTN, a()), Pattern.DOTALL);
+        P2 = headPattern(String.format(PTN2, a(), a()), Pattern.DOTALL);
     }
 
     @Override
@@ -29,17 +34,15 @@ public class BlockCloseParser extends ParserBase {
         IContext ctx = ctx();
         IBlockHandler bh = ctx.currentBlock();
         if (null == bh) return null;
-        String remain = remain();
+        CharSequence remain = remainSequence();
         String s;
-        if ("@".equals(remain)) {
-            s = remain;
+        if ("@".contentEquals(remain)) {
+            s = "@";
         } else {
-            Pattern p = Pattern.compile(String.format(PTN2, a(), a()), Pattern.DOTALL);
-            Matcher m = p.matcher(remain);
-            if (!m.matches()) {
-                p = Pattern.compile(String.format(PTN, a()), Pattern.DOTALL);
-                m = p.matcher(remain);
-                if (!m.matches()) {
+            Matcher m = P2.matcher(remain);
+            if (!m.lookingAt()) {
+                m = P.matcher(remain);
+                if (!m.lookingAt()) {
                     return null;
                 }
             }
@@ -22,15 +22,14 @@ import java.util.regex.Pattern;
  */
 public class BraceParser implements IParserFactory {
 
-    private final Pattern P = Pattern.compile("^((\\n[ \\t\\x0B\\f]*\\}[ \\t\\x0B\\f]*)\\n).*", Pattern.DOTALL);
+    private final Pattern P = Pattern.compile("^((\\n[ \\t\\x0B\\f]*\\}[ \\t\\x0B\\f]*)\\n)", Pattern.DOTALL);
 
     @Override
     public IParser create(final IContext ctx) {
         return new ParserBase(ctx) {
             @Override
             public Token go() {
-                String remain = remain();
-                char c = remain.charAt(0);
+                char c = peek();
                 if ('{' == c) {
                     step(1);
 //                    if (ctx().getCodeBuilder().lastIsBlockToken()) {
@@ -76,9 +75,8 @@ public class BraceParser implements IParserFactory {
                                 ctx.getCodeBuilder().removeSpaceTillLastLineBreak(ctx);
                                 ct.removeNextLineBreak = true;
                             } else if (bhCls.contains("Assign")) {
-                                remain = ctx.getRemain();
-                                Matcher m = Pattern.compile("(^[ \\t\\x0B\\f]*\\n).*", Pattern.DOTALL).matcher(remain);
-                                if (m.matches()) {
+                                Matcher m = Pattern.compile("(^[ \\t\\x0B\\f]*\\n)", Pattern.DOTALL).matcher(remainSequence());
+                                if (m.lookingAt()) {
                                     String space = m.group(1);
                                     step(space.length());
                                 }
@@ -92,8 +90,8 @@ public class BraceParser implements IParserFactory {
                             }
                         }
                     } else if (null != bh && !isLiteral) {
-                        Matcher m = P.matcher(remain);
-                        if (m.matches()) {
+                        Matcher m = P.matcher(remainSequence());
+                        if (m.lookingAt()) {
                             CodeBuilder cb = ctx.getCodeBuilder();
                             String bhCls = bh.getClass().getName();
                             String s = m.group(2);
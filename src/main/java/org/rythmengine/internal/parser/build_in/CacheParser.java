@@ -14,6 +14,7 @@ import org.rythmengine.internal.parser.BlockCodeToken;
 import org.rythmengine.internal.parser.ParserBase;
 import org.rythmengine.utils.S;
 
+import java.util.Map;
 import java.util.UUID;
 import java.util.regex.Pattern;
 
@@ -23,6 +24,7 @@ import java.util.regex.Pattern;
 public class CacheParser extends KeywordParserFactory {
 
     private static final Pattern P_INT = Pattern.compile("\\-?[0-9\\*\\/\\+\\-]+");
+    private static final Pattern P_LITERAL = Pattern.compile("\\-?[0-9]+|\"[^\"\\\\]*\"");
 
     public static void validateDurationStr(String d, IContext ctx) {
         if ("null".equals(d)) return;
@@ -40,35 +42,70 @@ public class CacheParser extends KeywordParserFactory {
         }
     }
 
+    /**
+     * Return the java expression of the ttl in seconds of a validated duration. Duration strings
+     * are parsed here so the template does not parse them on each cache miss
+     */
+    public static String ttlOf(String d, IContext ctx) {
+        if ("null".equals(d)) return "0";
+        if ((d.startsWith("\"") && d.endsWith("\""))) {
+            return String.valueOf(ctx.getEngine().conf().durationParser().parseDuration(S.stripQuotation(d)));
+        }
+        return d;
+    }
+
+    /**
+     * Check if the key args of a block are known before the template is built, i.e. they
+     * are render args or literals
+     */
+    private static boolean prefetchable(String args, IContext ctx) {
+        if (S.isEmpty(args)) return true;
+        Map<String, ?> renderArgs = ctx.getCodeBuilder().renderArgs;
+        for (String arg : args.substring(1).split(",")) {
+            arg = arg.trim();
+            if (!renderArgs.containsKey(arg) && !P_LITERAL.matcher(arg).matches()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /*
     {
-      String s = __engine().cached("key", 1, foo.bar());
+      org.rythmengine.internal.CacheKey ck = org.rythmengine.internal.CacheKey.of("key", 1, foo.bar());
+      org.rythmengine.cache.FragmentCache fc = __engine().fragmentCache();
+      java.io.Serializable s = fc.get(ck);
       if (null != s) {
         p(s);
       } else {
         StringBuilder sbOld = __getBuffer();
         StringBuilder sbNew = new StringBuilder()
         __setBuffer(sbNew);
-        ...
-        s = sbNew.toString();
-        __setBuffer(sbOld);
-        __engine().cache("key", s, duration, 1, foo.bar());
+        try {
+          ...
+          s = sbNew.toString();
+          fc.put(ck, s, ttl);
+        } finally {
+          __setBuffer(sbOld);
+          fc.release(ck);
+        }
         p(s)
       }
     }
      */
     private static class CacheToken extends BlockCodeToken {
         private String args;
-        private String duration;
+        private String ttl;
         private int startIndex;
         private int endIndex;
         private String key;
 
         CacheToken(String duration, String args, IContext ctx) {
             super("", ctx);
-            this.duration = S.isEmpty(duration) ? "null" : duration;
+            duration = S.isEmpty(duration) ? "null" : duration;
             // check if duration is valid
-            validateDurationStr(this.duration, ctx);
+            validateDurationStr(duration, ctx);
+            this.ttl = ttlOf(duration, ctx);
             this.args = args;
             this.startIndex = ctx.cursor();
         }
@@ -77,7 +114,10 @@ public class CacheParser extends KeywordParserFactory {
         public void output() {
             p("{");
             pline();
-            pt("java.io.Serializable s = __engine().cached(\"").p(key).p("\"").p(args).p(");");
+            pt("org.rythmengine.internal.CacheKey ck = org.rythmengine.internal.CacheKey.of(\"").p(key).p("\"").p(args).p(");");
+            pline();
+            ptline("org.rythmengine.cache.FragmentCache fc = __engine().fragmentCache();");
+            pt("java.io.Serializable s = fc.get(ck);");
             pline();
             pt("if (null != s) {");
             pline();
@@ -91,6 +131,8 @@ public class CacheParser extends KeywordParserFactory {
             pline();
             p2t("__setBuffer(sbNew);");
             pline();
+            p2t("try {");
+            pline();
         }
 
         @Override
@@ -100,14 +142,23 @@ public class CacheParser extends KeywordParserFactory {
             String tmplName = ctx.getTemplateClass().name();
             String keySeed = body + tmplName;
             key = UUID.nameUUIDFromBytes(keySeed.getBytes()).toString();
+            if (prefetchable(args, ctx)) {
+                ctx.getCodeBuilder().addCacheKey("org.rythmengine.internal.CacheKey.of(\"" + key + "\"" + args + ")");
+            }
             StringBuilder sbOld = __getBuffer();
             StringBuilder sbNew = new StringBuilder();
             __setBuffer(sbNew);
-            p2t("s = sbNew.toString();");
+            p3t("s = sbNew.toString();");
+            pline();
+            p3t("fc.put(ck, s, ").p(ttl).p(");");
+            pline();
+            p2t("} finally {");
+            pline();
+            p3t("__setBuffer(sbOld);");
             pline();
-            p2t("__setBuffer(sbOld);");
+            p3t("fc.release(ck);");
             pline();
-            p2t("__engine().cache(\"").p(key).p("\",s,").p(duration).p(args).p(");");
+            p2t("}");
             pline();
             p2t("p(s);");
             pline();
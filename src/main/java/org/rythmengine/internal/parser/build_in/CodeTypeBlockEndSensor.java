@@ -39,7 +39,7 @@ public class CodeTypeBlockEndSensor extends ParserBase {
         ICodeType curType = ctx.peekCodeType();
         if (curType.allowedExternalTypes().isEmpty()) return null;
 
-        String remain = ctx.getRemain();
+        CharSequence remain = ctx.getRemainSequence();
 
         String blockEnd = curType.blockEnd();
         if (null == blockEnd) {
@@ -49,11 +49,11 @@ public class CodeTypeBlockEndSensor extends ParserBase {
 
         Pattern p = patterns.get(blockEnd);
         if (null == p) {
-            p = Pattern.compile(blockEnd, Pattern.DOTALL);
+            p = headPattern(blockEnd, Pattern.DOTALL);
             patterns.put(blockEnd, p);
         }
         Matcher m = p.matcher(remain);
-        if (m.matches()) {
+        if (m.lookingAt()) {
             String matched = m.group(1);
             ctx.step(matched.length());
             ctx.popCodeType();
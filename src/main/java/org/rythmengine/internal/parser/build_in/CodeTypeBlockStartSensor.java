@@ -39,7 +39,7 @@ public class CodeTypeBlockStartSensor extends ParserBase {
         ICodeType curType = ctx.peekCodeType();
         if (!curType.allowInternalTypeBlock()) return null;
 
-        String remain = ctx.getRemain();
+        CharSequence remain = ctx.getRemainSequence();
         Iterable<ICodeType> types = ctx.getEngine().extensionManager().templateLangs();
 
         for (ICodeType type : types) {
@@ -52,11 +52,11 @@ public class CodeTypeBlockStartSensor extends ParserBase {
 
                 Pattern pStart = patterns.get(blockStart);
                 if (null == pStart) {
-                    pStart = Pattern.compile(blockStart, Pattern.DOTALL);
+                    pStart = headPattern(blockStart, Pattern.DOTALL);
                     patterns.put(blockStart, pStart);
                 }
                 Matcher m = pStart.matcher(remain);
-                if (m.matches()) {
+                if (m.lookingAt()) {
                     ctx.pushCodeType(type);
                     String matched = m.group(1);
                     ctx.step(matched.length());
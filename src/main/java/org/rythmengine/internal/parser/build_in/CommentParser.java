@@ -22,16 +22,17 @@ import java.util.regex.Pattern;
  * Time: 3:04 PM
  */
 public class CommentParser extends CaretParserFactoryBase {
-	public static final String COMMENT_FORMAT="^(%s/.*?)(\n.*|$)";
+	// matched against the head of the remaining template, stops at the line break
+	public static final String COMMENT_FORMAT="^(%s/[^\n]*)";
     public IParser create(final IContext ctx) {
         return new RemoveLeadingLineBreakAndSpacesParser(ctx) {
             public Token go() {
                 Pattern p = inlineComment();
-                Matcher m = p.matcher(remain());
-                if (!m.matches()) {
+                Matcher m = p.matcher(remainSequence());
+                if (!m.lookingAt()) {
                     p = blockComment();
-                    m = p.matcher(remain());
-                    if (!m.matches()) return null;
+                    m = p.matcher(remainSequence());
+                    if (!m.lookingAt()) return null;
                 } else {
                     // special process to directive comments
                     if (ctx.insideDirectiveComment()) {
@@ -56,7 +57,7 @@ public class CommentParser extends CaretParserFactoryBase {
             }
 
             private Pattern blockComment() {
-                return Pattern.compile(String.format("^(%s\\*.*?\\*%s).*", a(), a()), Pattern.DOTALL);
+                return Pattern.compile(String.format("^(%s\\*.*?\\*%s)", a(), a()), Pattern.DOTALL);
             }
         };
     }
@@ -65,10 +65,13 @@ public class DefTagParser extends KeywordParserFactory {
 
         @Override
         public void openBlock() {
+            // the inline tag could be called under any escape scheme
+            ctx.pushEscape(null);
         }
 
         @Override
         public String closeBlock() {
+            ctx.popEscape();
             ctx.getCodeBuilder().endTag(tag);
             return "";
         }
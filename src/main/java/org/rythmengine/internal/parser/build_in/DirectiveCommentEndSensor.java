@@ -42,11 +42,11 @@ public class DirectiveCommentEndSensor extends RemoveLeadingLineBreakAndSpacesPa
                 s = "(\\s*" + s + ")" + ".*";
                 Pattern p = patterns.get(s);
                 if (null == p) {
-                    p = Pattern.compile(s, Pattern.DOTALL);
+                    p = headPattern(s, Pattern.DOTALL);
                     patterns.put(s, p);
                 }
-                Matcher m = p.matcher(remain());
-                if (m.matches()) {
+                Matcher m = p.matcher(remainSequence());
+                if (m.lookingAt()) {
                     s = m.group(1);
                     ctx.step(s.length());
                     ctx.leaveDirectiveComment();
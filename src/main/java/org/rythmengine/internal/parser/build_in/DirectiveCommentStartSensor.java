@@ -47,11 +47,11 @@ public class DirectiveCommentStartSensor extends RemoveLeadingLineBreakAndSpaces
                 String s = "(" + sCommentStart + "\\s*" + ")" + ctx.getDialect().a() + ".*";
                 Pattern p = patterns.get(s);
                 if (null == p) {
-                    p = Pattern.compile(s, Pattern.DOTALL);
+                    p = headPattern(s, Pattern.DOTALL);
                     patterns.put(s, p);
                 }
-                Matcher m = p.matcher(remain());
-                if (m.matches()) {
+                Matcher m = p.matcher(remainSequence());
+                if (m.lookingAt()) {
                     s = m.group(1);
                     ctx.step(s.length());
                     ctx.enterDirectiveComment();
@@ -61,11 +61,11 @@ public class DirectiveCommentStartSensor extends RemoveLeadingLineBreakAndSpaces
                 s = "(" + sCommentStart + "\\s*)\\}.*";
                 p = patterns.get(s);
                 if (null == p) {
-                    p = Pattern.compile(s, Pattern.DOTALL);
+                    p = headPattern(s, Pattern.DOTALL);
                     patterns.put(s, p);
                 }
-                m = p.matcher(remain());
-                if (m.matches()) {
+                m = p.matcher(remainSequence());
+                if (m.lookingAt()) {
                     s = m.group(1);
                     ctx.step(s.length());
                     ctx.enterDirectiveComment();
@@ -35,7 +35,7 @@ public class ElseForParser extends CaretParserFactoryBase {
 
                 String s = ctx.getRemain();
                 String s1;
-                if (r.search(s)) {
+                if (r.matchAt(s, 0)) {
                     s1 = r.stringMatched(1);
                     if (null == s1) return null;
                     step(s1.length());
@@ -47,7 +47,7 @@ public class ElseForParser extends CaretParserFactoryBase {
 
                 try {
                     ctx.closeBlock();
-                    s1 = "\n\t}\n} else {\n";
+                    s1 = ((ForEachCodeToken) bh).closeLoop() + " else {\n";
                 } catch (ParseException e) {
                     throw new RuntimeException(e);
                 }
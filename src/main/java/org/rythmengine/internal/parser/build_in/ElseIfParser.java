@@ -45,7 +45,7 @@ public class ElseIfParser extends CaretParserFactoryBase {
                 boolean expression = false;
                 boolean needsToProcessFollowingOpenBrace;
                 final String matched;
-                if (r1.search(s)) {
+                if (r1.matchAt(s, 0)) {
                     s1 = r1.stringMatched(1);
                     matched = s1;
                     if (null == s1) return null;
@@ -53,7 +53,7 @@ public class ElseIfParser extends CaretParserFactoryBase {
                     needsToProcessFollowingOpenBrace = !s1.trim().endsWith("{");
                     s1 = r1.stringMatched(4);
                     expression = true;
-                } else if (r2.search(s)) {
+                } else if (r2.matchAt(s, 0)) {
                     s1 = r2.stringMatched(1);
                     if (null == s1) return null;
                     matched = s1;
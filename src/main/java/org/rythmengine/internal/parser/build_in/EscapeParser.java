@@ -12,8 +12,12 @@ import org.rythmengine.internal.Keyword;
 import org.rythmengine.internal.Token;
 import org.rythmengine.internal.parser.BlockCodeToken;
 import org.rythmengine.internal.parser.ParserBase;
+import org.rythmengine.utils.Escape;
 import org.rythmengine.utils.S;
 
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 /**
  * Parse @escape("JS") {...}
  */
@@ -63,6 +67,7 @@ public class EscapeParser extends KeywordParserFactory {
                     raiseParseException("Error parsing @escape statement. Escape parameter expected to be one of %s, found: %s", Arrays.asList(Escape.stringValues()), s);
                 }
                 */
+                ctx.pushEscape(staticEscape(s, ctx));
                 s = String.format("__ctx.pushEscape(org.rythmengine.utils.Escape.valueOfIgnoreCase(this, %s));", s);
                 return new BlockCodeToken(s, ctx()) {
                     @Override
@@ -71,6 +76,7 @@ public class EscapeParser extends KeywordParserFactory {
 
                     @Override
                     public String closeBlock() {
+                        ctx.popEscape();
                         return "__ctx.popEscape();";
                     }
                 };
@@ -78,6 +84,26 @@ public class EscapeParser extends KeywordParserFactory {
         };
     }
 
+    private static final Pattern P_LITERAL = Pattern.compile("\"(\\w*)\"");
+
+    /*
+     * Resolve the escape scheme when the parameter is a string literal, so that
+     * the expressions inside the block can be escaped without looking up the
+     * escape scheme at render time
+     */
+    private static Escape staticEscape(String param, IContext ctx) {
+        Matcher m = P_LITERAL.matcher(param);
+        if (!m.matches()) return null;
+        String escape = m.group(1);
+        if (escape.isEmpty()) return ctx.peekEscape();
+        try {
+            return Escape.valueOfIgnoreCase(escape);
+        } catch (IllegalArgumentException e) {
+            // leave it to the render time
+            return null;
+        }
+    }
+
     @Override
     protected String patternStr() {
         return "^\\n?[ \\t\\x0B\\f]*%s%s\\s*((?@()))[\\s]*\\{?[ \\t\\x0B\\f]*\\n?";
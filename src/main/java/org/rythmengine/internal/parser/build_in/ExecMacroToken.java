@@ -24,6 +24,7 @@ public class ExecMacroToken extends CodeToken {
     public ExecMacroToken(String macro, IContext context, int line) {
         super(macro, context);
         this.line = line;
+        context.getCodeBuilder().addInline();
     }
 
     @Override
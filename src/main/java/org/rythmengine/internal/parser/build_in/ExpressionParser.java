@@ -119,7 +119,7 @@ public class ExpressionParser extends CaretParserFactoryBase {
             @Override
             public Token go() {
                 String s = remain();
-                if (r1.search(s)) {
+                if (r1.matchAt(s, 0)) {
                     s = r1.stringMatched();
                     if (s.length() > 0) {
 //                        String s0 = s.substring(1);
@@ -138,7 +138,7 @@ public class ExpressionParser extends CaretParserFactoryBase {
                     }
                 }
                 s = remain();
-                if (r2.search(s)) {
+                if (r2.matchAt(s, 0)) {
                     s = r2.stringMatched(1);
                     if (null != s && !"@".equals(s.trim())) {
                         step(s.length());
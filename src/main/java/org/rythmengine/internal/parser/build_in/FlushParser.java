@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.internal.parser.build_in;
+
+import com.stevesoft.pat.Regex;
+import org.rythmengine.internal.IContext;
+import org.rythmengine.internal.IParser;
+import org.rythmengine.internal.Keyword;
+import org.rythmengine.internal.Token;
+import org.rythmengine.internal.parser.CodeToken;
+import org.rythmengine.internal.parser.RemoveLeadingLineBreakAndSpacesParser;
+
+/**
+ * Parse @flush() statement. Which pushes the output rendered so far to the writer or
+ * output stream the template renders to, as directed by the configured flush policy
+ */
+public class FlushParser extends KeywordParserFactory {
+
+    @Override
+    public Keyword keyword() {
+        return Keyword.FLUSH;
+    }
+
+    public IParser create(final IContext ctx) {
+        return new RemoveLeadingLineBreakAndSpacesParser(ctx) {
+            public Token go() {
+                Regex r = reg(dialect());
+                if (!r.search(remain())) {
+                    return null;
+                }
+                step(r.stringMatched().length());
+                return new CodeToken("__flush();", ctx());
+            }
+        };
+    }
+
+    @Override
+    protected String patternStr() {
+        return "^(%s%s\\s*\\(\\s*\\))";
+    }
+
+}
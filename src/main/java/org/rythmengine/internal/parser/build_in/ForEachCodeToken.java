@@ -12,16 +12,66 @@ import org.rythmengine.internal.TemplateParser;
 import org.rythmengine.internal.Token;
 import org.rythmengine.internal.dialect.BasicRythm;
 import org.rythmengine.internal.parser.BlockCodeToken;
+import org.rythmengine.utils.Range;
 import org.rythmengine.utils.S;
 import com.stevesoft.pat.Regex;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 public class ForEachCodeToken extends BlockCodeToken {
 
+    /**
+     * How the loop is lowered into java code, decided by the type of the
+     * iterable known at parse time
+     */
+    private enum Lowering {
+        /**
+         * Iterate through {@link org.rythmengine.template.TemplateBase.__Itr}
+         */
+        ITR,
+        /**
+         * Indexed loop over an array render arg
+         */
+        ARRAY,
+        /**
+         * Indexed loop over a list render arg, iterator is used if the
+         * list is not {@link java.util.RandomAccess}
+         */
+        LIST,
+        /**
+         * Counter loop over a literal range
+         */
+        RANGE
+    }
+
+    private static final Pattern P_LIST = Pattern.compile("(java\\.util\\.)?(List|ArrayList|LinkedList|Vector)(\\s*<.*>)?");
+    private static final Pattern P_PRIMITIVE = Pattern.compile("int|long|float|double|boolean|char|byte|short");
+    // an expression ends with '@' is evaluated dynamically via __eval()
+    private static final Pattern P_DYNA_EXP = Pattern.compile("[\\w\\)\\]]@");
+    private static final Pattern P_IDENTIFIER = Pattern.compile("[\\w$]+");
+
     private String type;
     private String iterableType = "Iterable";
     private String varname;
     private String iterable;
     private String joinSep;
+    private Lowering lowering = Lowering.ITR;
+    // the declared type of the loop variable for ARRAY and RANGE lowering
+    private String varType;
+    private String arrayType;
+    private int rangeMin;
+    private int rangeMax;
+    private boolean charRange;
+    private int bodyStart;
+    // the includes and macro invocations parsed before the loop body
+    private int inlinesBefore;
+    // loop helper variables referenced by the template, resolved when the block is closed
+    private Set<String> helpers = null;
+    private boolean pushItrVar = true;
 //    private int openPos;
 //    private int closePos;
 
@@ -47,6 +97,7 @@ public class ForEachCodeToken extends BlockCodeToken {
         this.type = objectType(type);
         this.varname = null == varname ? "_" : varname.trim();
         if (iterable.contains("..") || iterable.contains(" to ") || iterable.contains(" till ")) {
+            parseRange(iterable);
             iterable = "org.rythmengine.utils.Range.valueOf(\"" + iterable + "\")";
             iterableType = "Range";
         }
@@ -57,8 +108,8 @@ public class ForEachCodeToken extends BlockCodeToken {
         ctx.pushContinue(IContext.Continue.CONTINUE);
         CodeBuilder cb = context.getCodeBuilder();
         boolean isBasic = ctx.getDialect() instanceof BasicRythm;
+        String itrType = cb.getRenderArgType(iterable);
         if (S.isEmpty(type) || "Object".equals(type)) {
-            String itrType = cb.getRenderArgType(iterable);
             if (null != itrType) {
                 Regex r = new Regex(".*((?@<>))");
                 if (r.search(itrType)) {
@@ -94,6 +145,61 @@ public class ForEachCodeToken extends BlockCodeToken {
             ExpressionParser.assertBasic(iterable, context);
             context.getCodeBuilder().addRenderArgsIfNotDeclared(line, "Iterable<?>", iterable);
         }
+        if (Lowering.RANGE == lowering) {
+            varType = declaredVarType(type);
+        } else if (null != itrType && !isBasic) {
+            itrType = itrType.trim();
+            if (itrType.endsWith("[]") && !itrType.contains("<")) {
+                lowering = Lowering.ARRAY;
+                arrayType = itrType;
+                varType = declaredVarType(type);
+            } else if (P_LIST.matcher(itrType).matches()) {
+                lowering = Lowering.LIST;
+            }
+        }
+        context.getCodeBuilder().addLocal(this.varname);
+        bodyStart = context.cursor();
+        inlinesBefore = context.getCodeBuilder().inlines();
+    }
+
+    /*
+     * Literal ranges are parsed here instead of on every render. The range is
+     * left to Range.valueOf at runtime if it cannot be parsed
+     */
+    private void parseRange(String expr) {
+        Range<?> range;
+        try {
+            range = Range.valueOf(expr);
+        } catch (RuntimeException e) {
+            return;
+        }
+        Object min = range.min(), max = range.max();
+        if (min instanceof Integer) {
+            rangeMin = (Integer) min;
+            rangeMax = (Integer) max;
+        } else if (min instanceof Character) {
+            rangeMin = (Character) min;
+            rangeMax = (Character) max;
+            charRange = true;
+        } else {
+            return;
+        }
+        lowering = Lowering.RANGE;
+    }
+
+    /*
+     * Keep the primitive type if it is declared by user, so that the loop
+     * variable does not get boxed
+     */
+    private String declaredVarType(String declared) {
+        if (null != declared && P_PRIMITIVE.matcher(declared).matches()) {
+            return declared;
+        }
+        return loopVarType();
+    }
+
+    private String loopVarType() {
+        return "?".equals(type) ? "java.lang.Object" : type;
     }
 
     private String objectType(String type) {
@@ -109,6 +215,34 @@ public class ForEachCodeToken extends BlockCodeToken {
         return type;
     }
 
+    /*
+     * Find out the loop helper variables referenced in the loop body. All helpers
+     * are kept if the body includes other templates or invokes macros, the code of
+     * which goes inline
+     */
+    private void resolveHelpers(String... names) {
+        if (ctx.getCodeBuilder().inlines() > inlinesBefore) {
+            helpers = null;
+            pushItrVar = true;
+            return;
+        }
+        String body = ctx.getTemplateSource(bodyStart, ctx.cursor());
+        Set<String> candidates = new HashSet<String>(Arrays.asList(names));
+        helpers = new HashSet<String>();
+        Matcher m = P_IDENTIFIER.matcher(body);
+        while (m.find()) {
+            String id = m.group();
+            if (candidates.contains(id)) {
+                helpers.add(id);
+            }
+        }
+        pushItrVar = P_DYNA_EXP.matcher(body).find();
+    }
+
+    private boolean uses(String helper) {
+        return null == helpers || helpers.contains(helper);
+    }
+
     @Override
     public void output() {
         String prefix = "_".equals(varname) ? "" : varname + "";
@@ -124,55 +258,136 @@ public class ForEachCodeToken extends BlockCodeToken {
         String varUtils = prefix + "_utils";
         String varWithUtils = prefix + "__utils";
 
+        boolean utils = uses(varUtils);
+        boolean sep = uses(varSep);
+        boolean isLast = utils || sep || uses(varIsLast);
+        boolean isFirst = utils || uses(varIsFirst);
+        boolean parity = uses(varParity);
+        boolean isOdd = parity || uses(varIsOdd);
+        boolean index = null != joinSep || isOdd || isFirst || isLast || uses(varId);
+
         String varItr = cb.newVarName();
-        if ("java.lang.Object".equals(type)) {
-            p("{\n__Itr ").p(varItr).p(" = __Itr.of(").p(iterable).p(");");
-        } else {
-            if ("Range".equals(iterableType)) {
-                p("{\n__Itr<").p(type).p("> ").p(varItr).p(" = __Itr.ofRange(").p(iterable).p(");");
-            } else {
-                p("{\n__Itr<").p(type).p("> ").p(varItr).p(" = __Itr.valueOf(").p(iterable).p(");");
-            }
+        String varCursor = null;
+        switch (lowering) {
+            case RANGE:
+                varCursor = cb.newVarName();
+                p("{\nint ").p(varSize).p(" = ").p(rangeMax - rangeMin).p(";");
+                break;
+            case ARRAY:
+                p("{\n").p(arrayType).p(" ").p(varItr).p(" = ").p(iterable).p(";");
+                pline();
+                p("int ").p(varSize).p(" = null == ").p(varItr).p(" ? 0 : ").p(varItr).p(".length;");
+                break;
+            case LIST:
+                p("{\njava.util.List ").p(varItr).p(" = ").p(iterable).p(";");
+                pline();
+                p("int ").p(varSize).p(" = null == ").p(varItr).p(" ? 0 : ").p(varItr).p(".size();");
+                break;
+            default:
+                if ("java.lang.Object".equals(type)) {
+                    p("{\n__Itr ").p(varItr).p(" = __Itr.of(").p(iterable).p(");");
+                } else {
+                    if ("Range".equals(iterableType)) {
+                        p("{\n__Itr<").p(type).p("> ").p(varItr).p(" = __Itr.ofRange(").p(iterable).p(");");
+                    } else {
+                        p("{\n__Itr<").p(type).p("> ").p(varItr).p(" = __Itr.valueOf(").p(iterable).p(");");
+                    }
+                }
+                pline();
+                p("int ").p(varSize).p(" = ").p(varItr).p(".size();");
         }
         pline();
-        p("int ").p(varSize).p(" = ").p(varItr).p(".size();");
-        pline();
         p("if (").p(varSize).p(" > 0) {");
         pline();
-        p("int ").p(varId).p(" = 0;");
-        pline();
-        p("for(").p("?".equals(type) ? "java.lang.Object" : type).p(" ").p(varname).p(" : ").p(varItr).p(") {");
+        if (index) {
+            p("int ").p(varId).p(" = 0;");
+            pline();
+        }
+        switch (lowering) {
+            case RANGE:
+                p("for (int ").p(varCursor).p(" = ").p(rangeMin).p("; ").p(varCursor).p(" < ").p(rangeMax).p("; ++").p(varCursor).p(") {");
+                pline();
+                p(varType).p(" ").p(varname).p(" = ").p(charRange ? "(char) " : "").p(varCursor).p(";");
+                break;
+            case ARRAY:
+                varCursor = cb.newVarName();
+                p("for (int ").p(varCursor).p(" = 0; ").p(varCursor).p(" < ").p(varSize).p("; ++").p(varCursor).p(") {");
+                pline();
+                p(varType).p(" ").p(varname).p(" = ").p(varItr).p("[").p(varCursor).p("];");
+                break;
+            case LIST:
+                varCursor = cb.newVarName();
+                String varIterator = cb.newVarName();
+                String elemType = loopVarType();
+                String cast = "java.lang.Object".equals(elemType) ? "" : "(" + elemType + ") ";
+                p("java.util.Iterator ").p(varIterator).p(" = ").p(varItr).p(" instanceof java.util.RandomAccess ? null : ").p(varItr).p(".iterator();");
+                pline();
+                p("for (int ").p(varCursor).p(" = 0; ").p(varCursor).p(" < ").p(varSize).p("; ++").p(varCursor).p(") {");
+                pline();
+                p(elemType).p(" ").p(varname).p(" = ").p(cast).p("(null == ").p(varIterator).p(" ? ").p(varItr).p(".get(").p(varCursor).p(") : ").p(varIterator).p(".next());");
+                break;
+            default:
+                p("for(").p(loopVarType()).p(" ").p(varname).p(" : ").p(varItr).p(") {");
+        }
         pline();
         if (null != joinSep) {
             p("if (").p(varId).p("++ > 0) {p(").p(joinSep).p(");}");
-        } else {
+            pline();
+        } else if (index) {
             p(varId).p("++;");
+            pline();
+        }
+        if (isOdd) {
+            p("boolean ").p(varIsOdd).p(" = ").p(varId).p(" % 2 == 1;");
+            pline();
+        }
+        if (parity) {
+            p("java.lang.String ").p(varParity).p(" = ").p(varIsOdd).p(" ? \"odd\" : \"even\";");
+            pline();
+        }
+        if (isFirst) {
+            p("boolean ").p(varIsFirst).p(" = ").p(varId).p(" == 1;");
+            pline();
+        }
+        if (isLast) {
+            p("boolean ").p(varIsLast).p(" = ").p(varId).p(" >= ").p(varSize).p(";");
+            pline();
+        }
+        if (sep) {
+            p("org.rythmengine.utils.RawData ").p(varSep).p(" = new org.rythmengine.utils.RawData(").p(varIsLast).p(" ? \"\" : \",\");");
+            pline();
         }
-        pline();
-        p("boolean ").p(varIsOdd).p(" = ").p(varId).p(" % 2 == 1;");
-        pline();
-        p("java.lang.String ").p(varParity).p(" = ").p(varIsOdd).p(" ? \"odd\" : \"even\";");
-        pline();
-        p("boolean ").p(varIsFirst).p(" = ").p(varId).p(" == 1;");
-        pline();
-        p("boolean ").p(varIsLast).p(" = ").p(varId).p(" >= ").p(varSize).p(";");
-        pline();
-        p("org.rythmengine.utils.RawData ").p(varSep).p(" = new org.rythmengine.utils.RawData(").p(varIsLast).p(" ? \"\" : \",\");");
-        pline();
         /*p("org.rythmengine.utils.RawData ").p(varWithSep).p(" = new org.rythmengine.utils.RawData(org.rythmengine.utils.S.escape(").p(varname).p(")+(").p(varIsLast).p(" ? \"\" : \",\"));");
         pline();
         */
-        p("org.rythmengine.internal.LoopUtil ").p(varUtils).p(" = new org.rythmengine.internal.LoopUtil(").p(varIsFirst).p(", ").p(varIsLast).p(");");
-        pline();
+        if (utils) {
+            p("org.rythmengine.internal.LoopUtil ").p(varUtils).p(" = new org.rythmengine.internal.LoopUtil(").p(varIsFirst).p(", ").p(varIsLast).p(");");
+            pline();
+        }
         /*
         p("org.rythmengine.internal.LoopUtil ").p(varWithUtils).p(" = new org.rythmengine.internal.LoopUtil(").p(varIsFirst).p(", ").p(varIsLast).p(", ").p(varname).p(");");
         pline();
         */
-        p("__pushItrVar(\"").p(varname).p("\", ").p(varname).p(");");
-        pline();
+        if (pushItrVar) {
+            p("__pushItrVar(\"").p(varname).p("\", ").p(varname).p(");");
+            pline();
+        }
     }
+
+    /**
+     * Close the loop body. Used when the loop is followed by an <code>else</code> block
+     *
+     * @return the code closes the loop and the size check
+     */
+    String closeLoop() {
+        return pushItrVar ? "\n\t__popItrVar();\n\t}\n}" : "\n\t}\n}";
+    }
+
     @Override
     public String closeBlock() {
-        return "\n\t__popItrVar();\n\t}\n}\n}\n";
+        String prefix = "_".equals(varname) ? "" : varname + "";
+        resolveHelpers(prefix + "_index", prefix + "_isOdd", prefix + "_parity", prefix + "_isFirst",
+                prefix + "_isLast", prefix + "_sep", prefix + "_utils");
+        return closeLoop() + "\n}\n";
     }
 }
@@ -68,6 +68,7 @@ public class ForEachParser extends KeywordParserFactory {
                     if (!ctx().getDialect().enableFreeForLoop()) {
                         throw new TemplateParser.NoFreeLoopException(ctx());
                     }
+                    ctx.getCodeBuilder().addLocals(s);
                     String s1 = "for ";
                     String s2 = "{ //line: " + lineNo + "\n\t";
                     if (null != sep) {
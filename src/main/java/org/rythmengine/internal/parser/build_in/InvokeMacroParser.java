@@ -28,7 +28,7 @@ public class InvokeMacroParser extends CaretParserFactoryBase {
             @Override
             public Token go() {
                 Regex r = new Regex(String.format(patternStr(), dialect().a()));
-                if (!r.search(remain())) return null;
+                if (!r.matchAt(remain(), 0)) return null;
                 String macro = r.stringMatched(2);
                 CodeBuilder cb = ctx().getCodeBuilder();
                 // inline tag has higher priority than macro
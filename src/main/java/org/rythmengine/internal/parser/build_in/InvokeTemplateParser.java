@@ -71,12 +71,15 @@ public class InvokeTemplateParser extends CaretParserFactoryBase {
         ParameterDeclarationList params = new ParameterDeclarationList();
         protected boolean enableCache = false;
         protected String cacheDuration = null;
+        protected String cacheTTL = null;
         protected String cacheArgs = null;
         protected Escape escape = null;
         protected boolean ignoreNonExistsTag = false;
         protected String assignTo = null;
         protected boolean assignToFinal = false;
         protected List<CodeBuilder.RenderArgDeclaration> argList = null;
+        // the name of the static call site field
+        protected String callSite;
 
         static InvokeTagToken dynamicTagToken(String tagName, String paramLine, String extLine, IContext context) {
             InvokeTagToken t = new InvokeTagToken(tagName, paramLine, extLine, context);
@@ -100,6 +103,17 @@ public class InvokeTemplateParser extends CaretParserFactoryBase {
             this.enableCallback = enableCallback;
             parseParams(paramLine);
             parseExtension(extLine);
+            CodeBuilder cb = context.getCodeBuilder();
+            callSite = cb.newVarName();
+            cb.addStaticCode("private static final org.rythmengine.template.ITag.__CallSite " + callSite + " = new org.rythmengine.template.ITag.__CallSite()");
+        }
+
+        /*
+         * Print out the head of the tag invocation up to the parameter list
+         */
+        protected InvokeTagToken pInvoke() {
+            p2t("__invokeTag(").p(line).p(", ").p(tagName).p(", ").p(callSite).p(", _pl");
+            return this;
         }
 
         /*
@@ -165,6 +179,7 @@ public class InvokeTemplateParser extends CaretParserFactoryBase {
             }
             // check if duration is valid
             CacheParser.validateDurationStr(cacheDuration, ctx);
+            cacheTTL = CacheParser.ttlOf(cacheDuration, ctx);
             if (sa.length > 1) {
                 cacheArgs = param.replaceFirst(cacheDuration, "");
             } else {
@@ -197,6 +212,7 @@ public class InvokeTemplateParser extends CaretParserFactoryBase {
             if (sa.length > 1) {
                 this.assignToFinal = Boolean.parseBoolean(sa[1].trim());
             }
+            ctx.getCodeBuilder().addLocal(assignTo);
         }
 
         private void parseCallback(String param) {
@@ -204,6 +220,9 @@ public class InvokeTemplateParser extends CaretParserFactoryBase {
                 raiseParseException(ctx, "callback extension only apply to tag invocation with body");
             }
             argList = ArgsParser.parseArgDeclaration(ctx.currentLine(), param);
+            for (CodeBuilder.RenderArgDeclaration arg : argList) {
+                ctx.getCodeBuilder().addLocal(arg.name);
+            }
         }
 
         private String cacheKey = null;
@@ -248,17 +267,22 @@ public class InvokeTemplateParser extends CaretParserFactoryBase {
                 ptline("Object _r_s = null;");
                 if (enableCache) {
                     ptline("String _plUUID = null == _pl ? \"\" : _pl.toUUID();");
-                    pt("_r_s = __engine().cached(").p(cacheKey()).p(cacheArgs).p(");");
+                    pt("org.rythmengine.internal.CacheKey _ck = org.rythmengine.internal.CacheKey.of(").p(cacheKey()).p(cacheArgs).p(");");
                     pline();
+                    ptline("org.rythmengine.cache.FragmentCache _fc = __engine().fragmentCache();");
+                    ptline("_r_s = _fc.get(_ck);");
                 }
                 ptline("if (null == _r_s) {");
                 p2tline("StringBuilder sbOld = __getBuffer();");
                 p2tline("StringBuilder sbNew = new StringBuilder();");
                 p2tline("setSelfOut(sbNew);");
+                if (enableCache) {
+                    p2tline("try {");
+                }
                 if (ctx.peekInsideBody()) {
-                    p2t("__invokeTag(").p(line).p(", ").p(tagName).p(", _pl, null, __self, ").p(ignoreNonExistsTag).p(");");
+                    pInvoke().p(", null, __self, ").p(ignoreNonExistsTag).p(");");
                 } else {
-                    p2t("__invokeTag(").p(line).p(", ").p(tagName).p(", _pl, ").p(ignoreNonExistsTag).p(");");
+                    pInvoke().p(", null, null, ").p(ignoreNonExistsTag).p(");");
                 }
                 pline();
                 p2tline("_r_s = sbNew.toString();");
@@ -267,8 +291,11 @@ public class InvokeTemplateParser extends CaretParserFactoryBase {
                     p2tline(String.format("_r_s = org.rythmengine.utils.Escape.%s.apply(_r_s);", escape.name()));
                 }
                 if (enableCache) {
-                    p2t("__engine().cache(").p(cacheKey()).p(", _r_s, ").p(cacheDuration).p(cacheArgs).p(");");
+                    p2t("_fc.put(_ck, _r_s, ").p(cacheTTL).p(");");
                     pline();
+                    p2tline("} finally {");
+                    p3tline("_fc.release(_ck);");
+                    p2tline("}");
                 }
                 ptline("}");
                 if (assignTo != null) {
@@ -283,9 +310,9 @@ public class InvokeTemplateParser extends CaretParserFactoryBase {
                 }
             } else {
                 if (ctx.peekInsideBody()) {
-                    p2t("__invokeTag(").p(line).p(", ").p(tagName).p(", _pl, null, __self, ").p(ignoreNonExistsTag).p(");");
+                    pInvoke().p(", null, __self, ").p(ignoreNonExistsTag).p(");");
                 } else {
-                    p2t("__invokeTag(").p(line).p(", ").p(tagName).p(", _pl, ").p(ignoreNonExistsTag).p(");");
+                    pInvoke().p(", null, null, ").p(ignoreNonExistsTag).p(");");
                 }
                 pline();
             }
@@ -358,15 +385,20 @@ public class InvokeTemplateParser extends CaretParserFactoryBase {
                 pline("Object _r_s = null;");
                 if (enableCache) {
                     ptline("String _plUUID = null == _pl ? \"\" : _pl.toUUID();");
-                    pt("_r_s = __engine().cached(").p(cacheKey()).p(cacheArgs).p(");");
+                    pt("org.rythmengine.internal.CacheKey _ck = org.rythmengine.internal.CacheKey.of(").p(cacheKey()).p(cacheArgs).p(");");
                     pline();
+                    ptline("org.rythmengine.cache.FragmentCache _fc = __engine().fragmentCache();");
+                    ptline("_r_s = _fc.get(_ck);");
                 }
                 ptline("if (null == _r_s) {");
                 p2tline("StringBuilder sbOld = __getBuffer();");
                 p2tline("StringBuilder sbNew = new StringBuilder();");
                 p2tline("setSelfOut(sbNew);");
+                if (enableCache) {
+                    p2tline("try {");
+                }
             }
-            p2t("__invokeTag(").p(line).p(", ").p(tagName).p(", _pl,  new org.rythmengine.template.ITag.__Body(").p(curClassName).p(".this) {");
+            pInvoke().p(", new org.rythmengine.template.ITag.__Body(").p(curClassName).p(".this) {");
             pline();
             if (null != argList && !argList.isEmpty()) {
                 buildBodyArgList(argList);
@@ -429,9 +461,9 @@ public class InvokeTemplateParser extends CaretParserFactoryBase {
             });
             if (!needsNewOut()) {
                 if (ctx.peekInsideBody2()) {
-                    return "\n\t\t}\n\t}, __self);\n}";
+                    return "\n\t\t}\n\t}, __self, " + ignoreNonExistsTag + ");\n}";
                 } else {
-                    return "\n\t\t}\n\t});\n}";
+                    return "\n\t\t}\n\t}, null, " + ignoreNonExistsTag + ");\n}";
                 }
             }
             if (enableCache) {
@@ -446,7 +478,7 @@ public class InvokeTemplateParser extends CaretParserFactoryBase {
             if (ctx.peekInsideBody2()) {
                 p2t("}, __self, ").p(ignoreNonExistsTag).p(");");
             } else {
-                p2t("}, ").p(ignoreNonExistsTag).p(");");
+                p2t("}, null, ").p(ignoreNonExistsTag).p(");");
             }
             pline();
             p2tline("_r_s = sbNew.toString();");
@@ -455,8 +487,11 @@ public class InvokeTemplateParser extends CaretParserFactoryBase {
                 p2tline(String.format("_r_s = org.rythmengine.utils.Escape.%s.apply(_r_s);", escape.name()));
             }
             if (enableCache) {
-                p2t("__engine().cache(").p(cacheKey()).p(", _r_s, ").p(cacheDuration).p(cacheArgs).p(");");
+                p2t("_fc.put(_ck, _r_s, ").p(cacheTTL).p(");");
                 pline();
+                p2tline("} finally {");
+                p3tline("_fc.release(_ck);");
+                p2tline("}");
             }
             ptline("}");
             if (assignTo != null) {
@@ -495,7 +530,7 @@ public class InvokeTemplateParser extends CaretParserFactoryBase {
             @Override
             public Token go() {
                 Regex r = new Regex(String.format(patternStr(), dialect().a()));
-                if (!r.search(remain())) return null;
+                if (!r.matchAt(remain(), 0)) return null;
                 String tagName = r.stringMatched(2);
                 try {
                     tagName = testTag(tagName);
@@ -57,10 +57,13 @@ public class MacroParser extends KeywordParserFactory {
                     @Override
                     public void openBlock() {
                         ctx().getCodeBuilder().pushMacro(macro);
+                        // the macro could be executed under any escape scheme
+                        ctx().pushEscape(null);
                     }
 
                     @Override
                     public String closeBlock() {
+                        ctx().popEscape();
                         ctx().getCodeBuilder().popMacro();
                         return "";
                     }
@@ -42,10 +42,10 @@ public class NullableExpressionParser extends CaretParserFactoryBase {
                 String s = remain();
                 String exp;
                 int step;
-                if (r1.search(s)) {
+                if (r1.matchAt(s, 0)) {
                     exp = r1.stringMatched(2);
                     step = r1.stringMatched(1).length();
-                } else if (r2.search(s)) {
+                } else if (r2.matchAt(s, 0)) {
                     exp = r2.stringMatched(2);
                     exp = S.stripBrace(exp);
                     step = r2.stringMatched().length();
@@ -11,6 +11,7 @@ import org.rythmengine.internal.Keyword;
 import org.rythmengine.internal.Token;
 import org.rythmengine.internal.parser.BlockCodeToken;
 import org.rythmengine.internal.parser.ParserBase;
+import org.rythmengine.utils.Escape;
 import org.rythmengine.utils.TextBuilder;
 import com.stevesoft.pat.Regex;
 
@@ -51,6 +52,7 @@ public class RawParser extends KeywordParserFactory {
                     }
                 }
                 step(matched.length());
+                ctx.pushEscape(Escape.RAW);
                 return new BlockCodeToken("__ctx.pushEscape(org.rythmengine.utils.Escape.RAW);", ctx()) {
                     @Override
                     public void openBlock() {
@@ -58,6 +60,7 @@ public class RawParser extends KeywordParserFactory {
 
                     @Override
                     public String closeBlock() {
+                        ctx.popEscape();
                         return "__ctx.popEscape();";
                     }
                 };
@@ -33,8 +33,11 @@ public class ScriptParser extends RemoveLeadingLineBreakAndSpacesParser {
     public Token go() {
         IContext ctx = ctx();
         //if (ctx.currentBlock() == null) return null;
+        CharSequence remain = ctx.getRemainSequence();
+        String lead = a() + "{";
+        if (remain.length() < lead.length() || !lead.contentEquals(remain.subSequence(0, lead.length()))) return null;
         Regex r = new Regex(String.format(PTN, a(), a()));
-        if (!r.search(ctx.getRemain())) return null;
+        if (!r.matchAt(ctx.getRemain(), 0)) return null;
         if (!ctx.getDialect().enableScripting()) {
             throw new TemplateParser.ScriptingDisabledException(ctx);
         }
@@ -59,6 +62,7 @@ public class ScriptParser extends RemoveLeadingLineBreakAndSpacesParser {
         if (!hasIfStatement && !lastLine.trim().endsWith(";")) sb.append(";");
         String code = sb.toString();
         checkRestrictedClass(code);
+        ctx.getCodeBuilder().addLocals(code);
         return new CodeToken(code, ctx);
     }
 
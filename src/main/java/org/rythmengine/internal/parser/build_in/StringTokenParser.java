@@ -9,9 +9,6 @@ import org.rythmengine.internal.IContext;
 import org.rythmengine.internal.Token;
 import org.rythmengine.internal.parser.ParserBase;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 /**
  * The StringToken probe grab plain texts (no special token at all)
  */
@@ -21,31 +18,33 @@ public class StringTokenParser extends ParserBase {
         super(context);
     }
 
+    // characters that could start anything other than plain text
+    private static final String STOP_CHARS = "\n\r@<#$&{}-*/";
+
     /*
-     * ([^@]+((@[^@]+?)
+     * Grab the text up to the next stop character, or up to the stop
+     * character after a leading escaped caret
      */
-    private static final String PTN = "(%s%s.*?|.*?)([\\n\\r@\\<\\#\\$\\&\\{\\}\\-\\*\\/].*|$)";
-
     @Override
     public Token go() {
         IContext ctx = ctx();
-        String s = ctx.getRemain();
-        if (s.length() == 0) {
+        CharSequence remain = ctx.getRemainSequence();
+        int len = remain.length();
+        if (len == 0) {
             return Token.EMPTY_TOKEN;
         }
         String a = a();
-        Pattern p = Pattern.compile(String.format(PTN, a, a),
-                Pattern.DOTALL);
-        Matcher m = p.matcher(s);
-        if (!m.matches()) {
-            return null;
+        String aa = a + a;
+        int i = startsWith(remain, aa) ? aa.length() : 0;
+        while (i < len && STOP_CHARS.indexOf(remain.charAt(i)) < 0) {
+            i++;
         }
-        s = m.group(1);
-        if (s.length() == 0) {
+        if (i == 0) {
             return null;
         }
-        ctx.step(s.length());
-        s = s.replace(String.format("%s%s", a, a), a).replace("\\", "\\\\");
+        String s = remain.subSequence(0, i).toString();
+        ctx.step(i);
+        s = s.replace(aa, a).replace("\\", "\\\\");
         if ("".equals(s)) {
             return Token.EMPTY_TOKEN;
         } else {
@@ -53,4 +52,17 @@ public class StringTokenParser extends ParserBase {
         }
     }
 
+    private static boolean startsWith(CharSequence s, String prefix) {
+        int len = prefix.length();
+        if (s.length() < len) {
+            return false;
+        }
+        for (int i = 0; i < len; ++i) {
+            if (s.charAt(i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
 }
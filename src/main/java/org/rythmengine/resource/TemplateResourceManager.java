@@ -23,11 +23,16 @@ import java.net.URI;
 import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The template resource manager manages all template resource loaders and also cache the resource after they
@@ -35,7 +40,6 @@ import java.util.concurrent.ScheduledThreadPoolExecutor;
  */
 public class TemplateResourceManager {
 
-    @SuppressWarnings("unused")
     private static final ILogger logger = Logger.get(TemplateResourceManager.class); 
     
     /**
@@ -111,12 +115,22 @@ public class TemplateResourceManager {
      */
     private static Set<String> blackList = new CopyOnWriteArraySet<String>();
     
+    /**
+     * Store the String reported as NOT a resource by the template being parsed in the current thread.
+     * Nested parses, e.g. a tag loaded while parsing the template invoking it, push their own set
+     */
     private static ThreadLocal<Deque<Set<String>>> tmpBlackList = new ThreadLocal<Deque<Set<String>>>() {
         @Override
         protected Deque<Set<String>> initialValue() {
             return new ConcurrentLinkedDeque<Set<String>>();
         }
     };
+
+    /**
+     * Store the String reported as NOT a resource by a parsed template until the template is compiled,
+     * which might happen in another thread, see {@link #holdTmpBlackList(TemplateClass)}
+     */
+    private static ConcurrentMap<TemplateClass, Set<String>> heldBlackList = new ConcurrentHashMap<TemplateClass, Set<String>>();
     
     public static void setUpTmpBlackList() {
         tmpBlackList.get().push(new CopyOnWriteArraySet<String>());
@@ -132,15 +146,54 @@ public class TemplateResourceManager {
             ss.peek().add(str);
         }
     }
-    
-    public static void commitTmpBlackList() {
+
+    /**
+     * Called when the template class has been parsed. The temp black list of the parse is handed to the
+     * enclosing parse if there is one, otherwise it is held until the template class is compiled
+     *
+     * @param tc the template class parsed
+     */
+    public static void holdTmpBlackList(TemplateClass tc) {
         Deque<Set<String>> sss = tmpBlackList.get();
+        if (sss.isEmpty()) {
+            tmpBlackList.remove();
+            return;
+        }
+        Set<String> ss = sss.pop();
         if (!sss.isEmpty()) {
-            Set<String> ss = sss.pop();
+            sss.peek().addAll(ss);
+            return;
+        }
+        tmpBlackList.remove();
+        if (null == tc) {
             blackList.addAll(ss);
+        } else if (ss.isEmpty()) {
+            heldBlackList.remove(tc);
+        } else {
+            heldBlackList.put(tc, ss);
         }
-        if (sss.isEmpty()) {
-            tmpBlackList.remove();
+    }
+
+    /**
+     * Called when the template class has been compiled
+     *
+     * @param tc the template class compiled
+     */
+    public static void commitTmpBlackList(TemplateClass tc) {
+        Set<String> ss = heldBlackList.remove(tc);
+        if (null != ss) {
+            blackList.addAll(ss);
+        }
+    }
+
+    /**
+     * Called when the template class failed to parse or compile
+     *
+     * @param tc the template class
+     */
+    public static void rollbackTmpBlackList(TemplateClass tc) {
+        if (null != tc) {
+            heldBlackList.remove(tc);
         }
     }
     
@@ -281,47 +334,123 @@ public class TemplateResourceManager {
         return null == resource ? NULL : cache(key, resource);
     }
     
+    /**
+     * Call the resource loaders to scan their template resources and load the templates found,
+     * see {@link #precompile()}
+     */
     public void scan() {
-        for (ITemplateResourceLoader loader : loaders) {
-            loader.scan(this);
+        precompile();
+    }
+
+    /**
+     * Call the resource loaders to scan their template resources and load the templates found.
+     * The templates are parsed in parallel, then compiled in a few large batches before they
+     * are loaded
+     *
+     * @return the time taken by each phase
+     */
+    public synchronized PrecompileStats precompile() {
+        long start = System.nanoTime();
+        Queue<Future<TemplateClass>> parsing = new ConcurrentLinkedQueue<Future<TemplateClass>>();
+        this.parsing = parsing;
+        try {
+            for (ITemplateResourceLoader loader : loaders) {
+                loader.scan(this);
+            }
+        } finally {
+            this.parsing = null;
+        }
+        long scanned = System.nanoTime();
+        List<TemplateClass> classes = new ArrayList<TemplateClass>();
+        RuntimeException failure = null;
+        boolean interrupted = false;
+        for (Future<TemplateClass> f : parsing) {
+            while (true) {
+                try {
+                    TemplateClass tc = f.get();
+                    if (null != tc) {
+                        classes.add(tc);
+                    }
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (null == failure) {
+                        failure = cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+                    }
+                    break;
+                }
+            }
         }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (null != failure) {
+            throw failure;
+        }
+        long parsed = System.nanoTime();
+        engine.classes().compile(classes, loadingService);
+        long compiled = System.nanoTime();
+        for (TemplateClass tc : classes) {
+            tc.asTemplate(engine);
+        }
+        long loaded = System.nanoTime();
+        PrecompileStats stats = new PrecompileStats(classes.size(), scanned - start, parsed - scanned, compiled - parsed, loaded - compiled);
+        logger.info("%s", stats);
+        return stats;
     }
 
     public void resourceLoaded(final ITemplateResource resource) {
         resourceLoaded(resource, true);
     }
-    
+
+    /**
+     * Called when a template resource is found. The template is loaded at once unless loaded
+     * asynchronously during a {@link #precompile()}, in which case <code>null</code> is returned
+     *
+     * @param resource the template resource
+     * @param async    load the template asynchronously if possible
+     * @return the template class loaded
+     */
     public TemplateClass resourceLoaded(final ITemplateResource resource, boolean async) {
         final ITemplateResourceLoader loader = resource.getLoader();
-        //if (!async) { no async load at the moment
-        if (true) {
-            whichLoader.put(resource.getKey(), loader);
-            return _resourceLoaded(resource);
-        } else {
-            loadingService.submit(new Callable<Object>() {
-                @Override
-                public Object call() throws Exception {
-                    whichLoader.put(resource.getKey(), loader);
-                    _resourceLoaded(resource);
-                    return null;
-                }
-            });
-            return null;
+        whichLoader.put(resource.getKey(), loader);
+        Queue<Future<TemplateClass>> parsing = this.parsing;
+        if (!async || null == parsing) {
+            TemplateClass tc = parse(resource);
+            if (null != tc) {
+                tc.asTemplate(engine);
+            }
+            return tc;
         }
+        parsing.add(loadingService.submit(new Callable<TemplateClass>() {
+            @Override
+            public TemplateClass call() {
+                return parse(resource);
+            }
+        }));
+        return null;
     }
     
-    private TemplateClass _resourceLoaded(ITemplateResource resource) {
+    private TemplateClass parse(final ITemplateResource resource) {
         if (!resource.isValid()) return null;
-        String key = S.str(resource.getKey());
+        String key0 = S.str(resource.getKey());
         if (typeInference) {
-            key += ParamTypeInferencer.uuid();
+            key0 += ParamTypeInferencer.uuid();
         }
-        RythmEngine engine = this.engine;
+        final String key = key0;
+        final RythmEngine engine = this.engine;
         TemplateClass tc = engine.classes().getByTemplate(key);
         if (null == tc) {
-            tc = new TemplateClass(resource, engine);
+            tc = engine.classes().getOrLoad(key, new Callable<TemplateClass>() {
+                @Override
+                public TemplateClass call() {
+                    TemplateClass tc = engine.classes().tmplIdx.get(key);
+                    return null != tc ? tc : new TemplateClass(resource, engine);
+                }
+            });
         }
-        tc.asTemplate(engine);
         return tc;
     }
 
@@ -331,12 +460,76 @@ public class TemplateResourceManager {
         }
     }
 
-    /* 
-     * At the moment we don't support parsing templates in parallel, so ...
+    /**
+     * Parse the templates found by {@link #precompile()} and compile them in parallel
      */
-    private ScheduledExecutorService loadingService = new ScheduledThreadPoolExecutor(1, new ScannerThreadFactory());
+    private ExecutorService loadingService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ScannerThreadFactory());
+
+    /**
+     * The templates being parsed during a {@link #precompile()}
+     */
+    private volatile Queue<Future<TemplateClass>> parsing;
     
     public void shutdown() {
         loadingService.shutdown();
     }
+
+    /**
+     * The wall clock time taken by each phase of a {@link #precompile()}
+     */
+    public static class PrecompileStats {
+        private final int size;
+        private final long scanTime;
+        private final long parseTime;
+        private final long compileTime;
+        private final long loadTime;
+
+        PrecompileStats(int size, long scanTime, long parseTime, long compileTime, long loadTime) {
+            this.size = size;
+            this.scanTime = scanTime;
+            this.parseTime = parseTime;
+            this.compileTime = compileTime;
+            this.loadTime = loadTime;
+        }
+
+        /**
+         * @return the number of templates loaded
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @return the time taken by the resource loaders to scan the templates, in milliseconds
+         */
+        public long scanTime() {
+            return TimeUnit.NANOSECONDS.toMillis(scanTime);
+        }
+
+        /**
+         * @return the time taken to parse the templates after the scan, in milliseconds
+         */
+        public long parseTime() {
+            return TimeUnit.NANOSECONDS.toMillis(parseTime);
+        }
+
+        /**
+         * @return the time taken to compile the templates, in milliseconds
+         */
+        public long compileTime() {
+            return TimeUnit.NANOSECONDS.toMillis(compileTime);
+        }
+
+        /**
+         * @return the time taken to load the compiled templates, in milliseconds
+         */
+        public long loadTime() {
+            return TimeUnit.NANOSECONDS.toMillis(loadTime);
+        }
+
+        @Override
+        public String toString() {
+            return "PrecompileStats{size=" + size + ", scanTime=" + scanTime() + "ms, parseTime=" + parseTime() + "ms, compileTime=" + compileTime() + "ms, loadTime=" + loadTime() + "ms}";
+        }
+    }
 }
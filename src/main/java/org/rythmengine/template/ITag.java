@@ -173,6 +173,36 @@ public interface ITag {
         }
     }
 
+    /**
+     * A tag invocation site in a template. The generated template code keeps one
+     * call site per tag invocation, the engine links it to the tag resolved on the
+     * first call, so that subsequent calls can skip the tag name lookup. The link is
+     * dropped and resolved again when the tag is reloaded or registered again.
+     * <p/>
+     * <p>Not an API for user application</p>
+     */
+    public static final class __CallSite {
+        private volatile Object link;
+
+        /**
+         * Return the link object set by the engine
+         *
+         * @return the link or <code>null</code> if the call site is not linked yet
+         */
+        public Object link() {
+            return link;
+        }
+
+        /**
+         * Set the link object
+         *
+         * @param link
+         */
+        public void link(Object link) {
+            this.link = link;
+        }
+    }
+
     /**
      * Defines a tag body type
      */
@@ -16,7 +16,7 @@ import org.rythmengine.utils.JSONWrapper;
 import java.io.OutputStream;
 import java.io.Writer;
 import java.util.*;
-import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Define a template instance API
@@ -207,27 +207,76 @@ public interface ITemplate extends ITag, Cloneable {
 
     /**
      * The render time context. Not to be used in user application or template
+     * <p/>
+     * <p>A context is used by one rendering template at a time. Instead of being
+     * allocated for each template instance, contexts are {@link #acquire() acquired}
+     * from a small lock free pool and {@link #release() released} back when the
+     * render is finished</p>
      */
     public static class __Context {
 
+        private static final int POOL_SIZE = 64;
+        private static final int POOL_PROBES = 4;
+        private static final AtomicReferenceArray<__Context> pool = new AtomicReferenceArray<__Context>(POOL_SIZE);
+
+        private static int poolSlot() {
+            int h = (int) Thread.currentThread().getId() * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & (POOL_SIZE - 1);
+        }
+
+        /**
+         * Get a context from the pool, or create a new one if there is none available
+         *
+         * @return a clean context
+         */
+        public static __Context acquire() {
+            int slot = poolSlot();
+            for (int i = 0; i < POOL_PROBES; ++i) {
+                int idx = (slot + i) & (POOL_SIZE - 1);
+                __Context ctx = pool.get(idx);
+                if (null != ctx && pool.compareAndSet(idx, ctx, null)) {
+                    return ctx;
+                }
+            }
+            return new __Context();
+        }
+
+        /**
+         * Clear this context and return it to the pool. The context must
+         * not be used after calling this method
+         */
+        public void release() {
+            codeTypeStack.clear();
+            escapeStack.clear();
+            localeStack.clear();
+            tmpl = null;
+            conf = null;
+            int slot = poolSlot();
+            for (int i = 0; i < POOL_PROBES; ++i) {
+                if (pool.compareAndSet((slot + i) & (POOL_SIZE - 1), null, this)) {
+                    return;
+                }
+            }
+        }
+
         /**
          * Code type stack. Used to enable the
          * {@link org.rythmengine.conf.RythmConfigurationKey#FEATURE_NATURAL_TEMPLATE_ENABLED}
          * 
          * @see {@link #localeStack}
          */
-        private Deque<ICodeType> codeTypeStack = new ConcurrentLinkedDeque<ICodeType>();
+        private final Deque<ICodeType> codeTypeStack = new ArrayDeque<ICodeType>(4);
 
         /**
          * template escape stack. Used to enable the
          * {@link org.rythmengine.conf.RythmConfigurationKey#FEATURE_SMART_ESCAPE_ENABLED}
          */
-        private Deque<Escape> escapeStack = new ConcurrentLinkedDeque<Escape>();
+        private final Deque<Escape> escapeStack = new ArrayDeque<Escape>(4);
 
         /**
          * template locale stack. Used to track the locale in the current context.
          */
-        private Deque<Locale> localeStack = new ConcurrentLinkedDeque<Locale>();
+        private final Deque<Locale> localeStack = new ArrayDeque<Locale>(4);
 
         private TemplateBase tmpl;
         
@@ -237,6 +286,17 @@ public interface ITemplate extends ITag, Cloneable {
             this.tmpl = tmpl;
             this.conf = conf;
         }
+
+        /**
+         * init the context with template and configuration only. The code type and
+         * locale fall back to the configured defaults
+         *
+         * @param templateBase
+         * @param conf
+         */
+        public void init(TemplateBase templateBase, RythmConfiguration conf) {
+            setTemplate(templateBase, conf);
+        }
         
         /**
          * init the context with template and base code type
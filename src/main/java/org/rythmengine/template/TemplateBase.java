@@ -14,6 +14,7 @@ import org.rythmengine.conf.RythmConfiguration;
 import org.rythmengine.exception.FastRuntimeException;
 import org.rythmengine.exception.RythmException;
 import org.rythmengine.extension.ICodeType;
+import org.rythmengine.extension.IFlushPolicy;
 import org.rythmengine.extension.II18nMessageResolver;
 import org.rythmengine.internal.IEvent;
 import org.rythmengine.internal.RythmEvents;
@@ -27,6 +28,9 @@ import org.rythmengine.utils.*;
 import java.io.*;
 import java.lang.reflect.Array;
 import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
@@ -65,7 +69,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
 
     public void __prepareRender(ICodeType type, Locale locale, RythmEngine engine) {
         TemplateClass tc = __templateClass;
-        __ctx.init(this, type, locale, tc, engine);
+        __ctx().init(this, type, locale, tc, engine);
         Class<? extends TemplateBase> c = getClass();
         Class<?> pc = c.getSuperclass();
         if (TemplateBase.class.isAssignableFrom(pc) && !Modifier.isAbstract(pc.getModifiers())) {
@@ -82,7 +86,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
             }
         }
         if (null != __parent) {
-            __parent.__ctx.init(__parent, type, locale, tc, engine);
+            __parent.__ctx().init(__parent, type, locale, tc, engine);
         }
     }
 
@@ -102,6 +106,9 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
 
     private Writer w;
     private OutputStream os;
+    private OutputSink sink;
+    // the buffer written to the sink, other buffers capture the output of a block
+    private StringBuilder sinkBuffer;
 
     @Override
     public ITemplate __setWriter(Writer writer) {
@@ -109,6 +116,8 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
         if (null != os) throw new IllegalStateException("Cannot set writer to template when outputstream is presented");
         if (null != this.w)
             throw new IllegalStateException("Cannot set writer to template when an writer is presented");
+        RythmConfiguration conf = __engine().conf();
+        __setSink(new CharSink(writer, conf.outputFlushPolicy(), conf.outputBufferSize()));
         this.w = writer;
         return this;
     }
@@ -119,16 +128,25 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
         if (null != w) throw new IllegalStateException("Cannot set output stream to template when writer is presented");
         if (null != this.os)
             throw new IllegalStateException("Cannot set output stream to template when an outputstream is presented");
+        RythmConfiguration conf = __engine().conf();
+        __setSink(new ByteSink(os, conf.outputCharset(), conf.outputFlushPolicy(), conf.outputBufferSize()));
         this.os = os;
         return this;
     }
 
+    private void __setSink(OutputSink sink) {
+        if (null != this.sink)
+            throw new IllegalStateException("Cannot set output to template when an output destination is presented");
+        this.sink = sink;
+        this.sinkBuffer = __buffer;
+    }
+
     /**
      * Stores render args of this template. The generated template source code
      * will also declare render args as separate protected field while keeping
      * a copy inside this Map data structure
      */
-    protected Map<String, Object> __renderArgs = new ConcurrentHashMap<String, Object>();
+    protected Map<String, Object> __renderArgs = new HashMap<String, Object>();
 
     /**
      * Return the {@link RythmEngine engine} running this template
@@ -244,13 +262,28 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
         __engine.invokeTemplate(line, name, this, params, body, context, ignoreNonExistsTag);
     }
 
+    /**
+     * Invoke a tag through a linked call site. Usually should not used directly in user template
+     *
+     * @param line
+     * @param name
+     * @param site
+     * @param params
+     * @param body
+     * @param context
+     * @param ignoreNonExistsTag
+     */
+    protected void __invokeTag(int line, String name, ITag.__CallSite site, ITag.__ParameterList params, ITag.__Body body, ITag.__Body context, boolean ignoreNonExistsTag) {
+        __engine.invokeTemplate(line, name, site, this, params, body, context, ignoreNonExistsTag);
+    }
+
     /* to be used by dynamic generated sub classes */
     private String layoutContent = "";
-    // store the current template section content
-    private Map<String, String> layoutSections = new ConcurrentHashMap<String, String>();
-    // store the parent default section content
-    private Map<String, String> layoutSections0 = new ConcurrentHashMap<String, String>();
-    private Map<String, Object> renderProperties = new ConcurrentHashMap<String, Object>();
+    // store the current template section content, allocated on first use
+    private Map<String, String> layoutSections = null;
+    // store the parent default section content, allocated on first use
+    private Map<String, String> layoutSections0 = null;
+    private Map<String, Object> renderProperties = null;
 
     /**
      * The parent template (layout template)
@@ -313,11 +346,22 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      * @param section
      */
     private void __addLayoutSection(String name, String section, boolean def) {
-        Map<String, String> m = def ? layoutSections0 : layoutSections;
+        Map<String, String> m;
+        if (def) {
+            if (null == layoutSections0) layoutSections0 = new HashMap<String, String>();
+            m = layoutSections0;
+        } else {
+            if (null == layoutSections) layoutSections = new HashMap<String, String>();
+            m = layoutSections;
+        }
         if (m.containsKey(name)) return;
         m.put(name, section);
     }
 
+    private static String __section(Map<String, String> sections, String name) {
+        return null == sections ? null : sections.get(name);
+    }
+
     private StringBuilder tmpOut = null;
     private String section = null;
     private TextBuilder tmpCaller = null;
@@ -365,14 +409,15 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      * @param name
      */
     protected void __pLayoutSection(String name) {
-        String s = layoutSections.get(name);
-        if (null == s) s = layoutSections0.get(name);
+        String s = __section(layoutSections, name);
+        if (null == s) s = __section(layoutSections0, name);
         else {
-            String s0 = layoutSections0.get(name);
+            String s0 = __section(layoutSections0, name);
             if (s0 == null) s0 = "";
             s = s.replace("\u0000\u0000inherited\u0000\u0000", s0);
         }
         p(s);
+        __flush(IFlushPolicy.Point.SECTION);
     }
 
     /**
@@ -392,7 +437,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      * @return section data by name
      */
     protected RawData __getSection(String name) {
-        return S.raw(layoutSections.get(name));
+        return S.raw(__section(layoutSections, name));
     }
 
     /**
@@ -401,7 +446,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      * @return layout content
      */
     protected RawData __getSection() {
-        return S.raw(S.isEmpty(layoutContent) ? layoutSections.get("__CONTENT__") : layoutContent);
+        return S.raw(S.isEmpty(layoutContent) ? __section(layoutSections, "__CONTENT__") : layoutContent);
     }
 
     /**
@@ -409,14 +454,19 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      */
     protected void __pLayoutContent() {
         p(__getSection());
+        __flush(IFlushPolicy.Point.SECTION);
     }
 
     private void addAllLayoutSections(Map<String, String> sections) {
-        if (null != sections) layoutSections.putAll(sections);
+        if (null == sections || sections.isEmpty()) return;
+        if (null == layoutSections) layoutSections = new HashMap<String, String>(sections);
+        else layoutSections.putAll(sections);
     }
 
     private void addAllRenderProperties(Map<String, Object> properties) {
-        if (null != properties) renderProperties.putAll(properties);
+        if (null == properties || properties.isEmpty()) return;
+        if (null == renderProperties) renderProperties = new HashMap<String, Object>(properties);
+        else renderProperties.putAll(properties);
     }
 
     /**
@@ -448,14 +498,16 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
         }
         tmpl.__engine = engine;
         //tmpl.__templateClass = __templateClass;
-        tmpl.__ctx = new __Context();
+        // the render context is acquired from the pool on first use
+        tmpl.__ctx = null;
         //if (null != buffer) tmpl.__buffer = buffer;
         if (null != __buffer) tmpl.__buffer = new StringBuilder();
-        tmpl.__renderArgs = new ConcurrentHashMap<String, Object>(__renderArgs.size());
+        // a template instance is rendered by one thread at a time
+        tmpl.__renderArgs = new HashMap<String, Object>();
         //tmpl.layoutContent = "";
-        tmpl.layoutSections = new ConcurrentHashMap<String, String>();
-        tmpl.layoutSections0 = new ConcurrentHashMap<String, String>();
-        tmpl.renderProperties = new ConcurrentHashMap<String, Object>();
+        tmpl.layoutSections = null;
+        tmpl.layoutSections0 = null;
+        tmpl.renderProperties = null;
         //tmpl.section = null;
         //tmpl.tmpCaller = null;
         //tmpl.tmpOut = null;
@@ -464,7 +516,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
         //tmpl.os = null;
         if (null != caller) {
             tmpl.__caller = (TextBuilder) caller;
-            Map<String, Object> callerRenderArgs = new HashMap<String, Object>(((TemplateBase) caller).__renderArgs);
+            Map<String, Object> callerRenderArgs = ((TemplateBase) caller).__renderArgs;
             Map<String, Class> types = tmpl.__renderArgTypeMap();
             for (Map.Entry<String, Object> entry : callerRenderArgs.entrySet()) {
                 if (tmpl.__renderArgs.containsKey(entry.getKey())) continue;
@@ -554,6 +606,31 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
         render();
     }
 
+    /**
+     * Render to binary channel. This method is usually called from API defined in
+     * {@link RythmEngine}
+     *
+     * @param channel
+     */
+    public final void render(WritableByteChannel channel) {
+        if (null == channel) throw new NullPointerException();
+        RythmConfiguration conf = __engine().conf();
+        __setSink(new ByteSink(channel, conf.outputCharset(), conf.outputFlushPolicy(), conf.outputBufferSize()));
+        render();
+    }
+
+    /**
+     * Render into byte buffer. This method is usually called from API defined in
+     * {@link RythmEngine}
+     *
+     * @param buffer
+     */
+    public final void render(ByteBuffer buffer) {
+        if (null == buffer) throw new NullPointerException();
+        __setSink(new ByteSink(buffer, __engine().conf().outputCharset()));
+        render();
+    }
+
     /**
      * Trigger render events.
      * <p>Not an API for user application</p>
@@ -573,6 +650,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
     public final String render() {
         RythmEngine engine = __engine();
         boolean engineSet = RythmEngine.set(engine);
+        __ctx();
         try {
             long l = 0l;
             boolean logTime = __logTime();
@@ -580,7 +658,9 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
                 l = System.currentTimeMillis();
             }
 
-            __triggerRenderEvent(RythmEvents.ON_RENDER, engine);
+            if (engine.renderHooksLive()) {
+                __triggerRenderEvent(RythmEvents.ON_RENDER, engine);
+            }
             __setup();
             if (logTime) {
                 __logger.debug("< preprocess [%s]: %sms", getClass().getName(), System.currentTimeMillis() - l);
@@ -588,6 +668,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
             }
             try {
                 String s = __internalRender();
+                __flushSink();
                 return s;
             } finally {
                 __triggerRenderEvent(RythmEvents.RENDERED, engine);
@@ -599,12 +680,23 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
             engine.restart(e);
             return render();
         } finally {
+            __releaseCtx();
             if (engineSet) {
                 RythmEngine.clear();
             }
         }
     }
 
+    private void __flushSink() {
+        if (null != sink) {
+            try {
+                sink.flush();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
     private String secureCode = null;
 
     @Override
@@ -618,6 +710,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
     }
 
     private Writer w_ = null;
+    private FileChannel fc_ = null;
 
     /**
      * Set output file path
@@ -625,11 +718,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      * @param path
      */
     protected void __setOutput(String path) {
-        try {
-            w_ = new BufferedWriter(new FileWriter(path));
-        } catch (Exception e) {
-            throw new FastRuntimeException(e.getMessage());
-        }
+        __setOutput(new File(path));
     }
 
     /**
@@ -639,7 +728,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      */
     protected void __setOutput(File file) {
         try {
-            w_ = new BufferedWriter(new FileWriter(file));
+            fc_ = new FileOutputStream(file).getChannel();
         } catch (Exception e) {
             throw new FastRuntimeException(e.getMessage());
         }
@@ -651,7 +740,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      * @param os
      */
     protected void __setOutput(OutputStream os) {
-        w_ = new OutputStreamWriter(os);
+        w_ = new OutputStreamWriter(os, __engine().conf().outputCharset());
     }
 
     /**
@@ -731,6 +820,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      */
     protected void __internalBuild() {
         w_ = null; // reset output destination
+        fc_ = null;
         try {
             long l = 0l;
             if (__logTime()) {
@@ -761,8 +851,27 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
                 Logger.error(e, "failed to write template content to output destination");
             }
         }
+        if (null != fc_) {
+            try {
+                RythmConfiguration conf = __engine().conf();
+                ByteSink fileSink = new ByteSink(fc_, conf.outputCharset(), null, conf.outputBufferSize());
+                fileSink.write(toString()).write(LINE_SEPARATOR);
+                fileSink.flush();
+            } catch (Exception e) {
+                Logger.error(e, "failed to write template content to output destination");
+            } finally {
+                try {
+                    fc_.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+                fc_ = null;
+            }
+        }
     }
 
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
     protected boolean __hasParent() {
         return null != __parent && __parent != this;
     }
@@ -773,6 +882,11 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
     protected String __internalRender() {
         __internalBuild();
         if (__hasParent()) {
+            if (null != sink) {
+                // let the layout template stream to the same destination
+                __parent.sink = sink;
+                __parent.sinkBuffer = __parent.__buffer;
+            }
             __parent.__setLayoutContent(toString());
             __parent.addAllLayoutSections(layoutSections);
             __parent.addAllRenderProperties(renderProperties);
@@ -1150,197 +1264,186 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
     }
 
     /**
-     * The render context
+     * The render context. It is acquired from a pool on first use and
+     * returned to the pool when the render is finished
      */
     protected __Context __ctx = null;//new __Context();
 
-    public ICodeType __curCodeType() {
-        return __ctx.currentCodeType();
+    private __Context __ctx() {
+        __Context ctx = __ctx;
+        if (null == ctx) {
+            ctx = __Context.acquire();
+            ctx.init(this, __engine().conf());
+            __ctx = ctx;
+        }
+        return ctx;
     }
 
-    public Locale __curLocale() {
-        return __ctx.currentLocale();
+    private void __releaseCtx() {
+        __Context ctx = __ctx;
+        if (null != ctx) {
+            __ctx = null;
+            ctx.release();
+        }
     }
 
-    public Escape __curEscape() {
-        return __ctx.currentEscape();
+    public ICodeType __curCodeType() {
+        return __ctx().currentCodeType();
     }
 
-    private boolean appendToBuffer() {
-        return null != __parent || (null == w && null == os);
+    public Locale __curLocale() {
+        return __ctx().currentLocale();
     }
 
-    private boolean appendToWriter() {
-        return (null == __parent && null != w);
+    public Escape __curEscape() {
+        return __ctx().currentEscape();
     }
 
-    private boolean appendToOutputStream() {
-        return (null == __parent && null != os);
+    /*
+     * Output goes to the sink only when this is the outermost template and it is
+     * not capturing a section or a block, e.g. a @cache block; otherwise it is
+     * collected into the buffer
+     */
+    private boolean appendToSink() {
+        return null != sink && null == __parent && null == section && __buffer == sinkBuffer;
     }
 
     @Override
     protected void __append(StrBuf wrapper) {
-        if (appendToBuffer()) {
-            super.__append(wrapper);
-        }
-        if (null == os && null == w) return;
-
-        if (appendToOutputStream()) {
+        if (appendToSink()) {
             try {
-                os.write(wrapper.toBinary());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        } else if (appendToWriter()) {
-            try {
-                w.write(wrapper.toString());
+                sink.write(wrapper);
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
+        } else {
+            super.__append(wrapper);
         }
     }
 
     @Override
     protected void __append(Object o) {
         String oStr = o.toString();
-        if (appendToBuffer()) super.__append(oStr);
-        if (null == os && null == w) return;
-
-        StrBuf wrapper = new StrBuf(oStr);
-        if (appendToOutputStream()) {
+        if (appendToSink()) {
             try {
-                os.write(wrapper.toBinary());
+                sink.write(oStr);
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
-        } else if (appendToWriter()) {
+        } else {
+            super.__append(oStr);
+        }
+    }
+
+    @Override
+    protected void __appendEscaped(String s, Escape escape) {
+        if (appendToSink()) {
             try {
-                w.write(wrapper.toString());
+                escape.escape(s, sink);
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
+        } else {
+            super.__appendEscaped(s, escape);
         }
     }
 
     @Override
     protected void __append(char c) {
-        if (appendToBuffer()) super.__append(c);
-        if (null == os && null == w) return;
-
-        if (appendToOutputStream()) {
-            try {
-                os.write(c);
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        } else if (appendToWriter()) {
+        if (appendToSink()) {
             try {
-                w.write(c);
+                sink.write(c);
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
+        } else {
+            super.__append(c);
         }
     }
 
     @Override
     protected void __append(int i) {
-        if (appendToBuffer()) super.__append(i);
-        if (null == os && null == w) return;
-
-        if (appendToOutputStream()) {
-            StrBuf wrapper = new StrBuf(String.valueOf(i));
+        if (appendToSink()) {
             try {
-                os.write(wrapper.toBinary());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        } else if (appendToWriter()) {
-            try {
-                w.write(String.valueOf(i));
+                sink.write(String.valueOf(i));
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
+        } else {
+            super.__append(i);
         }
     }
 
     @Override
     protected void __append(long l) {
-        if (appendToBuffer()) super.__append(l);
-        if (null == os && null == w) return;
-
-        if (appendToOutputStream()) {
-            StrBuf wrapper = new StrBuf(String.valueOf(l));
-            try {
-                os.write(wrapper.toBinary());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        } else if (appendToWriter()) {
+        if (appendToSink()) {
             try {
-                w.write(String.valueOf(l));
+                sink.write(String.valueOf(l));
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
+        } else {
+            super.__append(l);
         }
     }
 
     @Override
     protected void __append(float f) {
-        if (appendToBuffer()) super.__append(f);
-        if (null == os && null == w) return;
-
-        if (appendToOutputStream()) {
-            StrBuf wrapper = new StrBuf(String.valueOf(f));
+        if (appendToSink()) {
             try {
-                os.write(wrapper.toBinary());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        } else if (appendToWriter()) {
-            try {
-                w.write(String.valueOf(f));
+                sink.write(String.valueOf(f));
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
+        } else {
+            super.__append(f);
         }
     }
 
     @Override
     protected void __append(double d) {
-        if (appendToBuffer()) super.__append(d);
-        if (null == os && null == w) return;
-
-        if (appendToOutputStream()) {
-            StrBuf wrapper = new StrBuf(String.valueOf(d));
+        if (appendToSink()) {
             try {
-                os.write(wrapper.toBinary());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        } else if (appendToWriter()) {
-            try {
-                w.write(String.valueOf(d));
+                sink.write(String.valueOf(d));
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
+        } else {
+            super.__append(d);
         }
     }
 
     @Override
     protected void __append(boolean b) {
-        if (appendToBuffer()) super.__append(b);
-        if (null == os && null == w) return;
-
-        if (appendToOutputStream()) {
-            StrBuf wrapper = new StrBuf(String.valueOf(b));
+        if (appendToSink()) {
             try {
-                os.write(wrapper.toBinary());
+                sink.write(String.valueOf(b));
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
-        } else if (appendToWriter()) {
+        } else {
+            super.__append(b);
+        }
+    }
+
+    /**
+     * Flush the output buffered so far to the writer or output stream this template
+     * renders to, as directed by the configured {@link org.rythmengine.extension.IFlushPolicy flush policy}.
+     * Generated for the <code>@flush()</code> directive. Not to be used in user application
+     */
+    protected void __flush() {
+        __flush(IFlushPolicy.Point.DIRECTIVE);
+    }
+
+    private void __flush(IFlushPolicy.Point point) {
+        TemplateBase caller = __caller();
+        if (null != caller) {
+            caller.__flush(point);
+            return;
+        }
+        if (appendToSink()) {
             try {
-                w.write(String.valueOf(b));
+                sink.flush(point);
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
@@ -1354,7 +1457,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      */
     @Override
     public Escape __defaultEscape() {
-        return __ctx.currentEscape();
+        return __ctx().currentEscape();
     }
 
     @Override
@@ -1401,7 +1504,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
     }
 
     protected final Object __eval(String expr) {
-        Map<String, Object> ctx = new ConcurrentHashMap<String, Object>(__renderArgs);
+        Map<String, Object> ctx = new HashMap<String, Object>(__renderArgs);
         ctx.putAll(itrVars());
         try {
             Object retval = __engine().eval(expr, this, ctx);
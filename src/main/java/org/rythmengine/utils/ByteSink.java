@@ -0,0 +1,322 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.utils;
+
+import org.rythmengine.extension.IFlushPolicy;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * A byte buffer sitting between a rendering template and the binary
+ * output stream or channel. Pre-encoded static segments ({@link TextBuilder.StrBuf})
+ * are copied as is, dynamic values are encoded into the same buffer with
+ * a reused {@link CharsetEncoder}. The buffer is written to the underlying
+ * destination in large chunks instead of once per template token.
+ * <p/>
+ * <p>When writing to a {@link GatheringByteChannel}, a static segment that does
+ * not fit into the remaining buffer is written together with the buffered bytes
+ * in one gathering write instead of being copied. When the sink is created on a
+ * target {@link ByteBuffer}, the content is encoded directly into that buffer and
+ * a {@link BufferOverflowException} is raised if it runs out of space</p>
+ */
+public final class ByteSink extends OutputSink {
+
+    private final OutputStream os;
+    private final WritableByteChannel channel;
+    private final Charset charset;
+    private final CharsetEncoder encoder;
+    private final boolean asciiCompatible;
+    // cleared and flipped through Buffer, as ByteBuffer only overrides these since Java 9
+    private final ByteBuffer bb;
+    private final ByteBuffer[] gather;
+    private char highSurrogate;
+
+    public ByteSink(OutputStream os, Charset charset) {
+        this(os, charset, null, DEF_BUF_SIZE);
+    }
+
+    public ByteSink(OutputStream os, Charset charset, IFlushPolicy flushPolicy, int bufSize) {
+        super(flushPolicy);
+        if (null == os) throw new NullPointerException();
+        this.os = os;
+        this.channel = null;
+        this.charset = null == charset ? Charset.defaultCharset() : charset;
+        this.encoder = newEncoder(this.charset);
+        this.asciiCompatible = isAsciiCompatible(this.charset);
+        this.bb = ByteBuffer.allocate(chunkSize(bufSize));
+        this.gather = null;
+    }
+
+    /**
+     * Construct a sink on a channel. The channel is expected to be in blocking mode
+     *
+     * @param channel     the channel
+     * @param charset     the output charset
+     * @param flushPolicy the flush policy
+     * @param bufSize     the buffer size in bytes
+     */
+    public ByteSink(WritableByteChannel channel, Charset charset, IFlushPolicy flushPolicy, int bufSize) {
+        super(flushPolicy);
+        if (null == channel) throw new NullPointerException();
+        this.os = null;
+        this.channel = channel;
+        this.charset = null == charset ? Charset.defaultCharset() : charset;
+        this.encoder = newEncoder(this.charset);
+        this.asciiCompatible = isAsciiCompatible(this.charset);
+        this.bb = ByteBuffer.allocateDirect(chunkSize(bufSize));
+        this.gather = channel instanceof GatheringByteChannel ? new ByteBuffer[2] : null;
+    }
+
+    /**
+     * Construct a sink that encodes content directly into the target buffer
+     *
+     * @param target  the target buffer
+     * @param charset the output charset
+     */
+    public ByteSink(ByteBuffer target, Charset charset) {
+        super(null);
+        if (null == target) throw new NullPointerException();
+        this.os = null;
+        this.channel = null;
+        this.charset = null == charset ? Charset.defaultCharset() : charset;
+        this.encoder = newEncoder(this.charset);
+        this.asciiCompatible = isAsciiCompatible(this.charset);
+        this.bb = target;
+        this.gather = null;
+    }
+
+    private static CharsetEncoder newEncoder(Charset charset) {
+        return charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    private static boolean isAsciiCompatible(Charset cs) {
+        String name = cs.name();
+        return "UTF-8".equals(name) || "US-ASCII".equals(name) || "ISO-8859-1".equals(name);
+    }
+
+    /**
+     * Return the charset this sink encodes characters with
+     *
+     * @return the charset
+     */
+    public Charset charset() {
+        return charset;
+    }
+
+    /**
+     * Write a pre-encoded static segment. The bytes cached in the
+     * <code>StrBuf</code> are used directly if they were encoded with
+     * the charset of this sink
+     *
+     * @param sb the static segment
+     * @return this sink
+     * @throws IOException
+     */
+    @Override
+    public ByteSink write(TextBuilder.StrBuf sb) throws IOException {
+        return write(sb.toBinary(charset));
+    }
+
+    /**
+     * Write a byte array into the sink. Arrays larger than the free space of the
+     * buffer are written through to the underlying destination after the buffer is drained
+     *
+     * @param ba the bytes
+     * @return this sink
+     * @throws IOException
+     */
+    public ByteSink write(byte[] ba) throws IOException {
+        int len = ba.length;
+        if (len <= bb.remaining()) {
+            bb.put(ba);
+        } else if (null != gather) {
+            gather(ba);
+        } else {
+            drain();
+            if (len <= bb.remaining()) {
+                bb.put(ba);
+            } else if (null != os) {
+                os.write(ba);
+                chunkWritten();
+            } else {
+                writeFully(ByteBuffer.wrap(ba));
+                chunkWritten();
+            }
+        }
+        return this;
+    }
+
+    private void gather(byte[] ba) throws IOException {
+        GatheringByteChannel gc = (GatheringByteChannel) channel;
+        ((Buffer) bb).flip();
+        ByteBuffer[] srcs = gather;
+        srcs[0] = bb;
+        srcs[1] = ByteBuffer.wrap(ba);
+        try {
+            while (srcs[1].hasRemaining()) {
+                gc.write(srcs);
+            }
+        } finally {
+            srcs[1] = null;
+            ((Buffer) bb).clear();
+        }
+        chunkWritten();
+    }
+
+    private void writeFully(ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            channel.write(src);
+        }
+    }
+
+    /**
+     * Encode a character sequence into the sink
+     *
+     * @param s the characters
+     * @return this sink
+     * @throws IOException
+     */
+    @Override
+    public ByteSink write(CharSequence s) throws IOException {
+        return write(s, 0, s.length());
+    }
+
+    /**
+     * Encode a range of a character sequence into the sink
+     *
+     * @param s     the characters
+     * @param start the index of the first character to write
+     * @param end   the index after the last character to write
+     * @return this sink
+     * @throws IOException
+     */
+    @Override
+    public ByteSink write(CharSequence s, int start, int end) throws IOException {
+        int i = start;
+        if (0 != highSurrogate) {
+            if (i == end) return this;
+            i += writePendingSurrogate(s.charAt(i));
+        }
+        if (asciiCompatible) {
+            for (; i < end; ++i) {
+                char c = s.charAt(i);
+                if (c >= 0x80) break;
+                if (!bb.hasRemaining()) drain();
+                bb.put((byte) c);
+            }
+        }
+        if (i < end) {
+            encode(CharBuffer.wrap(s, i, end));
+        }
+        return this;
+    }
+
+    /**
+     * Encode a single character into the sink. A high surrogate is held
+     * back until the low surrogate that follows it is written
+     *
+     * @param c the character
+     * @return this sink
+     * @throws IOException
+     */
+    @Override
+    public ByteSink write(char c) throws IOException {
+        if (0 != highSurrogate) {
+            writePendingSurrogate(c);
+            return this;
+        }
+        if (asciiCompatible && c < 0x80) {
+            if (!bb.hasRemaining()) drain();
+            bb.put((byte) c);
+        } else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else {
+            encode(CharBuffer.wrap(new char[]{c}));
+        }
+        return this;
+    }
+
+    private int writePendingSurrogate(char c) throws IOException {
+        char hs = highSurrogate;
+        highSurrogate = 0;
+        if (Character.isLowSurrogate(c)) {
+            encode(CharBuffer.wrap(new char[]{hs, c}));
+            return 1;
+        }
+        encode(CharBuffer.wrap(new char[]{hs}));
+        return 0;
+    }
+
+    private void encode(CharBuffer cb) throws IOException {
+        encoder.reset();
+        for (; ; ) {
+            CoderResult cr = cb.hasRemaining() ? encoder.encode(cb, bb, true) : CoderResult.UNDERFLOW;
+            if (cr.isUnderflow()) {
+                cr = encoder.flush(bb);
+                if (cr.isUnderflow()) break;
+            }
+            if (cr.isOverflow()) {
+                drain();
+            } else {
+                cr.throwException();
+            }
+        }
+    }
+
+    private void drain() throws IOException {
+        if (null == os && null == channel) {
+            // the target buffer is full, there is nothing to drain it to
+            throw new BufferOverflowException();
+        }
+        if (bb.position() > 0) {
+            writeBuffer();
+            chunkWritten();
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        if (null != os) {
+            os.write(bb.array(), 0, bb.position());
+            ((Buffer) bb).clear();
+        } else {
+            ((Buffer) bb).flip();
+            writeFully(bb);
+            ((Buffer) bb).clear();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (0 != highSurrogate) {
+            char hs = highSurrogate;
+            highSurrogate = 0;
+            encode(CharBuffer.wrap(new char[]{hs}));
+        }
+        if (bb.position() > 0 && (null != os || null != channel)) {
+            writeBuffer();
+        }
+    }
+
+    @Override
+    protected void flushDestination() throws IOException {
+        if (null != os) {
+            os.flush();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.utils;
+
+import org.rythmengine.extension.IFlushPolicy;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A char buffer sitting between a rendering template and the character
+ * based writer. Template output is collected into the buffer and written
+ * to the underlying writer in large chunks instead of once per template token.
+ */
+public final class CharSink extends OutputSink {
+
+    private final Writer w;
+    private final char[] buf;
+    private int pos;
+
+    public CharSink(Writer w) {
+        this(w, null, DEF_BUF_SIZE);
+    }
+
+    public CharSink(Writer w, IFlushPolicy flushPolicy, int bufSize) {
+        super(flushPolicy);
+        if (null == w) throw new NullPointerException();
+        this.w = w;
+        this.buf = new char[chunkSize(bufSize)];
+    }
+
+    @Override
+    public CharSink write(TextBuilder.StrBuf sb) throws IOException {
+        return write(sb.toString());
+    }
+
+    @Override
+    public CharSink write(CharSequence s) throws IOException {
+        return write(s, 0, s.length());
+    }
+
+    @Override
+    public CharSink write(CharSequence s, int start, int end) throws IOException {
+        if (s instanceof String) {
+            return write((String) s, start, end);
+        }
+        for (int i = start; i < end; ++i) {
+            if (pos == buf.length) drain();
+            buf[pos++] = s.charAt(i);
+        }
+        return this;
+    }
+
+    /**
+     * Write a string into the sink. Strings larger than the buffer are
+     * written through to the underlying writer after the buffer is drained
+     *
+     * @param s the string
+     * @return this sink
+     * @throws IOException
+     */
+    public CharSink write(String s) throws IOException {
+        return write(s, 0, s.length());
+    }
+
+    private CharSink write(String s, int start, int end) throws IOException {
+        int len = end - start;
+        if (len <= buf.length - pos) {
+            s.getChars(start, end, buf, pos);
+            pos += len;
+        } else {
+            drain();
+            if (len < buf.length) {
+                s.getChars(start, end, buf, 0);
+                pos = len;
+            } else {
+                w.write(s, start, len);
+                chunkWritten();
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public CharSink write(char c) throws IOException {
+        if (pos == buf.length) drain();
+        buf[pos++] = c;
+        return this;
+    }
+
+    private void drain() throws IOException {
+        if (pos > 0) {
+            w.write(buf, 0, pos);
+            pos = 0;
+            chunkWritten();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (pos > 0) {
+            w.write(buf, 0, pos);
+            pos = 0;
+        }
+    }
+
+    @Override
+    protected void flushDestination() throws IOException {
+        w.flush();
+    }
+}
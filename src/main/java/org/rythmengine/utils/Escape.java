@@ -6,14 +6,22 @@
 package org.rythmengine.utils;
 
 import org.apache.commons.lang3.CharUtils;
-import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.text.translate.EntityArrays;
 import org.rythmengine.RythmEngine;
 import org.rythmengine.template.ITemplate;
 
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Escape
+ * <p/>
+ * <p>Each escape scheme scans the input for the first character that needs to be
+ * escaped. If there is none the input is used as is, otherwise the runs of safe
+ * characters and the replacements of the unsafe ones are appended to the target
+ * directly, without building an intermediate escaped string</p>
  */
 public enum Escape {
     /**
@@ -25,21 +33,28 @@ public enum Escape {
      */
     CSV {
         @Override
-        protected RawData apply_(String s) {
+        protected int indexOfUnsafe(CharSequence s) {
             // fix https://github.com/greenlaw110/Rythm/issues/155
-            //return org.rythmengine.utils.S.escapeCsv(s);
-            return new RawData(CSVEscape.escape(s));
+            return CSVEscape.needsQuote(s) ? 0 : -1;
+        }
+
+        @Override
+        protected void escape_(CharSequence s, int from, Appendable out) throws IOException {
+            CSVEscape.escape(s, out);
         }
     },
     /**
      * HTML escape scheme
      */
-    HTML
+    HTML {
+        @Override
+        protected int indexOfUnsafe(CharSequence s) {
+            return Table.HTML.indexOfUnsafe(s);
+        }
 
-    {
         @Override
-        protected RawData apply_(String s) {
-            return org.rythmengine.utils.S.escapeHtml(s);
+        protected void escape_(CharSequence s, int from, Appendable out) throws IOException {
+            Table.HTML.escape(s, from, out);
         }
     },
     /**
@@ -47,19 +62,27 @@ public enum Escape {
      */
     JS {
         @Override
-        protected RawData apply_(String s) {
-            return org.rythmengine.utils.S.escapeJavaScript(s);
+        protected int indexOfUnsafe(CharSequence s) {
+            return Table.JS.indexOfUnsafe(s);
+        }
+
+        @Override
+        protected void escape_(CharSequence s, int from, Appendable out) throws IOException {
+            Table.JS.escape(s, from, out);
         }
     },
     /**
      * JSON escape scheme
      */
-    JSON
+    JSON {
+        @Override
+        protected int indexOfUnsafe(CharSequence s) {
+            return Table.JSON.indexOfUnsafe(s);
+        }
 
-    {
         @Override
-        protected RawData apply_(String s) {
-            return org.rythmengine.utils.S.escapeJson(s);
+        protected void escape_(CharSequence s, int from, Appendable out) throws IOException {
+            Table.JSON.escape(s, from, out);
         }
     },
     /**
@@ -67,8 +90,13 @@ public enum Escape {
      */
     XML {
         @Override
-        protected RawData apply_(String s) {
-            return org.rythmengine.utils.S.escapeXml(s);
+        protected int indexOfUnsafe(CharSequence s) {
+            return Table.XML.indexOfUnsafe(s);
+        }
+
+        @Override
+        protected void escape_(CharSequence s, int from, Appendable out) throws IOException {
+            Table.XML.escape(s, from, out);
         }
     };
 
@@ -85,7 +113,77 @@ public enum Escape {
     }
 
     protected RawData apply_(String s) {
-        return new RawData(s);
+        int i = indexOfUnsafe(s);
+        if (i < 0) {
+            return new RawData(s);
+        }
+        StringBuilder sb = new StringBuilder(s.length() + 16);
+        escape(s, i, sb);
+        return new RawData(sb.toString());
+    }
+
+    /**
+     * Escape the character sequence and append the result to the string builder
+     *
+     * @param s   the characters to be escaped
+     * @param out the target
+     */
+    public void escape(CharSequence s, StringBuilder out) {
+        int i = indexOfUnsafe(s);
+        if (i < 0) {
+            out.append(s);
+        } else {
+            escape(s, i, out);
+        }
+    }
+
+    /**
+     * Escape the character sequence and append the result to the target,
+     * e.g. an {@link OutputSink}
+     *
+     * @param s   the characters to be escaped
+     * @param out the target
+     * @throws IOException if the target raise it
+     */
+    public void escape(CharSequence s, Appendable out) throws IOException {
+        int i = indexOfUnsafe(s);
+        if (i < 0) {
+            out.append(s);
+        } else {
+            escape_(s, i, out);
+        }
+    }
+
+    private void escape(CharSequence s, int from, StringBuilder out) {
+        try {
+            escape_(s, from, out);
+        } catch (IOException e) {
+            // StringBuilder never raise IOException
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Return the index of the first character that needs to be escaped
+     *
+     * @param s the characters
+     * @return the index or <code>-1</code> if the characters can be used as is
+     */
+    protected int indexOfUnsafe(CharSequence s) {
+        return -1;
+    }
+
+    /**
+     * Escape the character sequence into the target
+     *
+     * @param s    the characters
+     * @param from the index of the first character to be escaped, all characters
+     *             before it are safe
+     * @param out  the target
+     * @throws IOException
+     */
+    protected void escape_(CharSequence s, int from, Appendable out) throws IOException {
+        out.append(s);
     }
 
     private static String[] sa_ = null;
@@ -135,18 +233,149 @@ public enum Escape {
     private static class CSVEscape {
         private static final char CSV_DELIMITER = ',';
         private static final char CSV_QUOTE = '"';
-        private static final String CSV_QUOTE_STR = String.valueOf(CSV_QUOTE);
-        private static final char[] CSV_SEARCH_CHARS = 
-            new char[] {CSV_DELIMITER, CSV_QUOTE, CharUtils.CR, CharUtils.LF};
 
-        private static String escape(String s) {
-            if (StringUtils.containsNone(s, CSV_SEARCH_CHARS)) {
-                return s;
+        private static boolean needsQuote(CharSequence s) {
+            for (int i = 0, len = s.length(); i < len; ++i) {
+                char c = s.charAt(i);
+                if (c == CSV_DELIMITER || c == CSV_QUOTE || c == CharUtils.CR || c == CharUtils.LF) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static void escape(CharSequence s, Appendable out) throws IOException {
+            out.append(CSV_QUOTE);
+            int len = s.length(), last = 0;
+            for (int i = 0; i < len; ++i) {
+                if (s.charAt(i) == CSV_QUOTE) {
+                    out.append(s, last, i + 1);
+                    out.append(CSV_QUOTE);
+                    last = i + 1;
+                }
+            }
+            out.append(s, last, len).append(CSV_QUOTE);
+        }
+    }
+
+    /**
+     * Replacement lookup of an escape scheme. Characters below the size of the dense
+     * table are looked up directly, the few unsafe characters above it are found in the
+     * sorted sparse table. Characters above the <code>unicodeAbove</code> limit are
+     * replaced with their <code>&#92;uXXXX</code> form
+     */
+    private static final class Table {
+        private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+        private static final Table HTML = new Table(0x100, Character.MAX_VALUE,
+                EntityArrays.BASIC_ESCAPE(), EntityArrays.ISO8859_1_ESCAPE(), EntityArrays.HTML40_EXTENDED_ESCAPE());
+
+        private static final Table XML = new Table(0x80, Character.MAX_VALUE, new String[][]{
+                {"<", "&lt;"}, {">", "&gt;"}, {"\"", "&quot;"}, {"'", "&apos;"}, {"&", "&amp;"}
+        });
+
+        private static final Table JS = new Table(0x80, 0x7f, ctrlChars(), new String[][]{
+                {"'", "\\'"}, {"\"", "\\\""}, {"\\", "\\\\"}, {"/", "\\/"}
+        }, EntityArrays.JAVA_CTRL_CHARS_ESCAPE());
+
+        private static final Table JSON = new Table(0x80, 0x7f, ctrlChars(), new String[][]{
+                {"\"", "\\\""}, {"\\", "\\\\"}, {"/", "\\/"}
+        }, EntityArrays.JAVA_CTRL_CHARS_ESCAPE());
+
+        private final String[] dense;
+        private final char[] sparseKeys;
+        private final String[] sparseValues;
+        private final char unicodeAbove;
+
+        private Table(int denseSize, int unicodeAbove, String[][]... lookups) {
+            this.unicodeAbove = (char) unicodeAbove;
+            dense = new String[denseSize];
+            TreeMap<Character, String> sparse = new TreeMap<Character, String>();
+            for (String[][] lookup : lookups) {
+                for (String[] pair : lookup) {
+                    char c = pair[0].charAt(0);
+                    if (c < denseSize) {
+                        dense[c] = pair[1];
+                    } else if (c <= unicodeAbove) {
+                        sparse.put(c, pair[1]);
+                    }
+                }
+            }
+            sparseKeys = new char[sparse.size()];
+            sparseValues = new String[sparse.size()];
+            int i = 0;
+            for (Map.Entry<Character, String> entry : sparse.entrySet()) {
+                sparseKeys[i] = entry.getKey();
+                sparseValues[i++] = entry.getValue();
+            }
+        }
+
+        private static String[][] ctrlChars() {
+            String[][] sa = new String[32][];
+            for (int i = 0; i < 32; ++i) {
+                sa[i] = new String[]{String.valueOf((char) i), unicode((char) i)};
+            }
+            return sa;
+        }
+
+        private static String unicode(char c) {
+            return new String(new char[]{'\\', 'u', HEX[(c >> 12) & 0xF], HEX[(c >> 8) & 0xF], HEX[(c >> 4) & 0xF], HEX[c & 0xF]});
+        }
+
+        private static void appendUnicode(char c, Appendable out) throws IOException {
+            out.append('\\').append('u')
+                    .append(HEX[(c >> 12) & 0xF]).append(HEX[(c >> 8) & 0xF])
+                    .append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+        }
+
+        private String sparse(char c) {
+            int n = sparseKeys.length;
+            if (0 == n || c > sparseKeys[n - 1]) {
+                return null;
+            }
+            int i = Arrays.binarySearch(sparseKeys, c);
+            return i < 0 ? null : sparseValues[i];
+        }
+
+        int indexOfUnsafe(CharSequence s) {
+            String[] dense = this.dense;
+            int denseSize = dense.length;
+            for (int i = 0, len = s.length(); i < len; ++i) {
+                char c = s.charAt(i);
+                if (c < denseSize) {
+                    if (null != dense[c]) return i;
+                } else if (c > unicodeAbove || null != sparse(c)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        void escape(CharSequence s, int from, Appendable out) throws IOException {
+            String[] dense = this.dense;
+            int denseSize = dense.length;
+            int len = s.length(), last = 0;
+            for (int i = from; i < len; ++i) {
+                char c = s.charAt(i);
+                String r;
+                if (c < denseSize) {
+                    r = dense[c];
+                    if (null == r) continue;
+                } else if (c > unicodeAbove) {
+                    r = null;
+                } else {
+                    r = sparse(c);
+                    if (null == r) continue;
+                }
+                if (i > last) out.append(s, last, i);
+                if (null != r) {
+                    out.append(r);
+                } else {
+                    appendUnicode(c, out);
+                }
+                last = i + 1;
             }
-            StringBuilder sb = new StringBuilder(CSV_QUOTE_STR);
-            sb.append(StringUtils.replace(s, CSV_QUOTE_STR, CSV_QUOTE_STR + CSV_QUOTE_STR));
-            return sb.append(CSV_QUOTE_STR).toString();
-            //return StringEscapeUtils.escapeCsv(s);
+            if (last < len) out.append(s, last, len);
         }
     }
 }
@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.utils;
+
+import org.rythmengine.extension.IFlushPolicy;
+
+import java.io.IOException;
+
+/**
+ * Base class of the chunk buffers sitting between a rendering template and
+ * the writer or output stream the template renders to. Content is collected
+ * into the buffer and pushed to the underlying destination in chunks as
+ * directed by the {@link IFlushPolicy flush policy}
+ * <p/>
+ * <p>A sink instance is bound to one render and is not thread safe</p>
+ */
+public abstract class OutputSink implements Appendable {
+
+    /**
+     * The default buffer size
+     */
+    public static final int DEF_BUF_SIZE = 8192;
+
+    protected final IFlushPolicy flushPolicy;
+
+    protected OutputSink(IFlushPolicy flushPolicy) {
+        this.flushPolicy = null == flushPolicy ? IFlushPolicy.DEFAULT_POLICY : flushPolicy;
+    }
+
+    /**
+     * Calculate the chunk size from the buffer size and the threshold of
+     * the flush policy
+     *
+     * @param bufSize the configured buffer size
+     * @return the chunk size
+     */
+    protected final int chunkSize(int bufSize) {
+        if (bufSize < 64) bufSize = 64;
+        int threshold = flushPolicy.threshold();
+        if (threshold <= 0) return bufSize;
+        return threshold < 64 ? 64 : threshold;
+    }
+
+    /**
+     * Write a static template segment into the sink
+     *
+     * @param sb the static segment
+     * @return this sink
+     * @throws IOException
+     */
+    public abstract OutputSink write(TextBuilder.StrBuf sb) throws IOException;
+
+    /**
+     * Write a character sequence into the sink
+     *
+     * @param s the characters
+     * @return this sink
+     * @throws IOException
+     */
+    public abstract OutputSink write(CharSequence s) throws IOException;
+
+    /**
+     * Write a range of a character sequence into the sink
+     *
+     * @param s     the characters
+     * @param start the index of the first character to write
+     * @param end   the index after the last character to write
+     * @return this sink
+     * @throws IOException
+     */
+    public abstract OutputSink write(CharSequence s, int start, int end) throws IOException;
+
+    /**
+     * Write a single character into the sink
+     *
+     * @param c the character
+     * @return this sink
+     * @throws IOException
+     */
+    public abstract OutputSink write(char c) throws IOException;
+
+    @Override
+    public OutputSink append(CharSequence csq) throws IOException {
+        return write(null == csq ? "null" : csq);
+    }
+
+    @Override
+    public OutputSink append(CharSequence csq, int start, int end) throws IOException {
+        return write(null == csq ? "null" : csq, start, end);
+    }
+
+    @Override
+    public OutputSink append(char c) throws IOException {
+        return write(c);
+    }
+
+    /**
+     * Push all buffered content to the underlying destination. Note the
+     * underlying destination itself is not flushed
+     *
+     * @throws IOException
+     */
+    public abstract void flush() throws IOException;
+
+    /**
+     * Flush the underlying destination
+     *
+     * @throws IOException
+     */
+    protected abstract void flushDestination() throws IOException;
+
+    /**
+     * Push buffered content to the underlying destination and flush it
+     * if the flush policy says so at the point specified
+     *
+     * @param point the flush point
+     * @throws IOException
+     */
+    public void flush(IFlushPolicy.Point point) throws IOException {
+        if (flushPolicy.flushAt(point)) {
+            flush();
+            flushDestination();
+        }
+    }
+
+    /**
+     * Call back after a full chunk has been pushed to the underlying destination
+     *
+     * @throws IOException
+     */
+    protected final void chunkWritten() throws IOException {
+        if (flushPolicy.flushAt(IFlushPolicy.Point.BUFFER)) {
+            flushDestination();
+        }
+    }
+}
@@ -8,6 +8,9 @@ package org.rythmengine.utils;
 import org.rythmengine.exception.FastRuntimeException;
 import org.rythmengine.template.ITemplate;
 
+import java.io.Serializable;
+import java.nio.charset.Charset;
+
 /**
  * This class defines a chained text/string builder
  *
@@ -104,11 +107,19 @@ public class TextBuilder implements Cloneable {
     /**
      * A data structure used to store both character based content and it's
      * binary byte array. This is used to optimize the performance when Rythm
-     * is used to output to a binary outputstream, where the
-     */
-    protected static final class StrBuf {
+     * is used to output to a binary outputstream, where the static segments of
+     * a template are encoded only once at class initialization time.
+     * <p/>
+     * <p>It is also the form of the content cached by
+     * {@link org.rythmengine.cache.FragmentCache}, so a cached block written to a
+     * binary output stream is not encoded again on each cache hit</p>
+     */
+    public static final class StrBuf implements Serializable {
+        private static final long serialVersionUID = 1L;
         private final String s_;
         private byte[] ba_;
+        private transient Charset cs_;
+        private String csName_;
 
         public StrBuf(String s, byte[] ba) {
             if (null == s || "".equals(s)) {
@@ -129,6 +140,52 @@ public class TextBuilder implements Cloneable {
             }
         }
 
+        /**
+         * Create a <code>StrBuf</code> with the binary form of the string
+         * pre-encoded in the charset specified
+         *
+         * @param s       the string
+         * @param charset the charset name
+         * @return the <code>StrBuf</code> instance
+         */
+        public static StrBuf encode(String s, String charset) {
+            return encode(s, Charset.forName(charset));
+        }
+
+        /**
+         * Create a <code>StrBuf</code> with the binary form of the string
+         * pre-encoded in the charset specified
+         *
+         * @param s       the string
+         * @param charset the charset
+         * @return the <code>StrBuf</code> instance
+         */
+        public static StrBuf encode(String s, Charset charset) {
+            StrBuf sb = new StrBuf(s);
+            sb.ba_ = sb.s_.getBytes(charset);
+            sb.cs_ = charset;
+            sb.csName_ = charset.name();
+            return sb;
+        }
+
+        /**
+         * Return the number of chars of the string
+         *
+         * @return the length
+         */
+        public int length() {
+            return s_.length();
+        }
+
+        /**
+         * Return the number of bytes held by the binary form
+         *
+         * @return the number of bytes, <code>0</code> if the string is not encoded yet
+         */
+        public int encodedLength() {
+            return null == ba_ ? 0 : ba_.length;
+        }
+
         public String toString() {
             return s_;
         }
@@ -140,6 +197,29 @@ public class TextBuilder implements Cloneable {
             return ba_;
         }
 
+        /**
+         * Return the binary form of the string in the charset specified.
+         * The pre-encoded bytes are returned if they match the charset,
+         * otherwise the string is encoded on the fly
+         *
+         * @param charset the charset
+         * @return the bytes
+         */
+        public byte[] toBinary(Charset charset) {
+            Charset cs = cs_;
+            if (null == cs && null != csName_) {
+                // deserialized
+                cs = cs_ = Charset.forName(csName_);
+            }
+            if (charset == cs || charset.equals(cs)) {
+                return ba_;
+            }
+            if (0 == s_.length()) {
+                return ba_;
+            }
+            return s_.getBytes(charset);
+        }
+
         @Override
         public int hashCode() {
             return s_.hashCode();
@@ -203,7 +283,8 @@ public class TextBuilder implements Cloneable {
      * @return this builder
      */
     public final TextBuilder p(Object o) {
-        if (null != o) p_(o);
+        if (o instanceof StrBuf) p_((StrBuf) o);
+        else if (null != o) p_(o);
         return this;
     }
 
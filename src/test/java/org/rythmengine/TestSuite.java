@@ -17,12 +17,24 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({ org.rythmengine.advanced.JSONParameterTest.class,
+    org.rythmengine.advanced.ConcurrentCompileTest.class,
+    org.rythmengine.advanced.DialectDetectionTest.class,
+    org.rythmengine.advanced.InlineTemplateCacheTest.class,
+    org.rythmengine.advanced.LargeTemplateTest.class,
     org.rythmengine.advanced.NaturalTemplateTest.class,
+    org.rythmengine.advanced.PrecompileTest.class,
+    org.rythmengine.advanced.RenderListenerTest.class,
     org.rythmengine.advanced.SmartEscapeTest.class,
+    org.rythmengine.advanced.TemplateClassCacheTest.class,
+    org.rythmengine.advanced.TargetLinkageTest.class,
+    org.rythmengine.advanced.TemplateClassLoaderTest.class,
     org.rythmengine.advanced.TransformerTest.class,
     org.rythmengine.advanced.TypeInferenceTest.class,
     org.rythmengine.cache.EhCacheServiceTest.class,
+    org.rythmengine.cache.FragmentCacheTest.class,
     org.rythmengine.cache.SimpleCacheServiceTest.class,
+    org.rythmengine.cache.TimingWheelCacheServiceTest.class,
+    org.rythmengine.cache.TwoTierCacheServiceTest.class,
     org.rythmengine.essential.ArgsParserTest.class,
     org.rythmengine.essential.AssignParserTest.class,
     org.rythmengine.essential.BraceParserTest.class,
@@ -44,6 +56,7 @@ import org.junit.runners.Suite;
     org.rythmengine.essential.ReturnParserTest.class,
     org.rythmengine.essential.UtilsTest.class,
     org.rythmengine.essential.VerbatimParserTest.class,
+    org.rythmengine.essential.RenderContextTest.class,
     org.rythmengine.issue.GhIssueTest70_140.class,
     org.rythmengine.issue.GhIssueTest141_176.class,
     org.rythmengine.issue.GhIssueTest185_202.class,
@@ -52,7 +65,12 @@ import org.junit.runners.Suite;
     org.rythmengine.issue.GithubIssue321Test.class, 
     org.rythmengine.issue.GithubIssue325Test.class, 
     org.rythmengine.layout.LayoutTest.class,
+    org.rythmengine.render_mode.output_stream.OutputStreamTest.class,
+    org.rythmengine.render_mode.output_stream.ChannelTest.class,
+    org.rythmengine.render_mode.async.AsyncRenderTest.class,
+    org.rythmengine.render_mode.batch.BatchRenderTest.class,
     org.rythmengine.render_mode.sandbox.SandboxTest.class,
+    org.rythmengine.render_mode.streaming.StreamingTest.class,
     org.rythmengine.render_mode.substitute.SubstituteTest.class,
     org.rythmengine.render_mode.to_string.ToStringTest.class,
     org.rythmengine.tag.InlineTagTest.class,
@@ -60,6 +78,7 @@ import org.junit.runners.Suite;
     org.rythmengine.tag.InvokeTemplateTest.class,
     org.rythmengine.tag.MacroTest.class,
     org.rythmengine.tag.tagPriorityTest.class, 
+    org.rythmengine.utils.EscapeTest.class,
     org.rythmengine.essential.ForParserTest.class})
 public class TestSuite {
 
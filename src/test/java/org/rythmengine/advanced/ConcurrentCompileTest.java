@@ -0,0 +1,126 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.advanced;
+
+import org.junit.Test;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+import org.rythmengine.conf.RythmConfigurationKey;
+import org.rythmengine.exception.CompileException;
+import org.rythmengine.internal.compiler.TemplateClass;
+import org.rythmengine.template.ITemplate;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Test that a template hit by many threads at the same time before it is
+ * loaded is parsed and compiled only once
+ */
+public class ConcurrentCompileTest extends TestBase {
+
+    private static final int THREADS = 32;
+
+    private static <T> List<Future<T>> hit(Callable<T> task) throws Exception {
+        final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        final Callable<T> task0 = task;
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<T>> tasks = new ArrayList<Callable<T>>();
+            for (int i = 0; i < THREADS; ++i) {
+                tasks.add(new Callable<T>() {
+                    @Override
+                    public T call() throws Exception {
+                        barrier.await();
+                        return task0.call();
+                    }
+                });
+            }
+            return executor.invokeAll(tasks);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testColdTemplateCompiledOnce() throws Exception {
+        final RythmEngine engine = new RythmEngine();
+        try {
+            final String template = "@args String who\nhello @who, @(1 + 1)";
+            List<Future<ITemplate>> results = hit(new Callable<ITemplate>() {
+                @Override
+                public ITemplate call() {
+                    return engine.getTemplate(template, "rythm");
+                }
+            });
+            TemplateClass tc = null;
+            Class<?> c = null;
+            for (Future<ITemplate> f : results) {
+                ITemplate t = f.get();
+                assertEquals("hello rythm, 2", t.render());
+                if (null == tc) {
+                    tc = t.__getTemplateClass(false);
+                    c = t.getClass();
+                }
+                assertSame(tc, t.__getTemplateClass(false));
+                assertSame(c, t.getClass());
+            }
+            assertEquals(1, engine.classes().inlineTemplateStats().loadCount());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testCompileErrorShared() throws Exception {
+        final RythmEngine engine = new RythmEngine();
+        try {
+            final String template = "@{int i = \"not a number\";}@i";
+            List<Future<String>> results = hit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return engine.render(template);
+                }
+            });
+            for (Future<String> f : results) {
+                try {
+                    f.get();
+                    fail("compile error expected");
+                } catch (ExecutionException e) {
+                    assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof CompileException);
+                }
+            }
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testSelfReferenceFailsFast() throws Exception {
+        // with type inference the key the template is loaded with is not the one it is indexed with
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.HOME_TEMPLATE.getKey(), "root");
+        conf.put(RythmConfigurationKey.FEATURE_TYPE_INFERENCE_ENABLED.getKey(), true);
+        RythmEngine engine = new RythmEngine(conf);
+        try {
+            File file = new File(getClass().getResource("/root/bar/countdown.html").toURI());
+            engine.render(file, 3);
+            fail("compile error expected");
+        } catch (CompileException e) {
+            // expected
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    public static void main(String[] args) {
+        run(ConcurrentCompileTest.class);
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.advanced;
+
+import org.junit.Test;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+import org.rythmengine.internal.compiler.TemplateClass;
+
+/**
+ * Test the dialect of a template is detected before it is parsed
+ */
+public class DialectDetectionTest extends TestBase {
+
+    private static TemplateClass templateClass(RythmEngine engine, String template) {
+        return engine.getTemplate(template).__getTemplateClass(false);
+    }
+
+    @Test
+    public void testBasicTemplate() {
+        RythmEngine engine = new RythmEngine();
+        try {
+            t = "hello @who, me@@home.org@* @{ *@";
+            // only basic templates take undeclared render args
+            assertEquals("hello rythm, me@home.org", engine.render(t, "rythm"));
+            assertEquals(1, templateClass(engine, t).parsePasses());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testScriptDetected() {
+        RythmEngine engine = new RythmEngine();
+        try {
+            t = "@{int i = 1;}[@i]";
+            assertEquals("[1]", engine.render(t));
+            assertEquals(1, templateClass(engine, t).parsePasses());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testComplexExpressionDetected() {
+        RythmEngine engine = new RythmEngine();
+        try {
+            t = "[@java.io.File.separator]";
+            assertEquals("[" + java.io.File.separator + "]", engine.render(t));
+            assertEquals(1, templateClass(engine, t).parsePasses());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testRewindCounted() {
+        RythmEngine engine = new RythmEngine();
+        try {
+            // free loops are only found by the parser
+            t = "@for(int i = 0; i < 3; ++i){@i}";
+            assertEquals("012", engine.render(t));
+            assertEquals(2, templateClass(engine, t).parsePasses());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    public static void main(String[] args) {
+        run(DialectDetectionTest.class);
+    }
+}
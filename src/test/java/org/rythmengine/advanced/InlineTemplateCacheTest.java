@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.advanced;
+
+import org.junit.Test;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+import org.rythmengine.conf.RythmConfigurationKey;
+import org.rythmengine.internal.compiler.TemplateClass;
+import org.rythmengine.internal.compiler.TemplateClassManager.InlineTemplateStats;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test the size and memory bounds of the inline template cache
+ */
+public class InlineTemplateCacheTest extends TestBase {
+
+    private static RythmEngine engine(int size, int memory) {
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.ENGINE_INLINE_TEMPLATE_CACHE_SIZE.getKey(), size);
+        conf.put(RythmConfigurationKey.ENGINE_INLINE_TEMPLATE_CACHE_MEMORY.getKey(), memory);
+        return new RythmEngine(conf);
+    }
+
+    private static String template(int i) {
+        return "tmpl" + i + ":@(1 + 1)";
+    }
+
+    @Test
+    public void testSizeBound() {
+        RythmEngine engine = engine(5, 0);
+        try {
+            for (int i = 0; i < 20; ++i) {
+                assertEquals("tmpl" + i + ":2", engine.render(template(i)));
+            }
+            InlineTemplateStats stats = engine.classes().inlineTemplateStats();
+            assertTrue(stats.toString(), stats.size() <= 5);
+            assertEquals(20, stats.loadCount());
+            assertEquals(20 - stats.size(), stats.evictionCount());
+            assertNull(engine.classes().getByTemplate(template(0)));
+            // an evicted template is compiled again on its next use
+            assertEquals("tmpl0:2", engine.render(template(0)));
+            assertEquals(21, engine.classes().inlineTemplateStats().loadCount());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testRecentlyUsedTemplateKept() {
+        RythmEngine engine = engine(3, 0);
+        try {
+            String hot = template(-1);
+            for (int i = 0; i < 20; ++i) {
+                assertEquals("tmpl-1:2", engine.render(hot));
+                engine.render(template(i));
+            }
+            assertNotNull(engine.classes().getByTemplate(hot));
+            assertTrue(engine.classes().inlineTemplateStats().evictionCount() > 0);
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testMemoryBound() {
+        RythmEngine engine = engine(0, 1);
+        try {
+            for (int i = 0; i < 10; ++i) {
+                assertEquals("tmpl" + i + ":2", engine.render(template(i)));
+            }
+            InlineTemplateStats stats = engine.classes().inlineTemplateStats();
+            assertTrue(stats.toString(), stats.size() <= 2);
+            assertTrue(stats.toString(), stats.evictionCount() >= 8);
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testMemoryTracked() {
+        RythmEngine engine = engine(5, 0);
+        try {
+            for (int i = 0; i < 20; ++i) {
+                engine.render(template(i));
+            }
+            long memory = 0;
+            for (int i = 0; i < 20; ++i) {
+                TemplateClass tc = engine.classes().getByTemplate(template(i));
+                if (null != tc) {
+                    memory += tc.footprint();
+                }
+            }
+            assertTrue(memory > 0);
+            assertEquals(memory, engine.classes().inlineTemplateStats().memory());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testEvictedClassUnloaded() throws Exception {
+        RythmEngine engine = engine(2, 0);
+        try {
+            Class<?> c = engine.getTemplate(template(0)).getClass();
+            assertNotSame(engine.classLoader(), c.getClassLoader());
+            WeakReference<Class<?>> ref = new WeakReference<Class<?>>(c);
+            c = null;
+            for (int i = 1; i < 5; ++i) {
+                engine.render(template(i));
+            }
+            assertNull(engine.classes().getByTemplate(template(0)));
+            for (int i = 0; i < 20 && null != ref.get(); ++i) {
+                System.gc();
+                Thread.sleep(50);
+            }
+            assertNull(ref.get());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testInnerClassOfInlineTemplate() {
+        RythmEngine engine = engine(2, 0);
+        try {
+            t = "@{Object obj = new Object() {public String toString() {return \"inner\";}};}[@obj]";
+            assertEquals("[inner]", engine.render(t));
+            for (int i = 0; i < 5; ++i) {
+                engine.render(template(i));
+            }
+            assertEquals("[inner]", engine.render(t));
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    public static void main(String[] args) {
+        run(InlineTemplateCacheTest.class);
+    }
+}
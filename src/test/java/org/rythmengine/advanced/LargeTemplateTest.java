@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.advanced;
+
+import org.junit.Test;
+import org.rythmengine.TestBase;
+import org.rythmengine.exception.ParseException;
+
+/**
+ * Test parsing templates with many lines and tokens
+ */
+public class LargeTemplateTest extends TestBase {
+
+    private static final int LINES = 2000;
+
+    @Test
+    public void testManyTokens() {
+        StringBuilder tmpl = new StringBuilder("@args String who\n");
+        StringBuilder expected = new StringBuilder();
+        // keep the generated build() method within the class file size limit
+        for (int i = 0; i < LINES / 4; ++i) {
+            tmpl.append("<li class=\"row-").append(i).append("\">hello @who - a/b #").append(i)
+                    .append(" me@@home.org @if (").append(i).append(" % 2 == 0) {even} @/ note\n");
+            expected.append("<li class=\"row-").append(i).append("\">hello rythm - a/b #").append(i)
+                    .append(" me@home.org ").append(i % 2 == 0 ? "even" : "").append("\n");
+        }
+        t = tmpl.toString();
+        s = r(t, "rythm");
+        assertEquals(expected.toString(), s);
+    }
+
+    @Test
+    public void testLineNumberOfParseError() {
+        StringBuilder tmpl = new StringBuilder();
+        for (int i = 0; i < LINES; ++i) {
+            tmpl.append("line ").append(i).append(" {@@}\n");
+        }
+        tmpl.append("error @for(\n");
+        try {
+            r(tmpl.toString());
+            fail("ParseException expected");
+        } catch (ParseException e) {
+            assertEquals(LINES + 1, e.templateLineNumber);
+        }
+    }
+
+    public static void main(String[] args) {
+        run(LargeTemplateTest.class);
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.advanced;
+
+import org.junit.Test;
+import org.rythmengine.Precompiler;
+import org.rythmengine.Rythm;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+import org.rythmengine.conf.RythmConfigurationKey;
+import org.rythmengine.exception.CompileException;
+import org.rythmengine.internal.compiler.TemplateClass;
+import org.rythmengine.resource.TemplateResourceManager.PrecompileStats;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test parsing and compiling all templates found by the resource loaders
+ */
+public class PrecompileTest extends TestBase {
+
+    private static final int PAGES = 40;
+
+    private static void write(File file, String content) throws IOException {
+        Writer w = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            w.write(content);
+        } finally {
+            w.close();
+        }
+    }
+
+    private static RythmEngine engine(File home) {
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.HOME_TEMPLATE.getKey(), home.getAbsolutePath());
+        return new RythmEngine(conf);
+    }
+
+    @Test
+    public void testPrecompile() throws Exception {
+        File home = Files.createTempDirectory("rythm-precompile").toFile();
+        write(new File(home, "greet.html"), "@args String who\nhello @who");
+        for (int i = 0; i < PAGES; ++i) {
+            write(new File(home, "page" + i + ".html"), "@args int n\npage " + i + ": @n @greet(\"rythm\")");
+        }
+        RythmEngine engine = engine(home);
+        try {
+            PrecompileStats stats = engine.resourceManager().precompile();
+            assertEquals(PAGES + 1, stats.size());
+            for (TemplateClass tc : engine.classes().all()) {
+                assertNotNull(tc.getKey().toString(), tc.javaByteCode);
+            }
+            assertEquals("page 3: 7 hello rythm", engine.render(new File(home, "page3.html"), 7));
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testCompileErrorReported() throws Exception {
+        File home = Files.createTempDirectory("rythm-precompile").toFile();
+        for (int i = 0; i < PAGES; ++i) {
+            write(new File(home, "page" + i + ".html"), "@args int n\npage " + i + ": @n");
+        }
+        write(new File(home, "broken.html"), "@args int n\nbroken: @n.foo()");
+        RythmEngine engine = engine(home);
+        try {
+            engine.resourceManager().precompile();
+            fail("CompileException expected");
+        } catch (CompileException e) {
+            assertTrue(e.getMessage(), e.getTemplateName().contains("broken"));
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testLoadPrecompiled() throws Exception {
+        File home = Files.createTempDirectory("rythm-precompile").toFile();
+        write(new File(home, "greet.html"), "@args String who\nhello @who");
+        write(new File(home, "page.html"), "@args int n\npage: @n @greet(\"rythm\")");
+        File out = Files.createTempDirectory("rythm-precompiled").toFile();
+        assertEquals(2, Precompiler.precompile(home, out, null).size());
+
+        ClassLoader cl = new URLClassLoader(new URL[]{out.toURI().toURL()}, getClass().getClassLoader());
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.HOME_TEMPLATE.getKey(), home.getAbsolutePath());
+        conf.put(RythmConfigurationKey.ENGINE_MODE.getKey(), Rythm.Mode.prod);
+        conf.put(RythmConfigurationKey.ENGINE_LOAD_PRECOMPILED_ENABLED.getKey(), true);
+        conf.put(RythmConfigurationKey.ENGINE_CLASS_LOADER_PARENT_IMPL.getKey(), cl);
+        RythmEngine engine = new RythmEngine(conf);
+        try {
+            File page = new File(home, "page.html");
+            assertEquals("page: 7 hello rythm", engine.render(page, 7));
+            // loaded from the archive without being parsed
+            assertEquals(0, engine.getTemplate(page).__getTemplateClass(false).parsePasses());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    public static void main(String[] args) {
+        run(PrecompileTest.class);
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.advanced;
+
+import org.junit.Test;
+import org.rythmengine.Rythm;
+import org.rythmengine.TestBase;
+import org.rythmengine.extension.IRythmListener;
+import org.rythmengine.internal.EventBus;
+import org.rythmengine.template.ITag;
+import org.rythmengine.template.ITemplate;
+import org.rythmengine.template.TemplateBase;
+
+/**
+ * Test render listener notification, and that render and tag invocation events
+ * are not triggered once there is no listener
+ */
+public class RenderListenerTest extends TestBase {
+
+    private static class Counter extends IRythmListener.ListenerAdaptor {
+        int onRender, rendered, enter, exit, onInvoke, invoked;
+
+        @Override
+        public void onRender(ITemplate template) {
+            onRender++;
+        }
+
+        @Override
+        public void rendered(ITemplate template) {
+            rendered++;
+        }
+
+        @Override
+        public void enterInvokeTemplate(TemplateBase caller) {
+            enter++;
+        }
+
+        @Override
+        public void exitInvokeTemplate(TemplateBase caller) {
+            exit++;
+        }
+
+        @Override
+        public void onInvoke(ITag tag) {
+            onInvoke++;
+        }
+
+        @Override
+        public void invoked(ITag tag) {
+            invoked++;
+        }
+    }
+
+    private EventBus eventBus() {
+        return (EventBus) Rythm.engine().eventDispatcher();
+    }
+
+    @Test
+    public void testHooksLive() {
+        EventBus bus = eventBus();
+        assertFalse(bus.tagHooksLive());
+        Counter c = new Counter();
+        bus.registerRenderListener(c);
+        assertTrue(bus.tagHooksLive());
+        assertTrue(bus.renderHooksLive());
+        bus.unregisterRenderListener(c);
+        assertFalse(bus.tagHooksLive());
+    }
+
+    @Test
+    public void testListenerNotified() {
+        Counter c = new Counter();
+        eventBus().registerRenderListener(c);
+        t = "@bar.included()@bar.included()";
+        s = r(t);
+        eq("included contentincluded content");
+        assertEquals(1, c.onRender);
+        assertEquals(1, c.rendered);
+        assertEquals(2, c.enter);
+        assertEquals(2, c.exit);
+        assertEquals(2, c.onInvoke);
+        assertEquals(2, c.invoked);
+    }
+
+    @Test
+    public void testListenerUnregistered() {
+        Counter c = new Counter();
+        eventBus().registerRenderListener(c);
+        t = "@bar.included()";
+        s = r(t);
+        eventBus().unregisterRenderListener(c);
+        s = r(t);
+        eq("included content");
+        assertEquals(1, c.onRender);
+        assertEquals(1, c.rendered);
+        assertEquals(1, c.enter);
+        assertEquals(1, c.invoked);
+    }
+
+    public static void main(String[] args) {
+        run(RenderListenerTest.class);
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.advanced;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Test the engine classes do not link to methods missing on the Java 7 runtime the build
+ * targets. Compiling with <code>-source/-target 1.7</code> on a newer JDK links against the
+ * newer class library, e.g. to <code>ByteBuffer.flip()</code> which is only declared since
+ * Java 9, or to the default methods of <code>java.util.Map</code> added in Java 8
+ */
+public class TargetLinkageTest extends TestBase {
+
+    private static final int TARGET_MAJOR_VERSION = 51;
+
+    // the Buffer methods ByteBuffer, CharBuffer etc. override since Java 9
+    private static final Set<String> BUFFER_METHODS = new HashSet<String>(Arrays.asList(
+            "flip", "clear", "limit", "position", "mark", "reset", "rewind"));
+
+    // the collection methods added in Java 8
+    private static final Set<String> JAVA8_METHODS = new HashSet<String>(Arrays.asList(
+            "getOrDefault", "computeIfAbsent", "computeIfPresent", "compute", "merge", "forEach",
+            "replaceAll", "removeIf", "stream", "parallelStream", "spliterator", "newKeySet", "mappingCount"));
+
+    // the Map methods only ConcurrentMap declares before Java 8
+    private static final Set<String> CONCURRENT_MAP_METHODS = new HashSet<String>(Arrays.asList(
+            "putIfAbsent", "replace"));
+
+    private static final Set<String> CONCURRENT_MAPS = new HashSet<String>(Arrays.asList(
+            "java/util/concurrent/ConcurrentMap", "java/util/concurrent/ConcurrentHashMap",
+            "java/util/concurrent/ConcurrentNavigableMap", "java/util/concurrent/ConcurrentSkipListMap"));
+
+    private static final String[] JAVA8_PACKAGES = {
+            "java/util/function/", "java/util/stream/", "java/time/", "java/util/Optional", "java/util/Base64"
+    };
+
+    @Test
+    public void testJava7Linkage() throws Exception {
+        File classes = new File(RythmEngine.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        Assume.assumeTrue(classes.isDirectory());
+        List<String> found = new ArrayList<String>();
+        scan(classes, found);
+        assertTrue("linked to methods missing on Java 7: " + found, found.isEmpty());
+    }
+
+    private static void scan(File dir, List<String> found) throws IOException {
+        File[] files = dir.listFiles();
+        if (null == files) {
+            return;
+        }
+        for (File f : files) {
+            if (f.isDirectory()) {
+                scan(f, found);
+            } else if (f.getName().endsWith(".class")) {
+                check(f, found);
+            }
+        }
+    }
+
+    /**
+     * Read the constant pool of the class file and check the methods and classes it refers to
+     */
+    private static void check(File f, List<String> found) throws IOException {
+        DataInputStream is = new DataInputStream(new BufferedInputStream(new FileInputStream(f)));
+        try {
+            is.readInt(); // magic
+            is.readUnsignedShort(); // minor version
+            int major = is.readUnsignedShort();
+            if (major > TARGET_MAJOR_VERSION) {
+                found.add(f.getName() + " class file version " + major);
+            }
+            int count = is.readUnsignedShort();
+            String[] utf8 = new String[count];
+            int[] tags = new int[count];
+            int[] refs1 = new int[count];
+            int[] refs2 = new int[count];
+            for (int i = 1; i < count; ++i) {
+                int tag = is.readUnsignedByte();
+                tags[i] = tag;
+                switch (tag) {
+                    case 1:
+                        utf8[i] = is.readUTF();
+                        break;
+                    case 3:
+                    case 4:
+                        is.readInt();
+                        break;
+                    case 5:
+                    case 6:
+                        is.readLong();
+                        ++i;
+                        break;
+                    case 7:
+                    case 8:
+                    case 16:
+                    case 19:
+                    case 20:
+                        refs1[i] = is.readUnsignedShort();
+                        break;
+                    case 15:
+                        is.readUnsignedByte();
+                        refs1[i] = is.readUnsignedShort();
+                        break;
+                    case 18:
+                        found.add(f.getName() + " invokedynamic");
+                        // fall through
+                    default:
+                        refs1[i] = is.readUnsignedShort();
+                        refs2[i] = is.readUnsignedShort();
+                }
+            }
+            for (int i = 1; i < count; ++i) {
+                if (7 == tags[i]) {
+                    String cls = utf8[refs1[i]];
+                    for (String pkg : JAVA8_PACKAGES) {
+                        if (cls.startsWith(pkg)) {
+                            found.add(f.getName() + " " + cls);
+                        }
+                    }
+                } else if (10 == tags[i] || 11 == tags[i]) {
+                    String owner = utf8[refs1[refs1[i]]];
+                    int nameAndType = refs2[i];
+                    String name = utf8[refs1[nameAndType]];
+                    String desc = utf8[refs2[nameAndType]];
+                    if (missing(owner, name, desc)) {
+                        found.add(f.getName() + " " + owner + "." + name + desc);
+                    }
+                }
+            }
+        } finally {
+            is.close();
+        }
+    }
+
+    private static boolean missing(String owner, String name, String desc) {
+        if (!owner.startsWith("java/")) {
+            return false;
+        }
+        if (owner.startsWith("java/nio/") && owner.endsWith("Buffer") && !"java/nio/Buffer".equals(owner)
+                && BUFFER_METHODS.contains(name)) {
+            return desc.endsWith(")L" + owner + ";");
+        }
+        if (collection(owner)) {
+            if (JAVA8_METHODS.contains(name) || desc.contains("ConcurrentHashMap$KeySetView")) {
+                return true;
+            }
+            if (CONCURRENT_MAPS.contains(owner)) {
+                return false;
+            }
+            if (CONCURRENT_MAP_METHODS.contains(name)) {
+                return true;
+            }
+            return "remove".equals(name) && "(Ljava/lang/Object;Ljava/lang/Object;)Z".equals(desc);
+        }
+        return "java/lang/String".equals(owner) && "join".equals(name);
+    }
+
+    // the collection types of java.util and java.util.concurrent, but not e.g. java.util.regex
+    private static boolean collection(String owner) {
+        if ("java/lang/Iterable".equals(owner)) {
+            return true;
+        }
+        if ("java/util/Collections".equals(owner)) {
+            return false;
+        }
+        String cls = owner.startsWith("java/util/concurrent/") ? owner.substring(21)
+                : owner.startsWith("java/util/") ? owner.substring(10) : null;
+        return null != cls && cls.indexOf('/') < 0;
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.advanced;
+
+import org.junit.Test;
+import org.rythmengine.Rythm;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+import org.rythmengine.conf.RythmConfigurationKey;
+import org.rythmengine.internal.compiler.TemplateClass;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test the template class archive written by one engine is read by the next one
+ */
+public class TemplateClassCacheTest extends TestBase {
+
+    private static RythmEngine engine(File tmp) {
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.ENGINE_MODE.getKey(), Rythm.Mode.dev);
+        conf.put(RythmConfigurationKey.HOME_TMP.getKey(), tmp.getAbsolutePath());
+        return new RythmEngine(conf);
+    }
+
+    private static TemplateClass templateClass(RythmEngine engine, String template) {
+        return engine.getTemplate(template).__getTemplateClass(false);
+    }
+
+    @Test
+    public void testArchive() throws Exception {
+        File tmp = Files.createTempDirectory("rythm-cache").toFile();
+        String t1 = "@args String who\nhello @who: @(1 + 1)";
+        String t2 = "@args String who\nbye @who";
+        RythmEngine engine = engine(tmp);
+        try {
+            assertEquals("hello rythm: 2", engine.render(t1, "rythm"));
+            assertTrue(templateClass(engine, t1).parsePasses() > 0);
+        } finally {
+            engine.shutdown();
+        }
+        assertTrue(new File(tmp, "rythm-classes.idx").isFile());
+        // the java source is kept in the archive only
+        assertEquals(0, tmp.list(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(".java");
+            }
+        }).length);
+
+        engine = engine(tmp);
+        try {
+            // loaded from the archive without being parsed
+            assertEquals("hello rythm: 2", engine.render(t1, "rythm"));
+            assertEquals(0, templateClass(engine, t1).parsePasses());
+            assertEquals("bye rythm", engine.render(t2, "rythm"));
+            assertTrue(templateClass(engine, t2).parsePasses() > 0);
+        } finally {
+            engine.shutdown();
+        }
+
+        engine = engine(tmp);
+        try {
+            assertEquals(0, templateClass(engine, t1).parsePasses());
+            assertEquals(0, templateClass(engine, t2).parsePasses());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testAppendAndCompact() throws Exception {
+        File tmp = Files.createTempDirectory("rythm-cache").toFile();
+        File archive = new File(tmp, "rythm-classes.idx");
+        String t1 = "@args String who\nhello @who";
+        String t2 = "@args String who\nbye @who";
+        RythmEngine engine = engine(tmp);
+        try {
+            engine.render(t1, "rythm");
+        } finally {
+            engine.shutdown();
+        }
+        byte[] written = Files.readAllBytes(archive.toPath());
+
+        engine = engine(tmp);
+        try {
+            engine.render(t2, "rythm");
+        } finally {
+            engine.shutdown();
+        }
+        // the new template class is appended to the archive
+        byte[] appended = Files.readAllBytes(archive.toPath());
+        assertTrue(appended.length > written.length);
+        assertTrue(Arrays.equals(written, Arrays.copyOf(appended, written.length)));
+
+        // an incomplete record, e.g. left by a crash while appending
+        FileOutputStream os = new FileOutputStream(archive, true);
+        os.write(new byte[]{0, 5, 'f', 'o'});
+        os.close();
+
+        engine = engine(tmp);
+        try {
+            assertEquals(0, templateClass(engine, t1).parsePasses());
+            assertEquals(0, templateClass(engine, t2).parsePasses());
+        } finally {
+            engine.shutdown();
+        }
+        // compacted when opened
+        assertEquals(appended.length, archive.length());
+    }
+
+    public static void main(String[] args) {
+        run(TemplateClassCacheTest.class);
+    }
+}
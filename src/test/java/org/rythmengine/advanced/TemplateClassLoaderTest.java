@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.advanced;
+
+import org.junit.Test;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+import org.rythmengine.internal.compiler.TemplateClass;
+import org.rythmengine.internal.compiler.TemplateClassLoader;
+import org.rythmengine.template.ITemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Test class loading through the template class loader
+ */
+public class TemplateClassLoaderTest extends TestBase {
+
+    @Test
+    public void testNonTemplateClassDelegated() throws Exception {
+        RythmEngine engine = new RythmEngine();
+        try {
+            TemplateClassLoader cl = engine.classLoader();
+            assertSame(String.class, cl.loadClass("java.lang.String"));
+            assertSame(RythmEngine.class, cl.loadClass(RythmEngine.class.getName()));
+            String missing = "foo.Bar" + TemplateClass.CN_SUFFIX;
+            for (int i = 0; i < 2; ++i) {
+                try {
+                    cl.loadClass(missing);
+                    fail("ClassNotFoundException expected");
+                } catch (ClassNotFoundException e) {
+                    // expected
+                }
+            }
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testTemplateClassLoaded() throws Exception {
+        RythmEngine engine = new RythmEngine();
+        try {
+            ITemplate t = engine.getTemplate("hello @(1 + 1)");
+            TemplateClass tc = t.__getTemplateClass(false);
+            assertSame(t.getClass(), engine.classLoader().loadClass(tc.name()));
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testConcurrentLoading() throws Exception {
+        final RythmEngine engine = new RythmEngine();
+        final int threads = 16;
+        final CyclicBarrier barrier = new CyclicBarrier(2 * threads);
+        ExecutorService executor = Executors.newFixedThreadPool(2 * threads);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < threads; ++i) {
+                final int n = i;
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        barrier.await();
+                        assertSame(List.class, engine.classLoader().loadClass("java.util.List"));
+                        return engine.render("@args int n\ntemplate @n");
+                    }
+                }));
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        barrier.await();
+                        return engine.render("@args int n\ntemplate " + n + ":@(n + 1)", n);
+                    }
+                }));
+            }
+            for (int i = 0; i < threads; ++i) {
+                assertEquals("template 0", results.get(2 * i).get());
+                assertEquals("template " + i + ":" + (i + 1), results.get(2 * i + 1).get());
+            }
+        } finally {
+            executor.shutdown();
+            engine.shutdown();
+        }
+    }
+
+    public static void main(String[] args) {
+        run(TemplateClassLoaderTest.class);
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.benchmark;
+
+import org.rythmengine.Rythm;
+import org.rythmengine.RythmEngine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compare the throughput of {@link RythmEngine#renderBatch(String, Iterable)} with
+ * calling {@link RythmEngine#render(String, Object...)} once per argument set.
+ * <p/>
+ * <p>Run with <code>java org.rythmengine.benchmark.BatchRenderBenchmark [count] [rounds]</code></p>
+ */
+public class BatchRenderBenchmark {
+
+    private static final String TEMPLATE = "@args String name, int id, java.util.List<String> items\n" +
+            "<p>Dear @name,</p>\n" +
+            "<p>Your order #@id contains:</p>\n" +
+            "<ul>@for(String item : items){<li>@item</li>}</ul>\n" +
+            "<p>Thank you for shopping with us</p>";
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        List<Object[]> argsList = new ArrayList<Object[]>(count);
+        List<String> items = new ArrayList<String>();
+        items.add("apple");
+        items.add("banana & cream");
+        items.add("cherry");
+        for (int i = 0; i < count; ++i) {
+            argsList.add(new Object[]{"customer" + i, i, items});
+        }
+        RythmEngine engine = Rythm.engine();
+        // warm up
+        engine.render(TEMPLATE, argsList.get(0));
+        engine.renderBatch(TEMPLATE, argsList.subList(0, Math.min(count, 1000)));
+        for (int r = 0; r < rounds; ++r) {
+            long l = System.nanoTime();
+            long len = 0;
+            for (Object[] a : argsList) {
+                len += engine.render(TEMPLATE, a).length();
+            }
+            long perCall = System.nanoTime() - l;
+
+            l = System.nanoTime();
+            for (String s : engine.renderBatch(TEMPLATE, argsList)) {
+                len -= s.length();
+            }
+            long batch = System.nanoTime() - l;
+            if (0 != len) throw new IllegalStateException("render results differ");
+            System.out.printf("round %d: per call %,d renders/s, batch %,d renders/s%n", r,
+                    count * 1000000000L / perCall, count * 1000000000L / batch);
+        }
+        engine.shutdown();
+    }
+}
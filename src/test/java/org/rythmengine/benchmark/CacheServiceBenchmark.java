@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.benchmark;
+
+import org.rythmengine.cache.SimpleCacheService;
+import org.rythmengine.cache.TimingWheelCacheService;
+import org.rythmengine.extension.ICacheService;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compare the throughput and hit rate of {@link TimingWheelCacheService} with
+ * {@link SimpleCacheService} for a skewed key distribution, as produced by <code>@cache</code>
+ * blocks keyed by request parameters. Each thread gets a key and puts it on a miss.
+ * <p/>
+ * <p>Run with <code>java org.rythmengine.benchmark.CacheServiceBenchmark [threads] [ops per thread] [keys]</code></p>
+ */
+public class CacheServiceBenchmark {
+
+    private static final String VALUE;
+
+    static {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 64; ++i) {
+            sb.append("<li>cached</li>");
+        }
+        VALUE = sb.toString();
+    }
+
+    private static String[] keys(int count) {
+        String[] keys = new String[count];
+        for (int i = 0; i < count; ++i) {
+            keys[i] = "tmpl-" + i;
+        }
+        return keys;
+    }
+
+    private static void run(String name, final ICacheService cache, int threads, final int ops, final String[] keys) throws InterruptedException {
+        cache.clear();
+        final AtomicLong hits = new AtomicLong();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; ++t) {
+            final long seed = t;
+            workers[t] = new Thread() {
+                @Override
+                public void run() {
+                    Random r = new Random(seed);
+                    long h = 0;
+                    for (int i = 0; i < ops; ++i) {
+                        // skewed: low indexes are requested far more often
+                        double d = r.nextDouble();
+                        String key = keys[(int) (d * d * d * keys.length)];
+                        if (null != cache.get(key)) {
+                            ++h;
+                        } else {
+                            cache.put(key, VALUE, 60);
+                        }
+                    }
+                    hits.addAndGet(h);
+                }
+            };
+        }
+        long l = System.nanoTime();
+        for (Thread w : workers) {
+            w.start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+        long ns = System.nanoTime() - l;
+        long total = (long) threads * ops;
+        System.out.printf("%s: %,d ops/s, hit rate %.1f%%%n", name, total * 1000000000L / ns, hits.get() * 100.0 / total);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int ops = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+        int count = args.length > 2 ? Integer.parseInt(args[2]) : 100000;
+        String[] keys = keys(count);
+        long weight = 2L * VALUE.length() + 128;
+        ICacheService all = new TimingWheelCacheService(count * weight);
+        // bounded to hold about a tenth of the keys
+        ICacheService bounded = new TimingWheelCacheService(count / 10 * weight);
+        for (int r = 0; r < 3; ++r) {
+            run("simple              ", SimpleCacheService.INSTANCE, threads, ops, keys);
+            run("timing wheel        ", all, threads, ops, keys);
+            run("timing wheel, bound ", bounded, threads, ops, keys);
+        }
+        SimpleCacheService.INSTANCE.shutdown();
+        all.shutdown();
+        bounded.shutdown();
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.benchmark;
+
+import org.rythmengine.RythmEngine;
+import org.rythmengine.extension.IRythmListener;
+import org.rythmengine.internal.EventBus;
+import org.rythmengine.template.JavaTagBase;
+
+/**
+ * Measure the per tag invocation overhead with no render listener registered, where
+ * the engine skips the render and tag invocation events, and with a no-op listener
+ * registered, where every event is dispatched as before.
+ * <p/>
+ * <p>Run with <code>java org.rythmengine.benchmark.TagInvocationBenchmark [renders] [rounds]</code></p>
+ */
+public class TagInvocationBenchmark {
+
+    private static final int TAGS_PER_RENDER = 100;
+
+    private static final String TEMPLATE = "@for(int i = 0; i < " + TAGS_PER_RENDER + "; ++i){@noop()}";
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        RythmEngine engine = new RythmEngine();
+        engine.registerFastTag(new JavaTagBase() {
+            @Override
+            public String __getName() {
+                return "noop";
+            }
+
+            @Override
+            protected void call(__ParameterList params, __Body body) {
+            }
+        });
+        EventBus bus = (EventBus) engine.eventDispatcher();
+        IRythmListener listener = new IRythmListener.ListenerAdaptor();
+        // warm up
+        for (int i = 0; i < count; ++i) {
+            engine.render(TEMPLATE);
+        }
+        for (int r = 0; r < rounds; ++r) {
+            long without = measure(engine, count);
+            bus.registerRenderListener(listener);
+            long with = measure(engine, count);
+            bus.unregisterRenderListener(listener);
+            System.out.printf("round %d: no listener %d ns/tag, with listener %d ns/tag%n", r, without, with);
+        }
+        engine.shutdown();
+    }
+
+    private static long measure(RythmEngine engine, int count) {
+        long l = System.nanoTime();
+        for (int i = 0; i < count; ++i) {
+            engine.render(TEMPLATE);
+        }
+        return (System.nanoTime() - l) / ((long) count * TAGS_PER_RENDER);
+    }
+}
@@ -12,14 +12,15 @@ import org.rythmengine.TestBase;
 import org.rythmengine.extension.ICacheService;
 
 /**
- * base test class for testing the SimpleCacheService
+ * base test class for testing the cache service implementations
  *
  */
 @Ignore
 public abstract class CacheServiceTestBase extends TestBase {
-    protected ICacheService cache = SimpleCacheService.INSTANCE;
+    protected ICacheService cache;
     @Before
     public void setup() {
+        cache = cacheService();
         cache.shutdown();
         cache.setDefaultTTL(3);
         cache.startup();
@@ -0,0 +1,252 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.rythmengine.Rythm;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+import org.rythmengine.conf.RythmConfigurationKey;
+import org.rythmengine.extension.ICacheService;
+import org.rythmengine.internal.CacheKey;
+import org.rythmengine.utils.TextBuilder.StrBuf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test only one request renders a missing or expired <code>@cache</code> block
+ */
+public class FragmentCacheTest extends TestBase {
+
+    private RythmEngine engine;
+    private FragmentCache fc;
+    private ExecutorService executor;
+    private final CacheKey key = CacheKey.of("block", 1);
+
+    @Before
+    public void setup() {
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.ENGINE_MODE.getKey(), Rythm.Mode.prod);
+        conf.put(RythmConfigurationKey.CACHE_ENABLED.getKey(), true);
+        conf.put(RythmConfigurationKey.CACHE_STALE_TIMEOUT.getKey(), 10);
+        conf.put(RythmConfigurationKey.CACHE_SERVICE_IMPL.getKey(), new TimingWheelCacheService(1024 * 1024));
+        engine = new RythmEngine(conf);
+        fc = engine.fragmentCache();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+        engine.shutdown();
+    }
+
+    private Future<String> render(final AtomicInteger renders, final String content) {
+        return executor.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                Serializable s = fc.get(key);
+                if (null == s) {
+                    try {
+                        renders.incrementAndGet();
+                        Thread.sleep(200);
+                        s = content;
+                        fc.put(key, s, 60);
+                    } finally {
+                        fc.release(key);
+                    }
+                }
+                return s.toString();
+            }
+        });
+    }
+
+    @Test
+    public void testMissRenderedOnce() throws Exception {
+        AtomicInteger renders = new AtomicInteger();
+        List<Future<String>> results = new ArrayList<Future<String>>();
+        for (int i = 0; i < 8; ++i) {
+            results.add(render(renders, "content"));
+        }
+        for (Future<String> f : results) {
+            assertEquals("content", f.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, renders.get());
+    }
+
+    @Test
+    public void testStaleServedWhileRendered() throws Exception {
+        fc.put(key, "old", 1);
+        Thread.sleep(1100);
+        // elected to render it again
+        assertNull(fc.get(key));
+        try {
+            AtomicInteger renders = new AtomicInteger();
+            assertEquals("old", render(renders, "other").get(1, TimeUnit.SECONDS));
+            assertEquals(0, renders.get());
+            fc.put(key, "new", 1);
+        } finally {
+            fc.release(key);
+        }
+        assertEquals("new", fc.get(key).toString());
+    }
+
+    @Test
+    public void testFailedRenderReleased() throws Exception {
+        assertNull(fc.get(key));
+        AtomicInteger renders = new AtomicInteger();
+        Future<String> waiting = render(renders, "content");
+        Thread.sleep(100);
+        assertFalse(waiting.isDone());
+        // the rendering failed without storing anything
+        fc.release(key);
+        assertEquals("content", waiting.get(5, TimeUnit.SECONDS));
+        assertEquals(1, renders.get());
+        assertEquals("content", fc.get(key).toString());
+    }
+
+    @Test
+    public void testRecursiveRenderReleased() throws Exception {
+        assertNull(fc.get(key));
+        // the block invoked within itself
+        assertNull(fc.get(key));
+        AtomicInteger renders = new AtomicInteger();
+        Future<String> waiting = render(renders, "other");
+        Thread.sleep(100);
+        assertFalse(waiting.isDone());
+        try {
+            fc.put(key, "inner", 60);
+        } finally {
+            fc.release(key);
+        }
+        Thread.sleep(100);
+        assertFalse(waiting.isDone());
+        try {
+            fc.put(key, "outer", 60);
+        } finally {
+            fc.release(key);
+        }
+        assertEquals("outer", waiting.get(5, TimeUnit.SECONDS));
+        assertEquals(0, renders.get());
+    }
+
+    @Test
+    public void testEncodedOnce() {
+        Charset utf8 = Charset.forName("UTF-8");
+        fc.put(key, "h\u00e9llo", 60);
+        Serializable s = fc.get(key);
+        assertTrue(s instanceof StrBuf);
+        StrBuf sb = (StrBuf) s;
+        assertEquals("h\u00e9llo", sb.toString());
+        byte[] ba = sb.toBinary(utf8);
+        assertArrayEquals("h\u00e9llo".getBytes(utf8), ba);
+        // no encoding on cache hits
+        assertSame(ba, ((StrBuf) fc.get(key)).toBinary(utf8));
+    }
+
+    @Test
+    public void testRenderToOutputStream() throws Exception {
+        String t = "@args int n\n@cache(){\u00e9t\u00e9 @n}";
+        for (int n = 1; n < 3; ++n) {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            engine.render(os, t, n);
+            assertEquals("\u00e9t\u00e9 1", new String(os.toByteArray(), "UTF-8"));
+            assertEquals("\u00e9t\u00e9 1", engine.render(t, n));
+        }
+    }
+
+    /**
+     * A cache service implementing {@link ICacheService} only, as third party services do
+     */
+    private static class PlainCacheService implements ICacheService {
+        private final ICacheService cache = new TimingWheelCacheService(1024 * 1024);
+
+        @Override
+        public void put(String key, Serializable value, int ttl) {
+            cache.put(key, value, ttl);
+        }
+
+        @Override
+        public void put(String key, Serializable value) {
+            cache.put(key, value);
+        }
+
+        @Override
+        public Serializable remove(String key) {
+            return cache.remove(key);
+        }
+
+        @Override
+        public void evict(String key) {
+            cache.evict(key);
+        }
+
+        @Override
+        public Serializable get(String key) {
+            return cache.get(key);
+        }
+
+        @Override
+        public boolean contains(String key) {
+            return cache.contains(key);
+        }
+
+        @Override
+        public void clear() {
+            cache.clear();
+        }
+
+        @Override
+        public void setDefaultTTL(int ttl) {
+            cache.setDefaultTTL(ttl);
+        }
+
+        @Override
+        public void shutdown() {
+            cache.shutdown();
+        }
+
+        @Override
+        public void startup() {
+            cache.startup();
+        }
+    }
+
+    @Test
+    public void testPlainCacheService() {
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.ENGINE_MODE.getKey(), Rythm.Mode.prod);
+        conf.put(RythmConfigurationKey.CACHE_ENABLED.getKey(), true);
+        conf.put(RythmConfigurationKey.CACHE_SERVICE_IMPL.getKey(), new PlainCacheService());
+        RythmEngine engine = new RythmEngine(conf);
+        try {
+            // more than one @cache block makes the template prefetch them
+            String t = "@args int n\n@cache(){a@n}-@cache(){b@n}";
+            assertEquals("a1-b1", engine.render(t, 1));
+            assertEquals("a1-b1", engine.render(t, 2));
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    public static void main(String[] args) {
+        run(FragmentCacheTest.class);
+    }
+}
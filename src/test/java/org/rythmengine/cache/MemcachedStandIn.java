@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.cache;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An in-process stand-in for a memcached server speaking the text protocol, enough for
+ * {@link SpyMemcachedClient}: <code>get</code>, <code>gets</code>, <code>set</code>,
+ * <code>delete</code>, <code>flush_all</code> and <code>version</code>
+ */
+public class MemcachedStandIn {
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    private static final class Item {
+        final int flags;
+        final byte[] data;
+        final long expireAt;
+
+        Item(int flags, byte[] data, long expireAt) {
+            this.flags = flags;
+            this.data = data;
+            this.expireAt = expireAt;
+        }
+    }
+
+    private final ServerSocket server;
+    private final ConcurrentMap<String, Item> items = new ConcurrentHashMap<String, Item>();
+    private final AtomicInteger gets = new AtomicInteger();
+
+    public MemcachedStandIn() throws IOException {
+        server = new ServerSocket();
+        server.bind(new InetSocketAddress("127.0.0.1", 0));
+        Thread acceptor = new Thread("memcached-stand-in") {
+            @Override
+            public void run() {
+                while (!server.isClosed()) {
+                    try {
+                        serve(server.accept());
+                    } catch (IOException e) {
+                        // closed
+                    }
+                }
+            }
+        };
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * @return the address to pass to {@link SpyMemcachedClient}
+     */
+    public String address() {
+        return "127.0.0.1:" + server.getLocalPort();
+    }
+
+    /**
+     * @return the number of get commands received, each of which may read many keys
+     */
+    public int gets() {
+        return gets.get();
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public void stop() throws IOException {
+        server.close();
+    }
+
+    private void serve(final Socket socket) {
+        Thread t = new Thread("memcached-stand-in-conn") {
+            @Override
+            public void run() {
+                try {
+                    InputStream in = new BufferedInputStream(socket.getInputStream());
+                    OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+                    String line;
+                    while (null != (line = readLine(in))) {
+                        handle(line, in, out);
+                        if (in.available() == 0) {
+                            out.flush();
+                        }
+                    }
+                } catch (IOException e) {
+                    // disconnected
+                } finally {
+                    try {
+                        socket.close();
+                    } catch (IOException e) {
+                        // ignore
+                    }
+                }
+            }
+        };
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private void handle(String line, InputStream in, OutputStream out) throws IOException {
+        String[] sa = line.split(" ");
+        String cmd = sa[0];
+        if ("get".equals(cmd) || "gets".equals(cmd)) {
+            gets.incrementAndGet();
+            for (int i = 1; i < sa.length; ++i) {
+                Item item = items.get(sa[i]);
+                if (null == item || item.expireAt < System.currentTimeMillis()) {
+                    continue;
+                }
+                String header = "VALUE " + sa[i] + " " + item.flags + " " + item.data.length;
+                if ("gets".equals(cmd)) {
+                    header += " 1";
+                }
+                write(out, header);
+                out.write(item.data);
+                write(out, "");
+            }
+            write(out, "END");
+        } else if ("set".equals(cmd)) {
+            int flags = Integer.parseInt(sa[2]);
+            long exp = Long.parseLong(sa[3]);
+            byte[] data = new byte[Integer.parseInt(sa[4])];
+            int read = 0;
+            while (read < data.length) {
+                int n = in.read(data, read, data.length - read);
+                if (n < 0) throw new EOFException();
+                read += n;
+            }
+            readLine(in);
+            long expireAt = 0 == exp ? Long.MAX_VALUE : System.currentTimeMillis() + exp * 1000;
+            items.put(sa[1], new Item(flags, data, expireAt));
+            if (!line.endsWith("noreply")) {
+                write(out, "STORED");
+            }
+        } else if ("delete".equals(cmd)) {
+            boolean deleted = null != items.remove(sa[1]);
+            if (!line.endsWith("noreply")) {
+                write(out, deleted ? "DELETED" : "NOT_FOUND");
+            }
+        } else if ("flush_all".equals(cmd)) {
+            items.clear();
+            if (!line.endsWith("noreply")) {
+                write(out, "OK");
+            }
+        } else if ("version".equals(cmd)) {
+            write(out, "VERSION 1.4.0");
+        } else {
+            write(out, "ERROR");
+        }
+    }
+
+    private static void write(OutputStream out, String line) throws IOException {
+        out.write(line.getBytes(ASCII));
+        out.write('\r');
+        out.write('\n');
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        int c;
+        while ((c = in.read()) >= 0) {
+            if (c == '\n') {
+                byte[] ba = buf.toByteArray();
+                int len = ba.length > 0 && ba[ba.length - 1] == '\r' ? ba.length - 1 : ba.length;
+                return new String(ba, 0, len, ASCII);
+            }
+            buf.write(c);
+        }
+        return null;
+    }
+}
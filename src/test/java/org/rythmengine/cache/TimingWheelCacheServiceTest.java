@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.cache;
+
+import org.junit.Test;
+import org.rythmengine.extension.ICacheService;
+
+/**
+ * Test the default cache service
+ */
+public class TimingWheelCacheServiceTest extends CacheServiceTestBase {
+
+    private static final long MAX_WEIGHT = 64 * 1024;
+
+    private static final TimingWheelCacheService service = new TimingWheelCacheService(MAX_WEIGHT);
+
+    @Override
+    protected ICacheService cacheService() {
+        return service;
+    }
+
+    private static String value(int len) {
+        StringBuilder sb = new StringBuilder(len);
+        for (int i = 0; i < len; ++i) {
+            sb.append('x');
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testWeightBound() {
+        String v = value(100);
+        for (int i = 0; i < 10000; ++i) {
+            service.put("key" + i, v, 10);
+        }
+        assertTrue(service.weightedSize() <= MAX_WEIGHT);
+        assertTrue(service.size() > 0);
+        assertTrue(service.size() < 10000);
+    }
+
+    @Test
+    public void testFrequentItemKept() {
+        String v = value(100);
+        service.put("hot", v, 10);
+        for (int i = 0; i < 10000; ++i) {
+            service.put("key" + i, v, 10);
+            if (i % 100 == 0) {
+                assertEquals(v, service.get("hot"));
+            }
+        }
+        assertEquals(v, service.get("hot"));
+    }
+
+    @Test
+    public void testOversizedItemNotCached() {
+        service.put("key1", "val1", 10);
+        service.put("key1", value((int) MAX_WEIGHT), 10);
+        assertNull(service.get("key1"));
+        assertEquals(0, service.weightedSize());
+    }
+
+    @Test
+    public void testNeverExpire() throws Exception {
+        service.put("key1", "val1", -1);
+        service.put("key2", "val2", 1);
+        Thread.sleep(2100);
+        service.expire();
+        assertEquals("val1", service.get("key1"));
+        assertNull(service.get("key2"));
+        // reclaimed by the timing wheel
+        assertEquals(1, service.size());
+    }
+
+    public static void main(String[] args) {
+        run(TimingWheelCacheServiceTest.class);
+    }
+}
@@ -0,0 +1,228 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.rythmengine.Rythm;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+import org.rythmengine.conf.RythmConfigurationKey;
+import org.rythmengine.extension.IBulkCacheService;
+import org.rythmengine.extension.ICacheService;
+import org.rythmengine.extension.IRemoteCacheClient;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test {@link TwoTierCacheService} with a memcached stand-in as the second tier
+ */
+public class TwoTierCacheServiceTest extends TestBase {
+
+    private MemcachedStandIn memcached;
+    private List<ICacheService> services = new ArrayList<ICacheService>();
+
+    @Before
+    public void setup() throws Exception {
+        memcached = new MemcachedStandIn();
+    }
+
+    @After
+    public void teardown() throws Exception {
+        for (ICacheService service : services) {
+            service.shutdown();
+        }
+        memcached.stop();
+    }
+
+    private TwoTierCacheService newService() {
+        TwoTierCacheService service = new TwoTierCacheService(new TimingWheelCacheService(1024 * 1024), new SpyMemcachedClient(memcached.address()), 10);
+        services.add(service);
+        return service;
+    }
+
+    // the writes to the second tier are not waited for
+    private void awaitStored(int size) throws InterruptedException {
+        for (int i = 0; i < 100 && memcached.size() < size; ++i) {
+            Thread.sleep(20);
+        }
+        assertEquals(size, memcached.size());
+    }
+
+    private RythmEngine newEngine() {
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.ENGINE_MODE.getKey(), Rythm.Mode.prod);
+        conf.put(RythmConfigurationKey.CACHE_ENABLED.getKey(), true);
+        conf.put(RythmConfigurationKey.CACHE_SERVICE_IMPL.getKey(), new TwoTierCacheService(new TimingWheelCacheService(1024 * 1024), new SpyMemcachedClient(memcached.address()), 10));
+        return new RythmEngine(conf);
+    }
+
+    @Test
+    public void testSecondTierShared() throws Exception {
+        ICacheService node1 = newService();
+        ICacheService node2 = newService();
+        node1.put("k", "v", 60);
+        awaitStored(1);
+        assertEquals("v", node2.get("k"));
+        int gets = memcached.gets();
+        // kept in the first tier
+        assertEquals("v", node2.get("k"));
+        assertEquals(gets, memcached.gets());
+
+        node1.evict("k");
+        assertNull(node1.get("k"));
+        assertEquals(0, memcached.size());
+    }
+
+    @Test
+    public void testGetAllInOneRoundTrip() throws Exception {
+        IBulkCacheService node1 = newService();
+        IBulkCacheService node2 = newService();
+        Map<String, Serializable> items = new HashMap<String, Serializable>();
+        for (int i = 0; i < 5; ++i) {
+            items.put("key " + i, "value" + i);
+        }
+        node1.putAll(items, 60);
+        awaitStored(5);
+        // key 0 is read from the first tier
+        assertEquals("value0", node2.get("key 0"));
+        List<String> keys = new ArrayList<String>(items.keySet());
+        keys.add("missing");
+        int gets = memcached.gets();
+        Map<String, Serializable> found = node2.getAll(keys);
+        assertEquals(items, found);
+        assertEquals(gets + 1, memcached.gets());
+    }
+
+    /**
+     * A second tier which could not be reached, counting the calls
+     */
+    private static class Down implements IRemoteCacheClient {
+        int calls;
+
+        private RuntimeException down() {
+            ++calls;
+            return new IllegalStateException("down");
+        }
+
+        @Override
+        public Serializable get(String key) {
+            throw down();
+        }
+
+        @Override
+        public Map<String, Serializable> getAll(Collection<String> keys) {
+            throw down();
+        }
+
+        @Override
+        public void set(String key, Serializable value, int ttl, WriteListener listener) {
+            ++calls;
+            listener.onComplete(key, new IllegalStateException("down"));
+        }
+
+        @Override
+        public void delete(String key) {
+            throw down();
+        }
+
+        @Override
+        public void flush() {
+            throw down();
+        }
+
+        @Override
+        public void startup() {
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+
+    @Test
+    public void testSecondTierDown() {
+        IBulkCacheService service = new TwoTierCacheService(new TimingWheelCacheService(1024 * 1024), new Down(), 10);
+        services.add(service);
+        assertNull(service.get("k"));
+        service.put("k", "v", 60);
+        assertEquals("v", service.get("k"));
+        assertEquals(Collections.singletonMap("k", "v"), service.getAll(Arrays.asList("k", "x")));
+    }
+
+    @Test
+    public void testSecondTierRetry() throws Exception {
+        Down down = new Down();
+        ICacheService service = new TwoTierCacheService(new TimingWheelCacheService(1024 * 1024), down, 10, 200);
+        services.add(service);
+        service.put("k", "v", 60);
+        assertEquals(1, down.calls);
+        // not called again within the retry interval
+        assertNull(service.get("x"));
+        service.put("k", "v", 60);
+        service.evict("k");
+        assertEquals(1, down.calls);
+        Thread.sleep(250);
+        assertNull(service.get("x"));
+        assertEquals(2, down.calls);
+        assertNull(service.get("x"));
+        assertEquals(2, down.calls);
+    }
+
+    @Test
+    public void testClientShutdown() throws Exception {
+        SpyMemcachedClient client = new SpyMemcachedClient(memcached.address());
+        final CountDownLatch stored = new CountDownLatch(1);
+        client.set("k", "v", 60, new IRemoteCacheClient.WriteListener() {
+            @Override
+            public void onComplete(String key, Throwable error) {
+                if (null == error) {
+                    stored.countDown();
+                }
+            }
+        });
+        assertTrue(stored.await(1, TimeUnit.SECONDS));
+        client.shutdown();
+        try {
+            client.get("k");
+            fail("should not read from a shutdown client");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        client.startup();
+        try {
+            assertEquals("v", client.get("k"));
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    @Test
+    public void testPrefetch() throws Exception {
+        t = "@args String a, int n\n@cache(\"1mn\", a){[@a @n]}@cache(\"1mn\", a, 1){[@n]}@cache(\"1mn\"){[@n]}";
+        RythmEngine node1 = newEngine();
+        RythmEngine node2 = newEngine();
+        try {
+            assertEquals("[x 1][1][1]", node1.render(t, "x", 1));
+            awaitStored(3);
+            int gets = memcached.gets();
+            // rendered by the other node
+            assertEquals("[x 1][1][1]", node2.render(t, "x", 2));
+            assertEquals(gets + 1, memcached.gets());
+        } finally {
+            node1.shutdown();
+            node2.shutdown();
+        }
+    }
+
+    public static void main(String[] args) {
+        run(TwoTierCacheServiceTest.class);
+    }
+}
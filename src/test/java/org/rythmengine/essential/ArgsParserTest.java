@@ -5,10 +5,14 @@
  */
 package org.rythmengine.essential;
 
+import org.rythmengine.Rythm;
 import org.rythmengine.TestBase;
+import org.rythmengine.template.ITemplate;
 import org.junit.Test;
 
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Test @args parser
@@ -76,6 +80,26 @@ public class ArgsParserTest extends TestBase {
         eq("\n</style>  \ns");
     }
 
+    @Test
+    public void testBindByNameAndPosition() {
+        // "Aa" and "BB" share the same hash code
+        t = "@args String Aa, String BB, int x\n@Aa-@BB-@x";
+        Map<String, Object> m = new HashMap<String, Object>();
+        m.put("BB", "b");
+        m.put("Aa", "a");
+        m.put("x", 3);
+        s = r(t, m);
+        eq("a-b-3");
+        s = r(t, "a", "b", 3);
+        eq("a-b-3");
+        ITemplate tmpl = Rythm.engine().getTemplate(t);
+        tmpl.__setRenderArg("BB", "b");
+        tmpl.__setRenderArg(2, 5);
+        tmpl.__setRenderArg(0, "a");
+        s = tmpl.render();
+        eq("a-b-5");
+    }
+
     public static void main(String[] args) {
         run(ArgsParserTest.class);
     }
@@ -72,6 +72,18 @@ public class CacheParserTest extends TestBase {
         eq("5");
     }
     
+    @Test
+    public void testCacheArgs() {
+        t = "@args String a, String b\n@cache(\"10s\", a, b){@a|@b}";
+        s = r(t, "a-b", "c");
+        eq("a-b|c");
+        // used to share the key "...-a-b-c" with the call above
+        s = r(t, "a", "b-c");
+        eq("a|b-c");
+        s = r(t, "a-b", "c");
+        eq("a-b|c");
+    }
+
     @Test
     public void testCacheDisabled() {
         System.setProperty(CACHE_ENABLED.getKey(), "false");
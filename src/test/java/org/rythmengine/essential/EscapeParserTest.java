@@ -86,6 +86,46 @@ public class EscapeParserTest extends TestBase {
         eq("&lt;h1&gt;abc&lt;/h1&gt;");
     }
     
+    @Test
+    public void testEscapeResolvedAtCompileTime() {
+        t = "@args String p\n@escape(\"html\"){@p @raw(){@p} @escape(){@p}}";
+        s = r(t, "<b>");
+        eq("&lt;b&gt; <b> &lt;b&gt;");
+        getSource();
+        assertContains(s, "pe(p, org.rythmengine.utils.Escape.HTML)");
+        assertContains(s, "pe(p, org.rythmengine.utils.Escape.RAW)");
+
+        // the escape scheme of a macro depends on where it is executed
+        t = "@args String p\n@escape(\"html\"){@macro(\"m\"){@p}}@exec(\"m\") @escape(\"json\"){@exec(\"m\")}";
+        s = r(t, "<\"b\">");
+        eq("<\"b\"><\\\"b\\\">");
+    }
+
+    @Test
+    public void testSafeRenderArgNotEscaped() {
+        System.getProperties().put(RythmConfigurationKey.DEFAULT_CODE_TYPE_IMPL.getKey(), ICodeType.DefImpl.HTML);
+        t = "@args Integer n, Boolean b, String p\n@n @b @p";
+        s = r(t, 5, true, "<b>");
+        eq("5 true &lt;b&gt;");
+        getSource();
+        assertContains(s, "p(n)");
+        assertContains(s, "p(b)");
+        assertContains(s, "pe(p)");
+
+        // a local variable shadowing the render arg must still be escaped
+        t = "@args Integer n\n@for(String n: new String[]{\"<b>\"}){@n}";
+        s = r(t, 5);
+        eq("&lt;b&gt;");
+
+        t = "@args Integer n\n@def foo(String n){@n}@foo(\"<b>\")";
+        s = r(t, 5);
+        eq("&lt;b&gt;");
+
+        t = "@args Integer n\n@{String n = \"<b>\";}[@n]";
+        s = r(t, 5);
+        eq("[&lt;b&gt;]");
+    }
+
     public static void main(String[] args) {
         run(EscapeParserTest.class);
         
@@ -9,9 +9,12 @@ import org.rythmengine.TestBase;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.LinkedList;
+import java.util.List;
 
 import static org.rythmengine.conf.RythmConfigurationKey.FEATURE_TYPE_INFERENCE_ENABLED;
 import static org.rythmengine.utils.NamedParams.from;
@@ -397,6 +400,76 @@ public class ForParserTest extends TestBase {
         eq("1|2|3|4");
     }
     
+    @Test
+    public void testPrimitiveArray() {
+        t = "@args int[] nums\n@for(n : nums){@(n)@n_sep}";
+        s = r(t, new int[]{1, 2, 3});
+        eq("1,2,3");
+
+        t = "@args long[] nums\n@for(long n : nums){@(n * 2)|}";
+        s = r(t, new long[]{1L, 2L});
+        eq("2|4|");
+    }
+
+    @Test
+    public void testList() {
+        t = "@args List<String> items\n@for(x : items){@x_index:@(x)@x_utils.sep(\"|\")}";
+        List<String> l = new ArrayList<String>(Arrays.asList("a", "b", "c"));
+        s = r(t, l);
+        eq("1:a|2:b|3:c");
+
+        s = r(t, new LinkedList<String>(l));
+        eq("1:a|2:b|3:c");
+    }
+
+    @Test
+    public void testEmptyListWithElse() {
+        t = "@args List<String> items\n@for(x : items){@x}else{empty}";
+        s = r(t, new ArrayList<String>());
+        eq("empty");
+
+        s = r(t, (Object) null);
+        eq("empty");
+    }
+
+    @Test
+    public void testCharRange() {
+        t = "@for(char c : 'a' .. 'e'){@c}";
+        s = r(t);
+        eq("abcd");
+
+        t = "@for(c : 'a' till 'c'){@(c)@c_sep}";
+        s = r(t);
+        eq("a,b,c");
+    }
+
+    @Test
+    public void testLoopHelpersOnDemand() {
+        t = "@args List<String> items\n@for(x : items){@x}";
+        getSource();
+        assertNotContains(s, "x_isLast");
+        assertNotContains(s, "RawData");
+        assertNotContains(s, "__pushItrVar");
+        assertNotContains(s, "Range.valueOf");
+
+        t = "@args List<String> items\n@for(x : items){@x_parity}";
+        getSource();
+        assertContains(s, "x_parity");
+        assertNotContains(s, "x_utils");
+
+        // only the loop body is looked at, and "include" in text is not an @include
+        t = "@args List<String> items\n@for(x : items){include @x}x_isOdd";
+        getSource();
+        assertNotContains(s, "x_isOdd =");
+    }
+
+    @Test
+    public void testLoopHelpersInMacro() {
+        t = "@args List<String> items\n@macro(\"m\"){@x_index}@for(x : items){@exec(\"m\"):@x|}";
+        s = r(t, Arrays.asList("a", "b"));
+        eq("1:a|2:b|");
+    }
+
 //    @Test
 //    public void testNullCollection() {
 //        t = "@args List<String> l;@for(l).join(){@_}";
@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.essential;
+
+import org.junit.Test;
+import org.rythmengine.Rythm;
+import org.rythmengine.TestBase;
+import org.rythmengine.template.ITemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.*;
+
+/**
+ * Test the pooled render context
+ */
+public class RenderContextTest extends TestBase {
+
+    @Test
+    public void testContextReleasedAfterRender() {
+        t = "@args String s\n@__curLocale()|@locale(java.util.Locale.CHINA){@__curLocale()}|@__curLocale()|@s";
+        ITemplate tmpl = Rythm.engine().getTemplate(t, "<a>");
+        s = tmpl.render();
+        eq("en_US|zh_CN|en_US|<a>");
+        // the template could still be inspected after the render
+        assertEquals(Locale.US, tmpl.__curLocale());
+        assertNotNull(tmpl.__curCodeType());
+    }
+
+    @Test
+    public void testNullRenderArg() {
+        ITemplate tmpl = Rythm.engine().getTemplate("@args String s\n@s|");
+        tmpl.__setRenderArg("s", null);
+        s = tmpl.render();
+        eq("|");
+    }
+
+    @Test
+    public void testConcurrentRenders() throws Exception {
+        t = "@args int i\n@__curLocale()-@i-@locale(java.util.Locale.US){@__curLocale()}";
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> l = new ArrayList<Future<String>>();
+            final Locale[] locales = {Locale.CHINA, Locale.FRANCE, Locale.GERMANY};
+            for (int i = 0; i < 300; ++i) {
+                final int n = i;
+                l.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        Rythm.engine().prepare(locales[n % 3]);
+                        return Rythm.render(t, n);
+                    }
+                }));
+            }
+            for (int i = 0; i < 300; ++i) {
+                eqs(locales[i % 3] + "-" + i + "-en_US", l.get(i).get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
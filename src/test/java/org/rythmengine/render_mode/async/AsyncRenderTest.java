@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.render_mode.async;
+
+import org.junit.Test;
+import org.rythmengine.Rythm;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+import org.rythmengine.conf.RythmConfigurationKey;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test async render API
+ */
+public class AsyncRenderTest extends TestBase {
+
+    @Test
+    public void testRenderAsync() throws Exception {
+        t = "@args String who\nhello @who";
+        Future<String> f = Rythm.renderAsync(t, "world");
+        s = f.get(10, TimeUnit.SECONDS);
+        eq("hello world");
+    }
+
+    @Test
+    public void testFanOut() throws Exception {
+        t = "@args int i\n[@i]";
+        List<Future<String>> l = new ArrayList<Future<String>>();
+        for (int i = 0; i < 50; ++i) {
+            l.add(Rythm.renderAsync(t, i));
+        }
+        for (int i = 0; i < 50; ++i) {
+            eqs("[" + i + "]", l.get(i).get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testConfiguredExecutor() throws Exception {
+        final AtomicInteger counter = new AtomicInteger();
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                counter.incrementAndGet();
+                command.run();
+            }
+        };
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.ENGINE_RENDER_EXECUTOR_IMPL.getKey(), executor);
+        RythmEngine engine = new RythmEngine(conf);
+        try {
+            t = "@args String who\nhello @who";
+            s = engine.renderAsync(t, "world").get();
+            eq("hello world");
+            StringWriter w = new StringWriter();
+            engine.renderAsync(w, t, "rythm").get();
+            eqs("hello rythm", w.toString());
+            assertEquals(2, counter.get());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testRenderSettingsCarriedOver() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            RythmEngine engine = Rythm.engine();
+            Map<String, Object> usrCtx = new HashMap<String, Object>();
+            usrCtx.put("x", "bar");
+            engine.prepare(null, Locale.FRANCE, usrCtx);
+            t = "@__curLocale()-@__getUserContext().get(\"x\")";
+            Future<String> f = engine.renderAsync(executor, t);
+            engine.renderSettings.clear();
+            s = f.get(10, TimeUnit.SECONDS);
+            eq("fr_FR-bar");
+            // settings shall not leak into the pooled thread
+            t = "@__curLocale()-@__getUserContext().containsKey(\"x\")";
+            s = engine.renderAsync(executor, t).get(10, TimeUnit.SECONDS);
+            eq(engine.conf().locale() + "-false");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testStreamAsync() throws Exception {
+        t = "@args String who\nh\u00e9llo @who";
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        Rythm.engine().renderAsync(os, t, "world").get(10, TimeUnit.SECONDS);
+        s = new String(os.toByteArray(), "UTF-8");
+        eq("h\u00e9llo world");
+    }
+
+    @Test
+    public void testException() throws Exception {
+        t = "@args int i\n@(10 / i)";
+        Future<String> f = Rythm.renderAsync(t, 0);
+        try {
+            f.get(10, TimeUnit.SECONDS);
+            fail("ExecutionException expected");
+        } catch (ExecutionException e) {
+            assertNotNull(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.render_mode.batch;
+
+import org.junit.Test;
+import org.rythmengine.Rythm;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+import org.rythmengine.conf.RythmConfigurationKey;
+import org.rythmengine.utils.F;
+
+import java.util.*;
+
+/**
+ * Test batch render API
+ */
+public class BatchRenderTest extends TestBase {
+
+    @Test
+    public void testPositionalArgs() {
+        t = "@args String name, int i\n@name:@i";
+        List<Object[]> argsList = new ArrayList<Object[]>();
+        for (int i = 0; i < 3000; ++i) {
+            argsList.add(new Object[]{"n" + i, i});
+        }
+        List<String> l = Rythm.engine().renderBatch(t, argsList);
+        assertEquals(3000, l.size());
+        for (int i = 0; i < 3000; ++i) {
+            eqs("n" + i + ":" + i, l.get(i));
+        }
+    }
+
+    @Test
+    public void testNamedArgs() {
+        t = "@args String name, int i\n@name:@i";
+        List<Map<String, Object>> argsList = new ArrayList<Map<String, Object>>();
+        for (int i = 0; i < 100; ++i) {
+            Map<String, Object> m = new HashMap<String, Object>();
+            m.put("name", "n" + i);
+            m.put("i", i);
+            argsList.add(m);
+        }
+        final List<String> l = new ArrayList<String>();
+        final Thread caller = Thread.currentThread();
+        Rythm.engine().renderBatch(t, argsList, new F.Action<String>() {
+            @Override
+            public void invoke(String result) {
+                assertSame(caller, Thread.currentThread());
+                l.add(result);
+            }
+        });
+        assertEquals(100, l.size());
+        for (int i = 0; i < 100; ++i) {
+            eqs("n" + i + ":" + i, l.get(i));
+        }
+    }
+
+    @Test
+    public void testSameResultAsRender() {
+        t = "@args String who\n<p>@who</p>";
+        List<Object> argsList = Arrays.<Object>asList("<b>", "a&b", "x");
+        List<String> l = Rythm.engine().renderBatch(t, argsList);
+        for (int i = 0; i < argsList.size(); ++i) {
+            eqs(r(t, argsList.get(i)), l.get(i));
+        }
+    }
+
+    @Test
+    public void testTypeInference() {
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.FEATURE_TYPE_INFERENCE_ENABLED.getKey(), true);
+        RythmEngine engine = new RythmEngine(conf);
+        try {
+            t = "@1.getClass().getSimpleName()";
+            List<Object> argsList = Arrays.<Object>asList("s", 1, "t", 2L);
+            List<String> l = engine.renderBatch(t, argsList);
+            assertEquals(Arrays.asList("String", "Integer", "String", "Long"), l);
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testUserContext() {
+        RythmEngine engine = Rythm.engine();
+        Map<String, Object> usrCtx = new HashMap<String, Object>();
+        usrCtx.put("x", "bar");
+        engine.prepare(usrCtx);
+        t = "@args int i\n@i-@__getUserContext().get(\"x\")";
+        List<Object> argsList = new ArrayList<Object>();
+        for (int i = 0; i < 100; ++i) {
+            argsList.add(i);
+        }
+        List<String> l = engine.renderBatch(t, argsList);
+        for (int i = 0; i < 100; ++i) {
+            eqs(i + "-bar", l.get(i));
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testException() {
+        t = "@args int i\n@(10 / i)";
+        Rythm.engine().renderBatch(t, Arrays.<Object>asList(1, 2, 0, 5));
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.render_mode.output_stream;
+
+import org.junit.Test;
+import org.rythmengine.Rythm;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+import org.rythmengine.conf.RythmConfigurationKey;
+import org.rythmengine.exception.RythmException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test render to NIO channel and byte buffer
+ */
+public class ChannelTest extends TestBase {
+
+    @Test
+    public void testChannel() throws Exception {
+        t = "@args String who\nh\u00e9llo @who \u20ac";
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        Rythm.engine().render(Channels.newChannel(os), t, "w\u00f6rld");
+        s = new String(os.toByteArray(), "UTF-8");
+        eq("h\u00e9llo w\u00f6rld \u20ac");
+    }
+
+    @Test
+    public void testGatheringWrite() throws Exception {
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.ENGINE_OUTPUT_BUFFER_SIZE.getKey(), 64);
+        RythmEngine engine = new RythmEngine(conf);
+        File file = File.createTempFile("rythm", ".txt");
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 100; ++i) {
+                sb.append("static \u00e9 text ");
+            }
+            String text = sb.toString();
+            t = "@args int n\n@for(int i = 0; i < n; ++i){[@i]" + text + "}";
+            sb = new StringBuilder();
+            for (int i = 0; i < 3; ++i) {
+                sb.append("[").append(i).append("]").append(text);
+            }
+            FileChannel fc = new FileOutputStream(file).getChannel();
+            try {
+                engine.render(fc, t, 3);
+            } finally {
+                fc.close();
+            }
+            s = read(file);
+            eq(sb.toString());
+        } finally {
+            file.delete();
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testByteBuffer() throws Exception {
+        t = "@args String who\nh\u00e9llo @who";
+        ByteBuffer bb = ByteBuffer.allocate(1024);
+        bb.put((byte) '>');
+        Rythm.engine().render(bb, t, "w\u00f6rld");
+        bb.flip();
+        byte[] ba = new byte[bb.remaining()];
+        bb.get(ba);
+        s = new String(ba, "UTF-8");
+        eq(">h\u00e9llo w\u00f6rld");
+    }
+
+    @Test
+    public void testByteBufferOverflow() throws Exception {
+        t = "@args String who\nhello @who";
+        try {
+            Rythm.engine().render(ByteBuffer.allocate(8), t, "world");
+            fail("BufferOverflowException expected");
+        } catch (RythmException e) {
+            assertTrue(e.getCause() instanceof BufferOverflowException);
+        }
+    }
+
+    @Test
+    public void testByteBufferTooSmall() throws Exception {
+        // the static text alone is larger than the empty target buffer
+        t = "hello world, this does not fit";
+        try {
+            Rythm.engine().render(ByteBuffer.allocate(8), t);
+            fail("BufferOverflowException expected");
+        } catch (RythmException e) {
+            assertTrue(e.getCause() instanceof BufferOverflowException);
+        }
+        t = "@args String who\n@who";
+        try {
+            Rythm.engine().render(ByteBuffer.allocate(8), t, "h\u00e9llo w\u00f6rld");
+            fail("BufferOverflowException expected");
+        } catch (RythmException e) {
+            assertTrue(e.getCause() instanceof BufferOverflowException);
+        }
+    }
+
+    private static String read(File file) throws Exception {
+        FileInputStream is = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            byte[] buf = new byte[1024];
+            int n;
+            while ((n = is.read(buf)) > 0) {
+                os.write(buf, 0, n);
+            }
+            return new String(os.toByteArray(), "UTF-8");
+        } finally {
+            is.close();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.render_mode.output_stream;
+
+import org.junit.Test;
+import org.rythmengine.Rythm;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+import org.rythmengine.conf.RythmConfigurationKey;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test render to binary output stream
+ */
+public class OutputStreamTest extends TestBase {
+
+    private static String render(RythmEngine engine, String charset, String template, Object... args) throws Exception {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        engine.render(os, template, args);
+        return new String(os.toByteArray(), charset);
+    }
+
+    @Test
+    public void testDefaultCharset() throws Exception {
+        t = "@args String who\nh\u00e9llo @who \u20ac@('\u00fc')";
+        s = render(Rythm.engine(), "UTF-8", t, "w\u00f6rld");
+        eq("h\u00e9llo w\u00f6rld \u20ac\u00fc");
+    }
+
+    @Test
+    public void testConfiguredCharset() throws Exception {
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.ENGINE_OUTPUT_CHARSET.getKey(), "ISO-8859-1");
+        RythmEngine engine = new RythmEngine(conf);
+        try {
+            t = "@args String who\nh\u00e9llo @who";
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            engine.render(os, t, "w\u00f6rld");
+            byte[] ba = os.toByteArray();
+            assertEquals("h\u00e9llo w\u00f6rld".length(), ba.length);
+            eqs("h\u00e9llo w\u00f6rld", new String(ba, "ISO-8859-1"));
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testSmallBuffer() throws Exception {
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.ENGINE_OUTPUT_BUFFER_SIZE.getKey(), 64);
+        RythmEngine engine = new RythmEngine(conf);
+        try {
+            t = "@args int n\n@for(int i = 0; i < n; ++i){[@i:\u00e9\ud83d\ude00]}";
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 200; ++i) {
+                sb.append("[").append(i).append(":\u00e9\ud83d\ude00]");
+            }
+            s = render(engine, "UTF-8", t, 200);
+            eq(sb.toString());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testSameResultAsString() throws Exception {
+        t = "@args String who\n<p>@who</p>\n@for(int i : new int[]{1, 2, 3}){@i,}";
+        String expected = r(t, "<b>");
+        s = render(Rythm.engine(), "UTF-8", t, "<b>");
+        eq(expected);
+    }
+
+    @Test
+    public void testInclude() throws Exception {
+        s = render(Rythm.engine(), "UTF-8", "foo/includeInlineFunction.html");
+        eqf("foo/includeInlineFunction.result");
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.render_mode.streaming;
+
+import org.junit.Test;
+import org.rythmengine.Rythm;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+import org.rythmengine.conf.RythmConfigurationKey;
+import org.rythmengine.extension.IFlushPolicy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test streaming render to writer and output stream
+ */
+public class StreamingTest extends TestBase {
+
+    /**
+     * Record the content received by each write and flush call
+     */
+    private static class RecordingWriter extends StringWriter {
+        List<String> flushed = new ArrayList<String>();
+        int writes;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            writes++;
+            super.write(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str) {
+            writes++;
+            super.write(str);
+        }
+
+        @Override
+        public void flush() {
+            flushed.add(toString());
+        }
+    }
+
+    private static RythmEngine engine(IFlushPolicy policy) {
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.HOME_TEMPLATE.getKey(), "root");
+        conf.put(RythmConfigurationKey.ENGINE_OUTPUT_FLUSH_POLICY_IMPL.getKey(), policy);
+        return new RythmEngine(conf);
+    }
+
+    @Test
+    public void testWriteInChunks() {
+        t = "@args int n\n@for(int i = 0; i < n; ++i){<li>@i</li>}";
+        RecordingWriter w = new RecordingWriter();
+        Rythm.engine().render(w, t, 100);
+        eqs(r(t, 100), w.toString());
+        assertEquals(1, w.writes);
+        assertTrue(w.flushed.isEmpty());
+    }
+
+    @Test
+    public void testFlushDirective() {
+        t = "@args String who\nhello\n@flush()\n@who";
+        RecordingWriter w = new RecordingWriter();
+        Rythm.engine().render(w, t, "rythm");
+        eqs("hello\nrythm", w.toString());
+        assertEquals(1, w.flushed.size());
+        eqs("hello", w.flushed.get(0));
+    }
+
+    @Test
+    public void testFlushDirectiveInString() {
+        t = "hello\n@flush()\nworld";
+        eq("hello\nworld");
+    }
+
+    @Test
+    public void testThreshold() {
+        RythmEngine engine = engine(new IFlushPolicy.DefImpl(100, true, false));
+        try {
+            t = "@args int n\n@for(int i = 0; i < n; ++i){<li>@i</li>}";
+            RecordingWriter w = new RecordingWriter();
+            engine.render(w, t, 100);
+            eqs(r(t, 100), w.toString());
+            assertTrue(w.writes >= 10);
+            assertTrue(w.flushed.size() >= 10);
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testCacheToWriter() {
+        System.setProperty(RythmConfigurationKey.CACHE_ENABLED.getKey(), "true");
+        try {
+            t = "@args int n\n[@cache(){@n}]";
+            StringWriter w = new StringWriter();
+            Rythm.engine().render(w, t, 1);
+            eqs("[1]", w.toString());
+            // the block rendered to the writer is the one cached
+            eqs("[1]", r(t, 2));
+        } finally {
+            System.clearProperty(RythmConfigurationKey.CACHE_ENABLED.getKey());
+        }
+    }
+
+    @Test
+    public void testLayout() throws Exception {
+        String expected = r("foo/index5.html");
+        StringWriter w = new StringWriter();
+        Rythm.engine().render(w, "foo/index5.html");
+        eqs(expected, w.toString());
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        Rythm.engine().render(os, "foo/index5.html");
+        eqs(expected, os.toString("UTF-8"));
+    }
+
+    @Test
+    public void testFlushOnSection() {
+        RythmEngine engine = engine(new IFlushPolicy.DefImpl(0, false, true));
+        try {
+            RecordingWriter w = new RecordingWriter();
+            engine.render(w, "foo/index5.html");
+            eqs(engine.render("foo/index5.html"), w.toString());
+            assertEquals(3, w.flushed.size());
+            assertTrue(w.flushed.get(0).endsWith("nav-bar"));
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testEscapedExpression() throws Exception {
+        t = "@args String s\n@escape(\"html\"){<p>@s</p>}";
+        String v = "Tom & Jerry <café> 中文";
+        String expected = "<p>Tom &amp; Jerry &lt;caf&eacute;&gt; 中文</p>";
+        StringWriter w = new StringWriter();
+        Rythm.engine().render(w, t, v);
+        eqs(expected, w.toString());
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        Rythm.engine().render(os, t, v);
+        eqs(expected, os.toString("UTF-8"));
+        eqs(expected, r(t, v));
+    }
+}
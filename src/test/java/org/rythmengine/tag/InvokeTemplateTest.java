@@ -5,9 +5,11 @@
  */
 package org.rythmengine.tag;
 
+import org.rythmengine.Rythm;
 import org.rythmengine.TestBase;
 import org.junit.Test;
 import org.rythmengine.conf.RythmConfigurationKey;
+import org.rythmengine.template.JavaTagBase;
 
 /**
  * Test invoke other templates
@@ -113,6 +115,56 @@ public class InvokeTemplateTest extends TestBase {
         eq("voo");
     }
 
+    private static class Echo extends JavaTagBase {
+        private String name;
+        private String text;
+
+        Echo(String name, String text) {
+            this.name = name;
+            this.text = text;
+        }
+
+        @Override
+        public String __getName() {
+            return name;
+        }
+
+        @Override
+        protected void call(__ParameterList params, __Body body) {
+            p(text);
+        }
+    }
+
+    @Test
+    public void testRepeatedInvocationAtSameCallSite() {
+        t = "@for(String x: \"1,2,3\".split(\",\")){@bar.included()|}";
+        s = r(t);
+        eq("included content|included content|included content|");
+        s = r(t);
+        eq("included content|included content|included content|");
+    }
+
+    @Test
+    public void testRelinkAfterTagRegisteredAgain() {
+        Rythm.engine().registerFastTag(new Echo("linkedTag", "a"));
+        t = "@linkedTag()@linkedTag()";
+        s = r(t);
+        eq("aa");
+        Rythm.engine().registerFastTag(new Echo("linkedTag", "b"));
+        s = r(t);
+        eq("bb");
+    }
+
+    @Test
+    public void testDynamicTagNameAtSameCallSite() {
+        Rythm.engine().registerFastTag(new Echo("dynTagA", "a"));
+        Rythm.engine().registerFastTag(new Echo("dynTagB", "b"));
+        t = "@args String n\n@invoke(n)";
+        assertEquals("a", r(t, "dynTagA"));
+        assertEquals("b", r(t, "dynTagB"));
+        assertEquals("a", r(t, "dynTagA"));
+    }
+
     public static void main(String[] args) {
         run(InvokeTemplateTest.class);
     }
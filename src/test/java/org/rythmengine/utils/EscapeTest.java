@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.utils;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.junit.Test;
+import org.rythmengine.TestBase;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Random;
+
+/**
+ * Test the escape schemes produce the same result as the commons-lang escape utilities
+ */
+public class EscapeTest extends TestBase {
+
+    private static final String[] SAMPLES = {
+            "", "abc", "<a href=\"x\">Tom & Jerry's</a>", "line1\nline2\r\n\t\b\f", "a/b\\c",
+            "\u0000\u001f\u007f\u0080", "café © • € ♦ 中文", "😀 x",
+            "\ud800 lone", "a,b", "say \"hi\""
+    };
+
+    private static String random(Random r, int len) {
+        char[] ca = new char[len];
+        for (int i = 0; i < len; ++i) {
+            switch (r.nextInt(4)) {
+                case 0:
+                    ca[i] = (char) r.nextInt(0x80);
+                    break;
+                case 1:
+                    ca[i] = (char) r.nextInt(0x300);
+                    break;
+                case 2:
+                    ca[i] = (char) (0x2000 + r.nextInt(0x700));
+                    break;
+                default:
+                    ca[i] = (char) r.nextInt(0x10000);
+            }
+        }
+        return new String(ca);
+    }
+
+    private void verify(String s) {
+        assertEquals(StringEscapeUtils.escapeHtml4(s), Escape.HTML.apply(s).data);
+        assertEquals(StringEscapeUtils.escapeEcmaScript(s), Escape.JS.apply(s).data);
+        assertEquals(StringEscapeUtils.escapeJson(s), Escape.JSON.apply(s).data);
+    }
+
+    @Test
+    public void testSameAsCommonsLang() {
+        for (String s : SAMPLES) {
+            verify(s);
+        }
+        Random r = new Random(20131111);
+        for (int i = 0; i < 1000; ++i) {
+            verify(random(r, r.nextInt(40)));
+        }
+    }
+
+    @Test
+    public void testXml() {
+        assertEquals("&lt;a b=&quot;c&quot;&gt;Tom &amp; Jerry&apos;s&lt;/a&gt;", Escape.XML.apply("<a b=\"c\">Tom & Jerry's</a>").data);
+        assertEquals("café", Escape.XML.apply("café").data);
+    }
+
+    @Test
+    public void testCsv() {
+        assertEquals("abc", Escape.CSV.apply("abc").data);
+        assertEquals("\"a,b\"", Escape.CSV.apply("a,b").data);
+        assertEquals("\"say \"\"hi\"\"\"", Escape.CSV.apply("say \"hi\"").data);
+        assertEquals("\"a\nb\"", Escape.CSV.apply("a\nb").data);
+    }
+
+    @Test
+    public void testSafeInputNotCopied() {
+        String s = "nothing to escape here";
+        for (Escape e : Escape.values()) {
+            assertSame(s, e.apply(s).data);
+        }
+    }
+
+    @Test
+    public void testEscapeIntoAppendable() throws IOException {
+        String s = "<p>x & y</p>";
+        StringBuilder sb = new StringBuilder("[");
+        Escape.HTML.escape(s, sb);
+        assertEquals("[&lt;p&gt;x &amp; y&lt;/p&gt;", sb.toString());
+        StringWriter w = new StringWriter();
+        CharSink sink = new CharSink(w);
+        Escape.JS.escape("it's", sink);
+        Escape.JS.escape("ok", sink);
+        sink.flush();
+        assertEquals("it\\'sok", w.toString());
+    }
+
+    public static void main(String[] args) {
+        run(EscapeTest.class);
+    }
+}